@@ -16,7 +16,11 @@
 package eu.solven.cleanthat.engine;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
+import eu.solven.cleanthat.formatter.IBatchLintFixer;
+import eu.solven.cleanthat.formatter.ILintFixerListener;
 import eu.solven.cleanthat.formatter.PathAndContent;
 
 /**
@@ -25,5 +29,66 @@ import eu.solven.cleanthat.formatter.PathAndContent;
  * @author Benoit Lacelle
  */
 public interface ICodeFormatterApplier {
+	/**
+	 * The linters are chained: each linter is given the output of the previous linter.
+	 *
+	 * @param languageProperties
+	 * @param pathAndContent
+	 * @return the processed content
+	 * @throws IOException
+	 */
 	String applyProcessors(EngineAndLinters languageProperties, PathAndContent pathAndContent) throws IOException;
+
+	/**
+	 *
+	 * @param languageProperties
+	 * @param pathAndContent
+	 * @param lintFixerListener
+	 *            notified after each applied lintFixer. It may not be notified if the implementation does not track
+	 *            each lintFixer.
+	 * @return the processed content
+	 * @throws IOException
+	 */
+	default String applyProcessors(EngineAndLinters languageProperties,
+			PathAndContent pathAndContent,
+			ILintFixerListener lintFixerListener) throws IOException {
+		return applyProcessors(languageProperties, pathAndContent);
+	}
+
+	/**
+	 *
+	 * @param languageProperties
+	 * @param pathAndContent
+	 * @param lintFixerListener
+	 *            notified after each applied lintFixer
+	 * @return the processed content. It may hold encoded bytes, if the lintFixers processed bytes.
+	 * @throws IOException
+	 */
+	default PathAndContent applyProcessorsToContent(EngineAndLinters languageProperties,
+			PathAndContent pathAndContent,
+			ILintFixerListener lintFixerListener) throws IOException {
+		return pathAndContent.withContent(applyProcessors(languageProperties, pathAndContent, lintFixerListener));
+	}
+
+	/**
+	 * Enables the {@link IBatchLintFixer} to process many files at once. By default, the files are processed one by
+	 * one.
+	 *
+	 * @param languageProperties
+	 * @param pathAndContents
+	 * @param lintFixerListeners
+	 *            a listener for each file, notified after each applied lintFixer
+	 * @return the processed contents, in the order of the input
+	 * @throws IOException
+	 */
+	default List<PathAndContent> applyProcessorsToContents(EngineAndLinters languageProperties,
+			List<PathAndContent> pathAndContents,
+			List<? extends ILintFixerListener> lintFixerListeners) throws IOException {
+		List<PathAndContent> outputs = new ArrayList<>(pathAndContents.size());
+		for (var i = 0; i < pathAndContents.size(); i++) {
+			outputs.add(
+					applyProcessorsToContent(languageProperties, pathAndContents.get(i), lintFixerListeners.get(i)));
+		}
+		return outputs;
+	}
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.util.List;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+
+/**
+ * Helps tracking which lines of a content have been changed, through successive modifications.
+ *
+ * @author Benoit Lacelle
+ */
+public class ChangedLinesHelper {
+	private static final Splitter LINES_SPLITTER = Splitter.on('\n');
+
+	protected ChangedLinesHelper() {
+		// hidden
+	}
+
+	/**
+	 * The changed area is computed by trimming the common leading and trailing lines. It is a cheap over-estimation of
+	 * the lines actually changed.
+	 *
+	 * @param changedInBefore
+	 *            the 0-based indexes of the lines already known as changed in the before content.
+	 * @param before
+	 * @param after
+	 * @return the 0-based indexes of the lines of after which have been changed, either from before, or in the original
+	 *         content (as given by changedInBefore, shifted accordingly).
+	 */
+	public static RangeSet<Integer> trackChangedLines(RangeSet<Integer> changedInBefore, String before, String after) {
+		if (before.equals(after)) {
+			return ImmutableRangeSet.copyOf(changedInBefore);
+		}
+
+		List<String> beforeLines = LINES_SPLITTER.splitToList(before);
+		List<String> afterLines = LINES_SPLITTER.splitToList(after);
+
+		var minSize = Math.min(beforeLines.size(), afterLines.size());
+		var prefix = 0;
+		while (prefix < minSize && beforeLines.get(prefix).equals(afterLines.get(prefix))) {
+			prefix++;
+		}
+		var suffix = 0;
+		while (suffix < minSize - prefix && beforeLines.get(beforeLines.size() - 1 - suffix)
+				.equals(afterLines.get(afterLines.size() - 1 - suffix))) {
+			suffix++;
+		}
+
+		RangeSet<Integer> changedInAfter = TreeRangeSet.create();
+
+		// In case of a pure deletion, we consider the line joining the remaining lines as changed
+		var lastChanged = Math.max(prefix, afterLines.size() - 1 - suffix);
+		changedInAfter.add(Range.closed(Math.min(prefix, afterLines.size() - 1), lastChanged));
+
+		// Lines before the change are unchanged
+		changedInBefore.subRangeSet(Range.lessThan(prefix)).asRanges().forEach(changedInAfter::add);
+
+		// Lines after the change are shifted
+		var shift = afterLines.size() - beforeLines.size();
+		changedInBefore.subRangeSet(Range.atLeast(beforeLines.size() - suffix))
+				.asRanges()
+				.forEach(r -> changedInAfter.add(shift(r, shift)));
+
+		return changedInAfter;
+	}
+
+	private static Range<Integer> shift(Range<Integer> range, int shift) {
+		// canonical ranges are [lower, upper)
+		var canonical = range.canonical(DiscreteDomain.integers());
+		if (canonical.hasUpperBound()) {
+			return Range.closedOpen(canonical.lowerEndpoint() + shift, canonical.upperEndpoint() + shift);
+		} else {
+			return Range.atLeast(canonical.lowerEndpoint() + shift);
+		}
+	}
+}
@@ -16,13 +16,18 @@
 package eu.solven.cleanthat.formatter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.RangeSet;
+
 import eu.solven.cleanthat.config.IDocumentationConstants;
 import eu.solven.cleanthat.engine.EngineAndLinters;
 import eu.solven.cleanthat.engine.ICodeFormatterApplier;
@@ -40,36 +45,191 @@ public class CodeFormatterApplier implements ICodeFormatterApplier {
 
 	@Override
 	public String applyProcessors(EngineAndLinters engineAndSteps, PathAndContent pathAndContent) throws IOException {
-		var code = pathAndContent.getContent();
-		var filepath = pathAndContent.getPath();
-		var outputRef = new AtomicReference<>(code);
+		return applyProcessors(engineAndSteps, pathAndContent, ILintFixerListener.NOOP);
+	}
+
+	@Override
+	public String applyProcessors(EngineAndLinters engineAndSteps,
+			PathAndContent pathAndContent,
+			ILintFixerListener lintFixerListener) throws IOException {
+		return applyProcessorsToContent(engineAndSteps, pathAndContent, lintFixerListener).getContent();
+	}
+
+	/**
+	 * Each linter is given the output of the previous linter. An {@link ILintFixerWithLineRanges} restricted to changed
+	 * lines is given the lines changed by the previous linters.
+	 * 
+	 * @param engineAndSteps
+	 * @param pathAndContent
+	 * @param lintFixerListener
+	 *            notified with the wall-time of each lintFixer
+	 * @return the processed content. Its bytes are not decoded if all lintFixers are {@link IBytesLintFixer}.
+	 * @throws IOException
+	 */
+	@Override
+	public PathAndContent applyProcessorsToContent(EngineAndLinters engineAndSteps,
+			PathAndContent pathAndContent,
+			ILintFixerListener lintFixerListener) throws IOException {
+		return applyProcessorsToContents(engineAndSteps, List.of(pathAndContent), List.of(lintFixerListener)).get(0);
+	}
+
+	/**
+	 * An {@link IBatchLintFixer} is given all files at once. If it fails, the files are processed one by one, so that a
+	 * failure is attributed to its own file. Other linters process the files one by one.
+	 * 
+	 * @param engineAndSteps
+	 * @param pathAndContents
+	 * @param lintFixerListeners
+	 *            for each file, notified with the wall-time of each lintFixer. The wall-time of an
+	 *            {@link IBatchLintFixer} is spread evenly over the files.
+	 * @return the processed contents, in the order of the input
+	 * @throws IOException
+	 */
+	@Override
+	public List<PathAndContent> applyProcessorsToContents(EngineAndLinters engineAndSteps,
+			List<PathAndContent> pathAndContents,
+			List<? extends ILintFixerListener> lintFixerListeners) throws IOException {
+		if (pathAndContents.size() != lintFixerListeners.size()) {
+			throw new IllegalArgumentException("Inconsistent inputs: " + pathAndContents.size()
+					+ " files vs "
+					+ lintFixerListeners.size()
+					+ " listeners");
+		}
+
+		List<ProcessedFile> files = new ArrayList<>(pathAndContents.size());
+		for (var i = 0; i < pathAndContents.size(); i++) {
+			files.add(new ProcessedFile(pathAndContents.get(i), lintFixerListeners.get(i)));
+		}
+		// Tracking the changed lines requires decoding the contents: it is done only if some linter needs them
+		var tracksChangedLines =
+				engineAndSteps.getLinters().stream().anyMatch(CodeFormatterApplier::isChangedLinesOnly);
 
 		var engineProperties = engineAndSteps.getEngineProperties();
-		engineAndSteps.getLinters().forEach(linter -> {
-			try {
-				var output = applyProcessor(engineProperties, linter, pathAndContent);
-				if (output == null) {
-					throw new IllegalStateException("Null code.");
-				}
-				String input = outputRef.get();
-				if (!input.equals(output)) {
-					// Beware each processor may change a file, but the combined changes leads to a no change (e.g. the
-					// final formatting step may clean all previous not relevant changes)
-					LOGGER.debug("Mutated a file given: {}", linter);
-					outputRef.set(output);
+		for (ILintFixer linter : engineAndSteps.getLinters()) {
+			if (files.size() >= 2 && linter instanceof IBatchLintFixer
+					&& !isChangedLinesOnly(linter)
+					&& applyBatch((IBatchLintFixer) linter, files, tracksChangedLines)) {
+				continue;
+			}
+
+			for (ProcessedFile file : files) {
+				applyLinter(engineProperties, linter, file, tracksChangedLines);
+			}
+		}
+
+		return files.stream().map(file -> file.content).collect(Collectors.toList());
+	}
+
+	private boolean applyBatch(IBatchLintFixer linter, List<ProcessedFile> files, boolean tracksChangedLines) {
+		var start = System.nanoTime();
+		List<PathAndContent> outputs;
+		try {
+			outputs = linter.doFormat(files.stream().map(file -> file.content)).collect(Collectors.toList());
+			if (outputs.size() != files.size() || outputs.contains(null)) {
+				throw new IllegalStateException("Expected " + files.size() + " outputs. Got: " + outputs);
+			}
+		} catch (RuntimeException e) {
+			LOGGER.warn("Issue with linter={} over a batch of {} files. They are processed one by one",
+					linter,
+					files.size(),
+					e);
+			return false;
+		}
+		var nanosPerFile = (System.nanoTime() - start) / files.size();
+
+		for (var i = 0; i < files.size(); i++) {
+			var file = files.get(i);
+			file.onOutput(linter, outputs.get(i), tracksChangedLines);
+			file.listener.onLintFixerApplied(linter, nanosPerFile);
+		}
+		return true;
+	}
+
+	private void applyLinter(IEngineProperties engineProperties,
+			ILintFixer linter,
+			ProcessedFile file,
+			boolean tracksChangedLines) {
+		var start = System.nanoTime();
+		try {
+			PathAndContent input = file.content;
+			PathAndContent output;
+			if (isChangedLinesOnly(linter)) {
+				output = withContent(input,
+						applyProcessor((ILintFixerWithLineRanges) linter, input.getContent(), file.changedLines));
+			} else if (linter instanceof IBytesLintFixer) {
+				output = ((IBytesLintFixer) linter).doFormatBytes(input);
+			} else {
+				output = withContent(input, applyProcessor(engineProperties, linter, input));
+			}
+			if (output == null) {
+				throw new IllegalStateException("Null code.");
+			}
+			file.onOutput(linter, output, tracksChangedLines);
+		} catch (IOException | RuntimeException e) {
+			NB_EXCEPTIONS.incrementAndGet();
+			file.listener.onLintFixerFailed(linter, e);
+			// Log and move to next processor
+			LOGGER.warn("Issue over file='" + file.content.getPath()
+					+ "' with linter="
+					+ linter
+					+ " in engine={}. Please report it to: "
+					+ IDocumentationConstants.URL_REPO
+					+ "/issues", engineProperties.getEngine(), e);
+		} finally {
+			file.listener.onLintFixerApplied(linter, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * The state of a file going through the linters of an engine.
+	 *
+	 * @author Benoit Lacelle
+	 */
+	private static final class ProcessedFile {
+		final ILintFixerListener listener;
+
+		PathAndContent content;
+		// The lines changed by previous linters
+		RangeSet<Integer> changedLines = ImmutableRangeSet.of();
+
+		private ProcessedFile(PathAndContent content, ILintFixerListener listener) {
+			this.content = content;
+			this.listener = listener;
+		}
+
+		void onOutput(ILintFixer linter, PathAndContent output, boolean tracksChangedLines) {
+			var input = content;
+			if (!input.hasSameContent(output)) {
+				// Beware each processor may change a file, but the combined changes leads to a no change (e.g. the
+				// final formatting step may clean all previous not relevant changes)
+				LOGGER.debug("Mutated a file given: {}", linter);
+				content = output;
+				if (tracksChangedLines) {
+					changedLines =
+							ChangedLinesHelper.trackChangedLines(changedLines, input.getContent(), output.getContent());
 				}
-			} catch (IOException | RuntimeException e) {
-				NB_EXCEPTIONS.incrementAndGet();
-				// Log and move to next processor
-				LOGGER.warn("Issue over file='" + filepath
-						+ "' with linter="
-						+ linter
-						+ " in engine={}. Please report it to: "
-						+ IDocumentationConstants.URL_REPO
-						+ "/issues", engineProperties.getEngine(), e);
 			}
-		});
-		return outputRef.get();
+		}
+	}
+
+	private static boolean isChangedLinesOnly(ILintFixer linter) {
+		return linter instanceof ILintFixerWithLineRanges && ((ILintFixerWithLineRanges) linter).isChangedLinesOnly();
+	}
+
+	private static PathAndContent withContent(PathAndContent input, String output) {
+		if (output == null) {
+			return null;
+		}
+		return input.withContent(output);
+	}
+
+	protected String applyProcessor(ILintFixerWithLineRanges lintFixer, String code, RangeSet<Integer> changedLines)
+			throws IOException {
+		if (changedLines.isEmpty()) {
+			LOGGER.debug("No changed lines: skip {}", lintFixer);
+			return code;
+		}
+		return lintFixer.doFormat(code, changedLines);
 	}
 
 	protected String applyProcessor(IEngineProperties engineProperties,
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.util.stream.Stream;
+
+/**
+ * An {@link ILintFixerWithPath} able to process many files within a single session. It enables sharing expensive
+ * resources (e.g. parsers, symbol solvers, type caches) between files, instead of paying their setup for each file.
+ *
+ * @author Benoit Lacelle
+ */
+public interface IBatchLintFixer extends ILintFixerWithPath {
+
+	/**
+	 *
+	 * @param pathAndContents
+	 *            the files to process.
+	 * @return a {@link Stream} with a {@link PathAndContent} for each input, holding the formatted content. The order
+	 *         of the input is preserved.
+	 */
+	Stream<PathAndContent> doFormat(Stream<PathAndContent> pathAndContents);
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.io.IOException;
+
+/**
+ * An {@link ILintFixerWithPath} processing encoded contents. When the content is loaded as bytes, it goes through such
+ * lintFixers, then to the writer, without being decoded into a {@link String} and encoded back.
+ *
+ * @author Benoit Lacelle
+ */
+public interface IBytesLintFixer extends ILintFixerWithPath {
+
+	/**
+	 *
+	 * @param pathAndContent
+	 *            the file to process. Prefer {@link PathAndContent#getBytes()} to {@link PathAndContent#getContent()}.
+	 * @return a {@link PathAndContent} holding the formatted content, typically with
+	 *         {@link PathAndContent#withBytes(byte[], java.nio.charset.Charset)}. The input itself if it is already
+	 *         clean.
+	 * @throws IOException
+	 */
+	PathAndContent doFormatBytes(PathAndContent pathAndContent) throws IOException;
+
+	@Override
+	default String doFormat(PathAndContent pathAndContent) throws IOException {
+		return doFormatBytes(pathAndContent).getContent();
+	}
+}
@@ -25,4 +25,13 @@ import java.io.IOException;
 public interface ILintFixer {
 
 	String doFormat(String content) throws IOException;
+
+	/**
+	 * 
+	 * @return true if this instance can be used concurrently by multiple threads. Else, each thread needs its own
+	 *         instance.
+	 */
+	default boolean isThreadSafe() {
+		return false;
+	}
 }
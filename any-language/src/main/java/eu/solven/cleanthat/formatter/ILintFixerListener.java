@@ -0,0 +1,46 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+/**
+ * Notified after each {@link ILintFixer} applied over a file, typically to measure where the time is spent.
+ *
+ * @author Benoit Lacelle
+ */
+@FunctionalInterface
+public interface ILintFixerListener {
+	ILintFixerListener NOOP = (lintFixer, nanos) -> {
+	};
+
+	/**
+	 * 
+	 * @param lintFixer
+	 * @param nanos
+	 *            the wall-time spent by given {@link ILintFixer}, including a failure.
+	 */
+	void onLintFixerApplied(ILintFixer lintFixer, long nanos);
+
+	/**
+	 * Notified before {@link #onLintFixerApplied(ILintFixer, long)} if given {@link ILintFixer} failed. The content is
+	 * then left unchanged by this {@link ILintFixer}.
+	 * 
+	 * @param lintFixer
+	 * @param e
+	 */
+	default void onLintFixerFailed(ILintFixer lintFixer, Exception e) {
+		// By default, failures are only logged
+	}
+}
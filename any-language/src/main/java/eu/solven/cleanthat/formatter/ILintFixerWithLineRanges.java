@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.io.IOException;
+
+import com.google.common.collect.RangeSet;
+
+/**
+ * An {@link ILintFixer} able to restrict its changes to some lines. It enables processing only the lines changed by
+ * previous linters: the cost then scales with the change size instead of the file size, and it prevents noisy diffs
+ * over legacy files.
+ *
+ * @author Benoit Lacelle
+ */
+public interface ILintFixerWithLineRanges extends ILintFixer {
+
+	/**
+	 *
+	 * @return true if this linter has to be applied only on the lines changed by previous linters. Else, it is applied
+	 *         on the whole content.
+	 */
+	boolean isChangedLinesOnly();
+
+	/**
+	 *
+	 * @param content
+	 *            the content to process
+	 * @param lineIndexes
+	 *            the 0-based indexes of the lines to process.
+	 * @return the processed content, where only given lines may have been modified
+	 * @throws IOException
+	 */
+	String doFormat(String content, RangeSet<Integer> lineIndexes) throws IOException;
+}
@@ -15,7 +15,17 @@
  */
 package eu.solven.cleanthat.formatter;
 
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.function.Supplier;
 
 import com.google.common.base.Suppliers;
@@ -26,24 +36,112 @@ import eu.solven.cleanthat.code_provider.CleanthatPathHelpers;
  * Couple a {@link Path} (which may not be based on FileSystems.default()) and its content. The content is fetched
  * lazily. Once it is fetched, it is cached.
  * 
+ * The content may be held as a {@link String}, or as encoded bytes with their {@link Charset}. The other representation
+ * is computed lazily, only if requested: bytes can go from an {@link IBytesLintFixer} to another, then to a writer,
+ * without being decoded.
+ * 
  * @author Benoit Lacelle
  *
  */
 public class PathAndContent {
+	private static final int VALIDATION_BUFFER_SIZE = 8 * 1024;
+
 	final Path path;
+	final Charset charset;
 	final Supplier<String> contentSupplier;
+	final Supplier<byte[]> bytesSupplier;
+	// true if the bytes are the original representation, hence available without encoding
+	final boolean holdsBytes;
 
-	public PathAndContent(Path path, Supplier<String> contentSupplier) {
+	private PathAndContent(Path path,
+			Charset charset,
+			Supplier<String> contentSupplier,
+			Supplier<byte[]> bytesSupplier,
+			boolean holdsBytes) {
 		CleanthatPathHelpers.checkContentPath(path);
 
 		this.path = path;
+		this.charset = charset;
 		this.contentSupplier = Suppliers.memoize(contentSupplier::get);
+		this.bytesSupplier = Suppliers.memoize(bytesSupplier::get);
+		this.holdsBytes = holdsBytes;
+	}
+
+	public PathAndContent(Path path, Supplier<String> contentSupplier) {
+		this(path, StandardCharsets.UTF_8, contentSupplier);
 	}
 
 	public PathAndContent(Path path, String content) {
 		this(path, () -> content);
 	}
 
+	private PathAndContent(Path path, Charset charset, Supplier<String> contentSupplier) {
+		this(path, charset, contentSupplier, () -> contentSupplier.get().getBytes(charset), false);
+	}
+
+	/**
+	 * 
+	 * @param path
+	 * @param bytes
+	 *            the encoded content. It must not be modified afterwards.
+	 * @param charset
+	 *            the {@link Charset} used to encode the content
+	 * @return a {@link PathAndContent} decoding the bytes only if the {@link String} content is requested
+	 */
+	public static PathAndContent ofBytes(Path path, byte[] bytes, Charset charset) {
+		return new PathAndContent(path, charset, () -> decode(path, bytes, charset), () -> bytes, true);
+	}
+
+	/**
+	 * Malformed bytes are rejected, instead of being replaced: else, a lintFixer would write back a corrupted content.
+	 */
+	private static String decode(Path path, byte[] bytes, Charset charset) {
+		try {
+			return charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT)
+					.decode(ByteBuffer.wrap(bytes))
+					.toString();
+		} catch (CharacterCodingException e) {
+			throw new UncheckedIOException("Issue decoding " + path + " with " + charset, e);
+		}
+	}
+
+	/**
+	 * Checks given bytes can be decoded with given {@link Charset}, without materializing the decoded {@link String}.
+	 * 
+	 * @param bytes
+	 * @param charset
+	 * @return true if given bytes are well-formed for given {@link Charset}
+	 */
+	public static boolean isWellFormed(byte[] bytes, Charset charset) {
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+
+		var in = ByteBuffer.wrap(bytes);
+		var out = CharBuffer.allocate(VALIDATION_BUFFER_SIZE);
+
+		CoderResult result;
+		do {
+			out.clear();
+			result = decoder.decode(in, out, true);
+			if (result.isError()) {
+				return false;
+			}
+		} while (result.isOverflow());
+
+		do {
+			out.clear();
+			result = decoder.flush(out);
+			if (result.isError()) {
+				return false;
+			}
+		} while (result.isOverflow());
+
+		return true;
+	}
+
 	public Path getPath() {
 		return path;
 	}
@@ -52,7 +150,59 @@ public class PathAndContent {
 		return contentSupplier.get();
 	}
 
+	/**
+	 * 
+	 * @return the content encoded with {@link #getCharset()}. The array must not be modified.
+	 */
+	public byte[] getBytes() {
+		return bytesSupplier.get();
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * 
+	 * @return true if the content is held as encoded bytes: {@link #getBytes()} does not encode it.
+	 */
+	public boolean hasBytes() {
+		return holdsBytes;
+	}
+
+	/**
+	 * 
+	 * @return the number of bytes, or the number of chars, whichever is available without a conversion.
+	 */
+	public int getSizeHint() {
+		if (holdsBytes) {
+			return getBytes().length;
+		} else {
+			return getContent().length();
+		}
+	}
+
+	/**
+	 * 
+	 * @param other
+	 * @return true if both contents are the same. Bytes are compared without being decoded, if both hold bytes with the
+	 *         same {@link Charset}.
+	 */
+	public boolean hasSameContent(PathAndContent other) {
+		if (this == other) {
+			return true;
+		} else if (holdsBytes && other.holdsBytes && charset.equals(other.charset)) {
+			return Arrays.equals(getBytes(), other.getBytes());
+		} else {
+			return getContent().equals(other.getContent());
+		}
+	}
+
 	public PathAndContent withContent(String newContent) {
-		return new PathAndContent(getPath(), () -> newContent);
+		return new PathAndContent(getPath(), charset, () -> newContent);
+	}
+
+	public PathAndContent withBytes(byte[] newBytes, Charset newCharset) {
+		return ofBytes(getPath(), newBytes, newCharset);
 	}
 }
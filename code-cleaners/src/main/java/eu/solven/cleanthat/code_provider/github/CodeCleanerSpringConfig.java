@@ -15,9 +15,14 @@
  */
 package eu.solven.cleanthat.code_provider.github;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -26,11 +31,13 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 
 import eu.solven.cleanthat.code_provider.github.event.CompositeCodeCleanerFactory;
 import eu.solven.cleanthat.code_provider.github.event.ICodeCleanerFactory;
 import eu.solven.cleanthat.config.CleanthatConfigInitializer;
 import eu.solven.cleanthat.config.ConfigHelpers;
+import eu.solven.cleanthat.config.GitService;
 import eu.solven.cleanthat.config.ICleanthatConfigInitializer;
 import eu.solven.cleanthat.config.spring.ConfigSpringConfig;
 import eu.solven.cleanthat.engine.ICodeFormatterApplier;
@@ -39,7 +46,9 @@ import eu.solven.cleanthat.engine.IEngineLintFixerFactory;
 import eu.solven.cleanthat.engine.StringFormatterFactory;
 import eu.solven.cleanthat.formatter.CodeFormatterApplier;
 import eu.solven.cleanthat.formatter.CodeProviderFormatter;
+import eu.solven.cleanthat.formatter.FileKnownCleanIndex;
 import eu.solven.cleanthat.formatter.ICodeProviderFormatter;
+import eu.solven.cleanthat.formatter.IKnownCleanIndex;
 
 /**
  * The {@link Configuration} enabling {@link GitHub}
@@ -52,6 +61,12 @@ import eu.solven.cleanthat.formatter.ICodeProviderFormatter;
 public class CodeCleanerSpringConfig {
 	private static final Logger LOGGER = LoggerFactory.getLogger(CodeCleanerSpringConfig.class);
 
+	// An ISO-8601 duration (e.g. 'PT12M'), typically the AWS Lambda timeout minus the time to clone and to commit
+	public static final String ENV_CLEAN_BUDGET = "cleanthat.clean.budget";
+
+	// The path of a file remembering the git blobs known to be clean
+	public static final String ENV_KNOWN_CLEAN_PATH = "cleanthat.known_clean.path";
+
 	@Bean
 	public ICodeFormatterApplier codeFormatterApplier() {
 		return new CodeFormatterApplier();
@@ -85,10 +100,38 @@ public class CodeCleanerSpringConfig {
 	}
 
 	@Bean
-	public ICodeProviderFormatter codeProviderFormatter(ConfigHelpers configHelpers,
+	public ICodeProviderFormatter codeProviderFormatter(Environment env,
+			ConfigHelpers configHelpers,
 			IEngineFormatterFactory formatterFactory,
 			ICodeFormatterApplier formatterApplier) {
-		return new CodeProviderFormatter(configHelpers, formatterFactory, formatterApplier);
+		Optional<Duration> cleanBudget = Optional.ofNullable(env.getProperty(ENV_CLEAN_BUDGET)).map(Duration::parse);
+		cleanBudget.ifPresent(budget -> LOGGER.info("Cleans are given a budget of {}", budget));
+
+		return new CodeProviderFormatter(configHelpers,
+				formatterFactory,
+				formatterApplier,
+				cleanBudget,
+				makeKnownCleanIndex(env));
+	}
+
+	private IKnownCleanIndex makeKnownCleanIndex(Environment env) {
+		var knownCleanPath = env.getProperty(ENV_KNOWN_CLEAN_PATH);
+		if (knownCleanPath == null) {
+			return IKnownCleanIndex.NONE;
+		}
+
+		// The index is specific to the cleanthat build, as another build may clean differently
+		var cleanthatSha1 = GitService.safeGetSha1();
+		if (!cleanthatSha1.matches("[0-9a-f]{40}")) {
+			LOGGER.warn("The known-clean index is disabled as the cleanthat build is unknown (sha1={})", cleanthatSha1);
+			return IKnownCleanIndex.NONE;
+		}
+
+		try {
+			return new FileKnownCleanIndex(Paths.get(knownCleanPath), cleanthatSha1);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Issue loading the known-clean index from " + knownCleanPath, e);
+		}
 	}
 
 	// @Primary as it is the one to be injected instead of each individual ICodeCleanerFactory
@@ -120,10 +120,10 @@ public class GenerateInitialConfig {
 				factories.forEach(factory -> {
 					Set<String> includes = getDefaultIncludes.apply(factory);
 
-					var includeMatchers = IncludeExcludeHelpers.prepareMatcher(repoRoot.getFileSystem(), includes);
-					var matchingInclude = IncludeExcludeHelpers.findMatching(includeMatchers, filePath);
+					var includeMatcher =
+							IncludeExcludeHelpers.prepareCombinedMatcher(repoRoot.getFileSystem(), includes);
 
-					if (matchingInclude.isPresent()) {
+					if (includeMatcher.matches(filePath)) {
 						factoryToFileCount.getAndIncrement(getId.apply(factory));
 					}
 				});
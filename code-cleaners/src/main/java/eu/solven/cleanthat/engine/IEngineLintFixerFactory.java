@@ -40,6 +40,18 @@ public interface IEngineLintFixerFactory {
 			IEngineProperties engineProperties,
 			CleanthatStepProperties stepProperties);
 
+	/**
+	 * A cacheable {@link ILintFixer} may be re-used by later {@link CleanthatSession}: it must depend only on the
+	 * properties, and on the repository contents it loads while being built. Hence, it must not retain the
+	 * {@link CleanthatSession}.
+	 * 
+	 * @param stepProperties
+	 * @return true if the {@link ILintFixer} of given step can be cached through {@link CleanthatSession}.
+	 */
+	default boolean isCacheable(CleanthatStepProperties stepProperties) {
+		return false;
+	}
+
 	/**
 	 * 
 	 * @param steps
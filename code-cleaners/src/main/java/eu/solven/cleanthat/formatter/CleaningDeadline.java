@@ -0,0 +1,74 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.time.Duration;
+
+/**
+ * The instant after which a clean should stop processing files, to persist what has been completed (e.g. before an AWS
+ * Lambda timeout).
+ *
+ * @author Benoit Lacelle
+ */
+public final class CleaningDeadline {
+	private static final CleaningDeadline NONE = new CleaningDeadline(false, 0);
+
+	final boolean bounded;
+	// Relative to System.nanoTime()
+	final long deadlineNanos;
+
+	private CleaningDeadline(boolean bounded, long deadlineNanos) {
+		this.bounded = bounded;
+		this.deadlineNanos = deadlineNanos;
+	}
+
+	public static CleaningDeadline none() {
+		return NONE;
+	}
+
+	public static CleaningDeadline after(Duration budget) {
+		return new CleaningDeadline(true, System.nanoTime() + budget.toNanos());
+	}
+
+	public boolean isBounded() {
+		return bounded;
+	}
+
+	/**
+	 * 
+	 * @return the nanoseconds left before the deadline, 0 if it is reached, and {@link Long#MAX_VALUE} if there is no
+	 *         deadline.
+	 */
+	public long getRemainingNanos() {
+		if (!bounded) {
+			return Long.MAX_VALUE;
+		}
+		// Compare differences, as System.nanoTime() may overflow
+		return Math.max(0, deadlineNanos - System.nanoTime());
+	}
+
+	public boolean isReached() {
+		return getRemainingNanos() == 0;
+	}
+
+	@Override
+	public String toString() {
+		if (!bounded) {
+			return "CleaningDeadline(none)";
+		}
+		return "CleaningDeadline(remaining=" + Duration.ofNanos(getRemainingNanos()) + ")";
+	}
+}
@@ -19,30 +19,40 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CompletionService;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 
 import com.google.common.base.Strings;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
 import com.google.common.util.concurrent.AtomicLongMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 
 import eu.solven.cleanthat.any_language.ACodeCleaner;
 import eu.solven.cleanthat.codeprovider.CodeProviderDecoratingWriter;
 import eu.solven.cleanthat.codeprovider.CodeWritingMetadata;
+import eu.solven.cleanthat.codeprovider.GitBlobIds;
 import eu.solven.cleanthat.codeprovider.ICodeProvider;
-import eu.solven.cleanthat.codeprovider.ICodeProviderFile;
 import eu.solven.cleanthat.codeprovider.ICodeProviderWriter;
 import eu.solven.cleanthat.codeprovider.ICodeWritingMetadata;
 import eu.solven.cleanthat.codeprovider.IUpgradableToHeadFullScan;
@@ -54,8 +64,11 @@ import eu.solven.cleanthat.config.pojo.CleanthatRepositoryProperties;
 import eu.solven.cleanthat.engine.EngineAndLinters;
 import eu.solven.cleanthat.engine.ICodeFormatterApplier;
 import eu.solven.cleanthat.engine.IEngineFormatterFactory;
+import eu.solven.cleanthat.formatter.FormattingTimings.FileTimings;
 import eu.solven.cleanthat.language.IEngineProperties;
 import eu.solven.pepper.thread.PepperExecutorsHelper;
+import lombok.Data;
+import lombok.Value;
 
 /**
  * Unclear what is the point of this class
@@ -64,12 +77,31 @@ import eu.solven.pepper.thread.PepperExecutorsHelper;
  */
 public class CodeProviderFormatter implements ICodeProviderFormatter {
 	private static final String KEY_NB_FILES_FORMATTED = "nb_files_formatted";
+	private static final String KEY_NB_FILES_ALREADY_FORMATTED = "nb_files_already_formatted";
+	private static final String KEY_NB_FILES_KNOWN_CLEAN = "nb_files_known_clean";
+	private static final String KEY_TIMINGS = "timings";
+	private static final String KEY_NB_FILES_REMAINING = "nb_files_remaining";
+	private static final String KEY_REMAINING_PATHS = "remaining_paths";
 
 	private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(CodeProviderFormatter.class);
 
 	public static final String EOL = "\r\n";
 	private static final int MAX_LOG_MANY_FILES = 128;
 
+	// Loading a file is generally IO-bound (e.g. a network call): many threads are used to hide the latency
+	private static final int NB_IO_THREADS = 4 * PepperExecutorsHelper.getDefaultNbThreads();
+	// The number of files loaded but not yet formatted is bounded, for memory to be bounded given huge listings
+	private static final int MAX_IN_FLIGHT_FILES = 4 * NB_IO_THREADS;
+	// https://github.com/diffplug/spotless/issues/1555
+	// If too many threads, we would load too many Spotless engines
+	private static final int NB_CPU_THREADS = PepperExecutorsHelper.getDefaultNbThreads();
+	// The files of an engine with a IBatchLintFixer are formatted by batches. A batch holds at most half of the
+	// in-flight
+	// files per formatting thread, so that all formatting threads are busy while the next files are loaded
+	private static final int MAX_BATCH_FILES = Math.max(1, MAX_IN_FLIGHT_FILES / (2 * NB_CPU_THREADS));
+	// Once the deadline is reached, the interrupted tasks are given a short time to terminate
+	private static final Duration CUTOFF_GRACE = Duration.ofSeconds(10);
+
 	final IEngineFormatterFactory formatterFactory;
 	final ICodeFormatterApplier formatterApplier;
 
@@ -77,12 +109,39 @@ public class CodeProviderFormatter implements ICodeProviderFormatter {
 
 	final ConfigHelpers configHelpers;
 
+	// If present, the files are processed up to this budget, then the completed files are persisted
+	final Optional<Duration> cleanBudget;
+
+	// Enables skipping the files whose content is known to be clean
+	final IKnownCleanIndex knownCleanIndex;
+
 	public CodeProviderFormatter(ConfigHelpers configHelpers,
 			IEngineFormatterFactory formatterFactory,
 			ICodeFormatterApplier formatterApplier) {
+		this(configHelpers, formatterFactory, formatterApplier, Optional.empty(), IKnownCleanIndex.NONE);
+	}
+
+	/**
+	 * 
+	 * @param configHelpers
+	 * @param formatterFactory
+	 * @param formatterApplier
+	 * @param cleanBudget
+	 *            the time given to process the files of a clean. It should leave some time to persist the changes (e.g.
+	 *            given the timeout of an AWS Lambda).
+	 * @param knownCleanIndex
+	 *            the git blobs known to be clean, given an engine configuration
+	 */
+	public CodeProviderFormatter(ConfigHelpers configHelpers,
+			IEngineFormatterFactory formatterFactory,
+			ICodeFormatterApplier formatterApplier,
+			Optional<Duration> cleanBudget,
+			IKnownCleanIndex knownCleanIndex) {
 		this.configHelpers = configHelpers;
 		this.formatterFactory = formatterFactory;
 		this.formatterApplier = formatterApplier;
+		this.cleanBudget = cleanBudget;
+		this.knownCleanIndex = knownCleanIndex;
 
 		this.sourceCodeFormatterHelper = new SourceCodeFormatterHelper();
 	}
@@ -92,6 +151,7 @@ public class CodeProviderFormatter implements ICodeProviderFormatter {
 	public CodeFormatResult formatCode(CleanthatRepositoryProperties repoProperties,
 			ICodeProviderWriter codeWriter,
 			boolean dryRun) {
+		var deadline = cleanBudget.map(CleaningDeadline::after).orElse(CleaningDeadline.none());
 		// A config change may be spotless.yaml, or a processor configuration file
 
 		// TODO or an indirect change leading to a full re-compute (e.g. a implicit
@@ -142,17 +202,44 @@ public class CodeProviderFormatter implements ICodeProviderFormatter {
 
 		AtomicLongMap<String> languageToNbAddedFiles = AtomicLongMap.create();
 		AtomicLongMap<String> languagesCounters = AtomicLongMap.create();
-		Map<Path, String> pathToMutatedContent = new LinkedHashMap<>();
+		// Written concurrently by the tasks processing each file. Beyond a budget, the contents are spilled to disk
+		var mutatedContentStore = new MutatedContentStore();
+		Map<Path, PathAndContent> pathToMutatedContent = mutatedContentStore.asEncodedMap();
 
 		var cleanthatSession = new CleanthatSession(codeWriter.getRepositoryRoot(), finalCodeWriter, repoProperties);
 
-		repoProperties.getEngines().stream().filter(lp -> !lp.isSkip()).forEach(dirtyLanguageConfig -> {
-			var languageP = prepareLanguageConfiguration(repoProperties, dirtyLanguageConfig);
+		// All engines are processed in a single pass: the files are listed and loaded once, and each file goes through
+		// the engines matching it
+		List<IEngineProperties> engines = repoProperties.getEngines()
+				.stream()
+				.filter(lp -> !lp.isSkip())
+				.map(dirtyLanguageConfig -> prepareLanguageConfiguration(repoProperties, dirtyLanguageConfig))
+				.collect(Collectors.toList());
+
+		var timings = new FormattingTimings();
+		// The files not processed before the deadline
+		Set<Path> remainingPaths = ConcurrentHashMap.newKeySet();
+		List<AtomicLongMap<String>> enginesCounters = processFiles(cleanthatSession,
+				languageToNbAddedFiles,
+				pathToMutatedContent,
+				engines,
+				timings,
+				deadline,
+				remainingPaths);
+		timings.logReport();
+
+		if (!remainingPaths.isEmpty()) {
+			// The completed files are persisted: a later clean will process the remaining files
+			LOGGER.warn("The deadline has been reached: {} files are remaining. Some examples: {}",
+					remainingPaths.size(),
+					remainingPaths.stream().limit(MAX_LOG_MANY_FILES).collect(Collectors.toList()));
+			prComments.add("The deadline has been reached before processing " + remainingPaths.size()
+					+ " files. They will be processed by a later clean.");
+		}
 
-			// TODO Process all languages in a single pass
-			// Beware about concurrency as multiple processors/languages may impact the same file
-			var languageCounters =
-					processFiles(cleanthatSession, languageToNbAddedFiles, pathToMutatedContent, languageP);
+		for (var i = 0; i < engines.size(); i++) {
+			var languageP = engines.get(i);
+			var languageCounters = enginesCounters.get(i);
 
 			var details = languageCounters.asMap()
 					.entrySet()
@@ -162,7 +249,7 @@ public class CodeProviderFormatter implements ICodeProviderFormatter {
 
 			prComments.add("engine=" + languageP.getEngine() + EOL + details);
 			languageCounters.asMap().forEach((l, c) -> languagesCounters.addAndGet(l, c));
-		});
+		}
 
 		boolean isEmpty;
 		if (languageToNbAddedFiles.isEmpty() && !configIsChanged.get()) {
@@ -191,13 +278,34 @@ public class CodeProviderFormatter implements ICodeProviderFormatter {
 				ICodeWritingMetadata metadata =
 						new CodeWritingMetadata(prComments, repoProperties.getMeta().getLabels());
 
-				isEmpty = !codeWriter.persistChanges(pathToMutatedContent, metadata);
+				isEmpty = !codeWriter.persistEncodedChanges(pathToMutatedContent, metadata);
 			}
 		}
 
 		codeWriter.cleanTmpFiles();
+		try {
+			knownCleanIndex.flush();
+		} catch (IOException e) {
+			LOGGER.warn("Issue while flushing {}", knownCleanIndex, e);
+		}
+		try {
+			mutatedContentStore.close();
+		} catch (IOException e) {
+			LOGGER.warn("Issue while closing {}", mutatedContentStore, e);
+		}
 
-		return new CodeFormatResult(isEmpty, new LinkedHashMap<>(languagesCounters.asMap()));
+		Map<String, Object> details = new LinkedHashMap<>(languagesCounters.asMap());
+		details.put(KEY_TIMINGS, timings.asMap());
+		if (!remainingPaths.isEmpty()) {
+			details.put(KEY_NB_FILES_REMAINING, (long) remainingPaths.size());
+			details.put(KEY_REMAINING_PATHS,
+					remainingPaths.stream()
+							.map(Path::toString)
+							.sorted()
+							.limit(MAX_LOG_MANY_FILES)
+							.collect(Collectors.toList()));
+		}
+		return new CodeFormatResult(isEmpty, details);
 	}
 
 	private ICodeProviderWriter upgradeToFullRepoReader(ICodeProviderWriter codeWriter) {
@@ -247,168 +355,448 @@ public class CodeProviderFormatter implements ICodeProviderFormatter {
 
 	// PMD.CloseResource: False positive as we did not open it ourselves
 	@SuppressWarnings({ "PMD.CognitiveComplexity", "PMD.CloseResource" })
-	protected AtomicLongMap<String> processFiles(CleanthatSession cleanthatSession,
+	protected List<AtomicLongMap<String>> processFiles(CleanthatSession cleanthatSession,
 			AtomicLongMap<String> engineToNbMutatedFiles,
-			Map<Path, String> pathToMutatedContent,
-			IEngineProperties engineP) {
-		List<AutoCloseable> closeUs = new ArrayList<>();
-		// We rely on a ThreadLocal as Engines may not be threadSafe
-		// Hence, each new thread will compile its own engine
-		ThreadLocal<EngineAndLinters> currentThreadEngine = ThreadLocal.withInitial(() -> {
-			var lintFixer = buildProcessors(engineP, cleanthatSession);
-
-			closeUs.add(lintFixer);
+			Map<Path, PathAndContent> pathToMutatedContent,
+			List<IEngineProperties> engines,
+			FormattingTimings timings,
+			CleaningDeadline deadline,
+			Set<Path> remainingPaths) {
+		var fs = cleanthatSession.getRepositoryRoot().getFileSystem();
+		var repositoryIdentity = getRepositoryIdentity(cleanthatSession.getCodeProvider());
+		List<EngineRoute> routes = engines.stream().map(engineP -> {
+			// Engines may not be thread-safe: the pool shares thread-safe lintFixers, and instantiates the others on
+			// first use, re-using them sequentially
+			var enginePool = sourceCodeFormatterHelper
+					.preparePool(engineP, cleanthatSession, () -> formatterFactory.makeLanguageFormatter(engineP));
+
+			var sourceCodeProperties = engineP.getSourceCode();
+			var includeMatcher = IncludeExcludeHelpers.prepareCombinedMatcher(fs, sourceCodeProperties.getIncludes());
+			var excludeMatcher = IncludeExcludeHelpers.prepareCombinedMatcher(fs, sourceCodeProperties.getExcludes());
+
+			Optional<String> knownCleanKey;
+			if (knownCleanIndex == IKnownCleanIndex.NONE) {
+				knownCleanKey = Optional.empty();
+			} else {
+				knownCleanKey = makeKnownCleanKey(repositoryIdentity, enginePool);
+			}
 
-			return lintFixer;
-		});
+			// The lintFixers are instantiated only once a file matches the engine
+			Supplier<Boolean> batching = Suppliers.memoize(() -> isBatching(enginePool));
+
+			return new EngineRoute(enginePool,
+					includeMatcher,
+					excludeMatcher,
+					knownCleanKey,
+					batching,
+					AtomicLongMap.create());
+		}).collect(Collectors.toList());
+
+		// A subtree can be skipped only if it is irrelevant to all engines: the listing considers the union of includes
+		// and the intersection of excludes
+		Set<String> includes = engines.stream()
+				.flatMap(engineP -> engineP.getSourceCode().getIncludes().stream())
+				.collect(Collectors.toCollection(TreeSet::new));
+		Set<String> excludes = engines.stream()
+				.map(engineP -> (Set<String>) new TreeSet<>(engineP.getSourceCode().getExcludes()))
+				.reduce(Sets::intersection)
+				.orElse(Set.of());
 
 		try {
-			var languageCounters = processFiles(cleanthatSession, pathToMutatedContent, engineP, currentThreadEngine);
-			engineToNbMutatedFiles.addAndGet(engineP.getEngine(), languageCounters.get(KEY_NB_FILES_FORMATTED));
-
-			return languageCounters;
+			processFiles(cleanthatSession,
+					pathToMutatedContent,
+					routes,
+					includes,
+					excludes,
+					timings,
+					deadline,
+					remainingPaths);
 		} finally {
-			closeUs.forEach(t -> {
-				try {
-					t.close();
-				} catch (Exception e) {
-					LOGGER.warn("Issue while closing {}", t, e);
-				}
-			});
+			routes.forEach(route -> route.getEnginePool().close());
 		}
+
+		for (var i = 0; i < engines.size(); i++) {
+			var languageCounters = routes.get(i).getCounters();
+			engineToNbMutatedFiles.addAndGet(engines.get(i).getEngine(), languageCounters.get(KEY_NB_FILES_FORMATTED));
+		}
+
+		return routes.stream().map(EngineRoute::getCounters).collect(Collectors.toList());
 	}
 
-	@SuppressWarnings("PMD.CloseResource")
-	protected AtomicLongMap<String> processFiles(CleanthatSession cleanthatSession,
-			Map<Path, String> pathToMutatedContent,
-			IEngineProperties engineP,
-			ThreadLocal<EngineAndLinters> currentThreadEngine) {
-		var sourceCodeProperties = engineP.getSourceCode();
+	/**
+	 * Files are processed through a 2-stages pipeline: a stage loading contents, with many threads as it is generally
+	 * IO-bound (e.g. an API call per file), feeding a stage formatting contents, with a thread per core. The number of
+	 * files in-flight is bounded: the listing is blocked until some files are processed.
+	 * 
+	 * Once loaded, the smallest files are formatted first. On the deadline, the listing stops, the in-flight files are
+	 * cancelled, and only the files completed before the deadline are written.
+	 * 
+	 * The files matching an engine with a {@link IBatchLintFixer} are grouped by the engines they match, and formatted
+	 * by batches of up to {@link #MAX_BATCH_FILES} files. A pending batch is submitted before the listing waits for
+	 * in-flight files, as its files hold some of the in-flight permits.
+	 * 
+	 * @param cleanthatSession
+	 * @param pathToMutatedContent
+	 * @param routes
+	 * @param includes
+	 *            enables the listing to skip subtrees which can not hold an included file
+	 * @param excludes
+	 *            enables the listing to skip subtrees which hold only excluded files
+	 * @param timings
+	 *            records the latencies of the loading, of each engine and of each lintFixer
+	 * @param deadline
+	 * @param remainingPaths
+	 *            filled with the files not processed before the deadline
+	 */
+	protected void processFiles(CleanthatSession cleanthatSession,
+			Map<Path, PathAndContent> pathToMutatedContent,
+			List<EngineRoute> routes,
+			Set<String> includes,
+			Set<String> excludes,
+			FormattingTimings timings,
+			CleaningDeadline deadline,
+			Set<Path> remainingPaths) {
+		var ioExecutor = PepperExecutorsHelper.newShrinkableFixedThreadPool(NB_IO_THREADS, "Cleanthat-CodeLoader-");
+		var cpuExecutor = new SmallestFirstExecutor(NB_CPU_THREADS, "Cleanthat-CodeFormatter-");
+
+		var inFlight = new Semaphore(MAX_IN_FLIGHT_FILES);
+		Map<Path, ListenableFuture<Boolean>> pathToFuture = new LinkedHashMap<>();
+		var cutOff = false;
+
+		// Submits the loaded files to the formatting stage, as a single task
+		BiConsumer<List<EngineRoute>, List<PendingFile>> submitter = (batchRoutes, batch) -> {
+			ListenableFuture<List<Optional<PathAndContent>>> loaded =
+					Futures.allAsList(batch.stream().map(PendingFile::getLoaded).collect(Collectors.toList()));
+			List<FileTimings> filesTimings =
+					batch.stream().map(PendingFile::getFileTimings).collect(Collectors.toList());
+
+			ListenableFuture<Boolean> formatted =
+					Futures.transformAsync(loaded, optCodes -> cpuExecutor.submit(getSizeHint(optCodes), () -> {
+						try {
+							return doFormat(batchRoutes,
+									pathToMutatedContent,
+									optCodes,
+									timings,
+									filesTimings,
+									deadline,
+									remainingPaths);
+						} finally {
+							filesTimings.forEach(timings::recordFile);
+						}
+					}), MoreExecutors.directExecutor());
+			// Release the permits on success and on failure
+			formatted.addListener(() -> inFlight.release(batch.size()), MoreExecutors.directExecutor());
+
+			batch.forEach(file -> pathToFuture.put(file.getPath(), formatted));
+		};
+		// The files waiting for their batch to be full, given the engines they match
+		Map<List<EngineRoute>, List<PendingFile>> routesToPendingBatch = new LinkedHashMap<>();
+		Runnable flushPendingBatches = () -> {
+			routesToPendingBatch.forEach(submitter);
+			routesToPendingBatch.clear();
+		};
 
-		AtomicLongMap<String> languageCounters = AtomicLongMap.create();
+		try {
+			cleanthatSession.getCodeProvider().listFilesForContent(includes, excludes, file -> {
+				var filePath = file.getPath();
 
-		var fs = cleanthatSession.getRepositoryRoot().getFileSystem();
-		var includeMatchers = IncludeExcludeHelpers.prepareMatcher(fs, sourceCodeProperties.getIncludes());
-		var excludeMatchers = IncludeExcludeHelpers.prepareMatcher(fs, sourceCodeProperties.getExcludes());
+				// The engines to apply, in the order of the configuration
+				List<EngineRoute> matchingRoutes = getMatchingRoutes(routes, filePath);
+				if (matchingRoutes.isEmpty()) {
+					return;
+				}
 
-		// https://github.com/diffplug/spotless/issues/1555
-		// If too many threads, we would load too many Spotless engines
-		var executor = PepperExecutorsHelper.newShrinkableFixedThreadPool("Cleanthat-CodeFormatter-");
-		CompletionService<Boolean> cs = new ExecutorCompletionService<>(executor);
+				// The blob id may be known from the listing (e.g. a git tree): known clean files are not even loaded
+				var optBlobId = file.getBlobId();
+				if (optBlobId.isPresent()
+						&& matchingRoutes.stream().allMatch(route -> isKnownClean(route, optBlobId.get()))) {
+					LOGGER.debug("Skip {} as its blob is known clean", filePath);
+					matchingRoutes.forEach(route -> route.getCounters().incrementAndGet(KEY_NB_FILES_KNOWN_CLEAN));
+					return;
+				}
 
-		try {
-			cleanthatSession.getCodeProvider().listFilesForContent(file -> {
-				var optRunMe = onEachFile(cleanthatSession,
-						pathToMutatedContent,
-						currentThreadEngine,
-						languageCounters,
-						includeMatchers,
-						excludeMatchers,
-						file);
-
-				optRunMe.ifPresent(cs::submit);
+				if (inFlight.availablePermits() == 0) {
+					// The pending files hold some permits: they have to be submitted before waiting for permits
+					flushPendingBatches.run();
+				}
+
+				// Backpressure: the listing waits for some in-flight files to be processed, up to the deadline
+				if (deadline.isReached() || !tryAcquire(inFlight, deadline)) {
+					remainingPaths.add(filePath);
+					return;
+				}
+
+				var fileTimings = timings.openFile(filePath);
+				ListenableFuture<Optional<PathAndContent>> loaded = ioExecutor.submit(() -> {
+					var start = System.nanoTime();
+					try {
+						return loadCodeOptMutated(cleanthatSession.getCodeProvider(), pathToMutatedContent, filePath);
+					} finally {
+						timings.recordLoading(fileTimings, System.nanoTime() - start);
+					}
+				});
+				var pendingFile = new PendingFile(filePath, fileTimings, loaded);
+
+				if (matchingRoutes.stream().anyMatch(EngineRoute::isBatching)) {
+					var batch = routesToPendingBatch.computeIfAbsent(matchingRoutes, k -> new ArrayList<>());
+					batch.add(pendingFile);
+					if (batch.size() >= MAX_BATCH_FILES) {
+						routesToPendingBatch.remove(matchingRoutes);
+						submitter.accept(matchingRoutes, batch);
+					}
+				} else {
+					submitter.accept(matchingRoutes, List.of(pendingFile));
+				}
 			});
+			flushPendingBatches.run();
+
+			// Propagate any failure
+			var allFutures = Futures.allAsList(pathToFuture.values());
+			if (deadline.isBounded()) {
+				allFutures.get(deadline.getRemainingNanos(), TimeUnit.NANOSECONDS);
+			} else {
+				allFutures.get();
+			}
 		} catch (IOException e) {
 			throw new UncheckedIOException("Issue listing files", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Issue while one of the asynchronous tasks", e);
+		} catch (TimeoutException e) {
+			LOGGER.warn("The deadline has been reached: cancelling the in-flight files");
+			cutOff = true;
+			pathToFuture.forEach((path, future) -> {
+				if (!future.isDone()) {
+					future.cancel(true);
+					remainingPaths.add(path);
+				}
+			});
 		} finally {
-			// TODO Should wait given time left in Lambda
-			if (!MoreExecutors.shutdownAndAwaitTermination(executor, 1, TimeUnit.DAYS)) {
+			if (cutOff) {
+				ioExecutor.shutdownNow();
+				cpuExecutor.shutdownNow();
+			}
+			var timeout = cutOff ? CUTOFF_GRACE : Duration.ofDays(1);
+			if (!MoreExecutors.shutdownAndAwaitTermination(ioExecutor, timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+				LOGGER.warn("Executor not terminated");
+			}
+			if (!cpuExecutor.shutdownAndAwaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
 				LOGGER.warn("Executor not terminated");
 			}
 		}
+	}
 
-		// Once here, we are guaranteed all tasks has been pushed: we can poll until null.
-		while (true) {
-			try {
-				var polled = cs.poll();
+	/**
+	 * A blob is clean given the engine properties, but also given the contents referenced by these properties (e.g. a
+	 * stylesheet, a license header). These contents are known once the lintFixers are instantiated: they are
+	 * instantiated here, before the listing skips any known clean file.
+	 * 
+	 * @param repositoryIdentity
+	 * @param enginePool
+	 * @return the key of given engine in the knownCleanIndex, or empty if the engine can not be keyed.
+	 */
+	private Optional<String> makeKnownCleanKey(String repositoryIdentity, EngineLintersPool enginePool) {
+		var engineP = enginePool.getEngineProperties();
+		try {
+			enginePool.release(enginePool.borrow());
+		} catch (RuntimeException e) {
+			LOGGER.warn("engine={} can not be instantiated: its known clean files are ignored", engineP.getEngine(), e);
+			return Optional.empty();
+		}
 
-				if (polled == null) {
-					break;
-				}
-				boolean result = polled.get();
+		return NormalizedHashing.hash(repositoryIdentity, engineP, enginePool.getReferencedContents())
+				.map(HashCode::toString);
+	}
 
-				if (result) {
-					languageCounters.incrementAndGet(KEY_NB_FILES_FORMATTED);
-				} else {
-					languageCounters.incrementAndGet("nb_files_already_formatted");
-				}
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
-				throw new RuntimeException(e);
-			} catch (ExecutionException e) {
-				throw new RuntimeException("Issue while one of the asynchronous tasks", e);
-			}
+	private static String getRepositoryIdentity(ICodeProvider codeProvider) {
+		String repoUri;
+		try {
+			repoUri = codeProvider.getRepoUri();
+		} catch (RuntimeException e) {
+			// e.g. a local folder has no URI
+			LOGGER.debug("No URI for {}", codeProvider, e);
+			repoUri = null;
 		}
 
-		return languageCounters;
+		if (Strings.isNullOrEmpty(repoUri)) {
+			return codeProvider.getRepositoryRoot().toUri().toString();
+		} else {
+			return repoUri;
+		}
 	}
 
-	private Optional<Callable<Boolean>> onEachFile(CleanthatSession cleanthatSession,
-			Map<Path, String> pathToMutatedContent,
-			ThreadLocal<EngineAndLinters> currentThreadEngine,
-			AtomicLongMap<String> languageCounters,
-			List<PathMatcher> includeMatchers,
-			List<PathMatcher> excludeMatchers,
-			ICodeProviderFile file) {
-		var filePath = file.getPath();
-
-		var matchingInclude = IncludeExcludeHelpers.findMatching(includeMatchers, filePath);
-		var matchingExclude = IncludeExcludeHelpers.findMatching(excludeMatchers, filePath);
-		if (matchingInclude.isPresent()) {
-			if (matchingExclude.isEmpty()) {
-				Callable<Boolean> runMe = () -> {
-					var engineSteps = currentThreadEngine.get();
+	private static boolean tryAcquire(Semaphore inFlight, CleaningDeadline deadline) {
+		if (!deadline.isBounded()) {
+			inFlight.acquireUninterruptibly();
+			return true;
+		}
 
-					try {
-						return doFormat(cleanthatSession, engineSteps, pathToMutatedContent, filePath);
-					} catch (IOException e) {
-						throw new UncheckedIOException("Issue with file: " + filePath, e);
-					} catch (RuntimeException e) {
-						throw new RuntimeException("Issue with file: " + filePath, e);
-					}
-				};
+		try {
+			return inFlight.tryAcquire(deadline.getRemainingNanos(), TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for in-flight files", e);
+		}
+	}
+
+	private List<EngineRoute> getMatchingRoutes(List<EngineRoute> routes, Path filePath) {
+		return routes.stream().filter(route -> route.isMatching(filePath)).collect(Collectors.toList());
+	}
 
-				return Optional.of(runMe);
+	private static long getSizeHint(List<Optional<PathAndContent>> optCodes) {
+		return optCodes.stream().mapToLong(optCode -> optCode.map(PathAndContent::getSizeHint).orElse(0)).sum();
+	}
+
+	private boolean doFormat(List<EngineRoute> routes,
+			Map<Path, PathAndContent> pathToMutatedContent,
+			List<Optional<PathAndContent>> optCodes,
+			FormattingTimings timings,
+			List<FileTimings> filesTimings,
+			CleaningDeadline deadline,
+			Set<Path> remainingPaths) {
+		try {
+			return doFormatOrThrow(routes,
+					pathToMutatedContent,
+					optCodes,
+					timings,
+					filesTimings,
+					deadline,
+					remainingPaths);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Issue with files: " + getPaths(filesTimings), e);
+		} catch (RuntimeException e) {
+			throw new RuntimeException("Issue with files: " + getPaths(filesTimings), e);
+		}
+	}
+
+	private static List<Path> getPaths(List<FileTimings> filesTimings) {
+		return filesTimings.stream().map(FileTimings::getPath).collect(Collectors.toList());
+	}
+
+	/**
+	 * 
+	 * @return true if any file has been mutated
+	 */
+	@SuppressWarnings("PMD.CognitiveComplexity")
+	private boolean doFormatOrThrow(List<EngineRoute> routes,
+			Map<Path, PathAndContent> pathToMutatedContent,
+			List<Optional<PathAndContent>> optCodes,
+			FormattingTimings timings,
+			List<FileTimings> filesTimings,
+			CleaningDeadline deadline,
+			Set<Path> remainingPaths) throws IOException {
+		List<FormattedFile> files = new ArrayList<>(optCodes.size());
+		for (var i = 0; i < optCodes.size(); i++) {
+			var fileTimings = filesTimings.get(i);
+			// Each file is loaded once, then passed in memory through each engine
+			var optCode = optCodes.get(i);
+			if (optCode.isEmpty()) {
+				LOGGER.warn("Skip processing {} as its content is not available", fileTimings.getPath());
+				routes.forEach(route -> route.getCounters().incrementAndGet(KEY_NB_FILES_ALREADY_FORMATTED));
+				continue;
+			}
+			var code = optCode.get();
+
+			// The blob id is computed from the content, as the content may differ from the listed blob
+			Optional<String> optBlobId;
+			if (knownCleanIndex == IKnownCleanIndex.NONE) {
+				optBlobId = Optional.empty();
 			} else {
-				languageCounters.incrementAndGet("nb_files_both_included_excluded");
-				return Optional.empty();
+				optBlobId = Optional.of(GitBlobIds.ofBytes(code.getBytes()));
 			}
-		} else if (matchingExclude.isPresent()) {
-			languageCounters.incrementAndGet("nb_files_excluded_not_included");
-			return Optional.empty();
-		} else {
-			languageCounters.incrementAndGet("nb_files_neither_included_nor_excluded");
-			return Optional.empty();
+
+			files.add(new FormattedFile(fileTimings, code, optBlobId));
 		}
-	}
 
-	private boolean doFormat(CleanthatSession cleanthatSession,
-			EngineAndLinters engineAndLinters,
-			Map<Path, String> pathToMutatedContent,
-			Path filePath) throws IOException {
-		// Rely on the latest code (possibly formatted by a previous processor)
-		var optCode = loadCodeOptMutated(cleanthatSession.getCodeProvider(), pathToMutatedContent, filePath);
+		for (EngineRoute route : routes) {
+			// An engine processing the original content is skipped if this content is known clean
+			List<FormattedFile> routeFiles = files.stream().filter(file -> {
+				if (file.isOriginalContent() && file.getOptBlobId().isPresent()
+						&& isKnownClean(route, file.getOptBlobId().get())) {
+					route.getCounters().incrementAndGet(KEY_NB_FILES_KNOWN_CLEAN);
+					return false;
+				} else {
+					return true;
+				}
+			}).collect(Collectors.toList());
+			if (routeFiles.isEmpty()) {
+				continue;
+			}
 
-		if (optCode.isEmpty()) {
-			LOGGER.warn("Skip processing {} as its content is not available", filePath);
-			return false;
+			formatWithEngine(route, routeFiles, timings);
 		}
-		var code = optCode.get();
 
-		LOGGER.debug("Processing path={}", filePath);
-		var output = doFormat(engineAndLinters, new PathAndContent(filePath, code));
-		if (!Strings.isNullOrEmpty(output) && !code.equals(output)) {
-			LOGGER.info("Path={} successfully cleaned by {}", filePath, engineAndLinters);
-			pathToMutatedContent.put(filePath, output);
+		var anyMutated = false;
+		for (FormattedFile file : files) {
+			var filePath = file.getFileTimings().getPath();
+			if (file.isOriginalContent()) {
+				continue;
+			} else if (deadline.isReached()) {
+				// Past the deadline, the changes may be persisted concurrently: the file is left to a later clean
+				remainingPaths.add(filePath);
+				continue;
+			}
 
-			if (pathToMutatedContent.size() > MAX_LOG_MANY_FILES
-					&& Integer.bitCount(pathToMutatedContent.size()) == 1) {
-				LOGGER.warn("We are about to commit {} files. That's quite a lot.", pathToMutatedContent.size());
+			pathToMutatedContent.put(filePath, file.getCurrentCode());
+			anyMutated = true;
+			var nbMutated = pathToMutatedContent.size();
+			if (nbMutated > MAX_LOG_MANY_FILES && Integer.bitCount(nbMutated) == 1) {
+				LOGGER.warn("We are about to commit {} files. That's quite a lot.", nbMutated);
 			}
+		}
 
-			return true;
-		} else {
-			return false;
+		return anyMutated;
+	}
+
+	private void formatWithEngine(EngineRoute route, List<FormattedFile> files, FormattingTimings timings)
+			throws IOException {
+		var enginePool = route.getEnginePool();
+		// The wall-time of an engine includes the time waiting for, or instantiating, its lintFixers
+		var start = System.nanoTime();
+		var engineAndLinters = enginePool.borrow();
+
+		var engine = engineAndLinters.getEngineProperties().getEngine();
+		LOGGER.debug("Processing paths={} with {}",
+				files.stream().map(file -> file.getFileTimings().getPath()).collect(Collectors.toList()),
+				engineAndLinters);
+		List<FailureTrackingListener> listeners = files.stream()
+				.map(file -> new FailureTrackingListener(timings.lintFixerListener(engine, file.getFileTimings())))
+				.collect(Collectors.toList());
+		List<PathAndContent> outputs;
+		try {
+			// The content may go through the lintFixers, then to the writer, as bytes
+			outputs = formatterApplier.applyProcessorsToContents(engineAndLinters,
+					files.stream().map(FormattedFile::getCurrentCode).collect(Collectors.toList()),
+					listeners);
+		} finally {
+			enginePool.release(engineAndLinters);
+			// The wall-time of a batch is spread evenly over its files
+			var nanosPerFile = (System.nanoTime() - start) / files.size();
+			files.forEach(file -> timings.recordEngine(file.getFileTimings(), engine, nanosPerFile));
+		}
+
+		for (var i = 0; i < files.size(); i++) {
+			var file = files.get(i);
+			var output = outputs.get(i);
+			var currentCode = file.getCurrentCode();
+			var isOriginalContent = file.isOriginalContent();
+
+			if (output != null && output.getSizeHint() > 0 && !currentCode.hasSameContent(output)) {
+				LOGGER.info("Path={} successfully cleaned by {}", file.getFileTimings().getPath(), engineAndLinters);
+				route.getCounters().incrementAndGet(KEY_NB_FILES_FORMATTED);
+				file.setCurrentCode(output);
+			} else {
+				route.getCounters().incrementAndGet(KEY_NB_FILES_ALREADY_FORMATTED);
+
+				// A failing lintFixer leaves the content unchanged: it does not demonstrate the content is clean
+				if (isOriginalContent && file.getOptBlobId().isPresent()
+						&& !listeners.get(i).isFailed()
+						&& route.getKnownCleanKey().isPresent()) {
+					knownCleanIndex.markClean(route.getKnownCleanKey().get(), file.getOptBlobId().get());
+				}
+			}
 		}
 	}
 
@@ -418,10 +806,10 @@ public class CodeProviderFormatter implements ICodeProviderFormatter {
 	 * @param codeProvider
 	 * @param pathToMutatedContent
 	 * @param filePath
-	 * @return an {@link Optional} of the content.
+	 * @return an {@link Optional} of the content, possibly as encoded bytes.
 	 */
-	public Optional<String> loadCodeOptMutated(ICodeProvider codeProvider,
-			Map<Path, String> pathToMutatedContent,
+	public Optional<PathAndContent> loadCodeOptMutated(ICodeProvider codeProvider,
+			Map<Path, PathAndContent> pathToMutatedContent,
 			Path filePath) {
 		var optAlreadyMutated = Optional.ofNullable(pathToMutatedContent.get(filePath));
 
@@ -429,20 +817,149 @@ public class CodeProviderFormatter implements ICodeProviderFormatter {
 			return optAlreadyMutated;
 		} else {
 			try {
-				return codeProvider.loadContentForPath(filePath);
+				return codeProvider.loadEncodedContentForPath(filePath);
 			} catch (IOException e) {
 				throw new UncheckedIOException(e);
 			}
 		}
 	}
 
-	private EngineAndLinters buildProcessors(IEngineProperties properties, CleanthatSession cleanthatSession) {
-		var formattersFactory = formatterFactory.makeLanguageFormatter(properties);
+	/**
+	 * 
+	 * @param enginePool
+	 * @return true if some lintFixer of given engine processes batches of files. It instantiates the lintFixers.
+	 */
+	private static boolean isBatching(EngineLintersPool enginePool) {
+		EngineAndLinters engineAndLinters;
+		try {
+			engineAndLinters = enginePool.borrow();
+		} catch (RuntimeException e) {
+			// The issue is reported when formatting the files
+			LOGGER.debug("engine={} can not be instantiated", enginePool.getEngineProperties().getEngine(), e);
+			return false;
+		}
+
+		try {
+			return engineAndLinters.getLinters().stream().anyMatch(IBatchLintFixer.class::isInstance);
+		} finally {
+			enginePool.release(engineAndLinters);
+		}
+	}
+
+	private boolean isKnownClean(EngineRoute route, String blobId) {
+		return route.getKnownCleanKey().map(key -> knownCleanIndex.isClean(key, blobId)).orElse(false);
+	}
 
-		return sourceCodeFormatterHelper.compile(properties, cleanthatSession, formattersFactory);
+	/**
+	 * Decorates an {@link ILintFixerListener}, remembering if any lintFixer failed.
+	 *
+	 * @author Benoit Lacelle
+	 */
+	private static final class FailureTrackingListener implements ILintFixerListener {
+		final ILintFixerListener decorated;
+		boolean failed;
+
+		private FailureTrackingListener(ILintFixerListener decorated) {
+			this.decorated = decorated;
+		}
+
+		@Override
+		public void onLintFixerApplied(ILintFixer lintFixer, long nanos) {
+			decorated.onLintFixerApplied(lintFixer, nanos);
+		}
+
+		@Override
+		public void onLintFixerFailed(ILintFixer lintFixer, Exception e) {
+			failed = true;
+			decorated.onLintFixerFailed(lintFixer, e);
+		}
+
+		boolean isFailed() {
+			return failed;
+		}
 	}
 
-	private String doFormat(EngineAndLinters compiledProcessors, PathAndContent pathAndContent) throws IOException {
-		return formatterApplier.applyProcessors(compiledProcessors, pathAndContent);
+	/**
+	 * A file being loaded, before being submitted to the formatting stage.
+	 *
+	 * @author Benoit Lacelle
+	 */
+	@Value
+	private static class PendingFile {
+		Path path;
+		FileTimings fileTimings;
+		ListenableFuture<Optional<PathAndContent>> loaded;
+	}
+
+	/**
+	 * A file going through the engines: its original content, and its content given the engines applied so far.
+	 *
+	 * @author Benoit Lacelle
+	 */
+	@Data
+	private static class FormattedFile {
+		final FileTimings fileTimings;
+		final PathAndContent originalCode;
+		// Empty if there is no known clean index
+		final Optional<String> optBlobId;
+
+		PathAndContent currentCode;
+
+		FormattedFile(FileTimings fileTimings, PathAndContent originalCode, Optional<String> optBlobId) {
+			this.fileTimings = fileTimings;
+			this.originalCode = originalCode;
+			this.optBlobId = optBlobId;
+			this.currentCode = originalCode;
+		}
+
+		boolean isOriginalContent() {
+			return originalCode.hasSameContent(currentCode);
+		}
+	}
+
+	/**
+	 * The state of an engine through a single pass over the files: its pool of lintFixers, its matchers and its
+	 * counters.
+	 *
+	 * @author Benoit Lacelle
+	 */
+	@Value
+	protected static class EngineRoute {
+		EngineLintersPool enginePool;
+		PathMatcher includeMatcher;
+		PathMatcher excludeMatcher;
+		// Empty if the configuration can not be hashed
+		Optional<String> knownCleanKey;
+		// true if some lintFixer processes batches of files
+		Supplier<Boolean> batching;
+		AtomicLongMap<String> counters;
+
+		public boolean isBatching() {
+			return batching.get();
+		}
+
+		/**
+		 * 
+		 * @param filePath
+		 * @return true if the file is included and not excluded by this engine. Other cases are counted.
+		 */
+		public boolean isMatching(Path filePath) {
+			var matchingInclude = includeMatcher.matches(filePath);
+			var matchingExclude = excludeMatcher.matches(filePath);
+			if (matchingInclude) {
+				if (!matchingExclude) {
+					return true;
+				} else {
+					counters.incrementAndGet("nb_files_both_included_excluded");
+					return false;
+				}
+			} else if (matchingExclude) {
+				counters.incrementAndGet("nb_files_excluded_not_included");
+				return false;
+			} else {
+				counters.incrementAndGet("nb_files_neither_included_nor_excluded");
+				return false;
+			}
+		}
 	}
 }
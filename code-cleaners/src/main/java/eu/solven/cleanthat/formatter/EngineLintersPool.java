@@ -0,0 +1,141 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.solven.cleanthat.engine.EngineAndLinters;
+import eu.solven.cleanthat.language.IEngineProperties;
+
+/**
+ * A pool of {@link EngineAndLinters} for a given engine, shared by the threads processing files. A thread-safe
+ * {@link ILintFixer} is instantiated once and shared. Other {@link ILintFixer} are instantiated on first use, and
+ * re-used sequentially: the number of instances follows the actual concurrency, which is bounded by the number of files
+ * (e.g. a single instance for a single file). The pools of some steps may be shared through sessions (see
+ * {@link LintFixersCache}).
+ *
+ * @author Benoit Lacelle
+ */
+public class EngineLintersPool implements AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EngineLintersPool.class);
+
+	final IEngineProperties engineProperties;
+	final List<Supplier<ILintFixer>> stepFactories;
+	final List<LintFixersPool> stepPools;
+
+	// The pools specific to this instance, as opposed to the pools shared through sessions
+	final List<LintFixersPool> ownedPools;
+
+	// The repository contents loaded while instantiating the lintFixers of each step
+	final List<ReferencedContents> stepContents;
+
+	public EngineLintersPool(IEngineProperties engineProperties, List<Supplier<ILintFixer>> stepFactories) {
+		this(engineProperties,
+				stepFactories,
+				stepFactories.stream().map(stepFactory -> new LintFixersPool()).collect(Collectors.toList()));
+	}
+
+	private EngineLintersPool(IEngineProperties engineProperties,
+			List<Supplier<ILintFixer>> stepFactories,
+			List<LintFixersPool> stepPools) {
+		this(engineProperties, stepFactories, stepPools, stepPools, List.of());
+	}
+
+	EngineLintersPool(IEngineProperties engineProperties,
+			List<Supplier<ILintFixer>> stepFactories,
+			List<LintFixersPool> stepPools,
+			List<LintFixersPool> ownedPools,
+			List<ReferencedContents> stepContents) {
+		if (stepFactories.size() != stepPools.size()) {
+			throw new IllegalArgumentException(
+					"Inconsistent steps: " + stepFactories.size() + " factories vs " + stepPools.size() + " pools");
+		}
+
+		this.engineProperties = engineProperties;
+		this.stepFactories = stepFactories;
+		this.stepPools = stepPools;
+		this.ownedPools = ownedPools;
+		this.stepContents = stepContents;
+	}
+
+	public IEngineProperties getEngineProperties() {
+		return engineProperties;
+	}
+
+	/**
+	 * 
+	 * @return an {@link EngineAndLinters} to be used by current thread, until it is released.
+	 */
+	public EngineAndLinters borrow() {
+		List<ILintFixer> linters = new ArrayList<>(stepPools.size());
+
+		for (var i = 0; i < stepPools.size(); i++) {
+			linters.add(stepPools.get(i).borrow(stepFactories.get(i)));
+		}
+
+		return new EngineAndLinters(engineProperties, linters);
+	}
+
+	public void release(EngineAndLinters engineAndLinters) {
+		var linters = engineAndLinters.getLinters();
+
+		for (var i = 0; i < stepPools.size(); i++) {
+			stepPools.get(i).release(linters.get(i));
+		}
+	}
+
+	/**
+	 * 
+	 * @return for each step, the hash of the repository contents loaded while instantiating its lintFixers (e.g. a
+	 *         stylesheet). It is complete only once the lintFixers are instantiated.
+	 */
+	public List<Map<String, String>> getReferencedContents() {
+		return stepContents.stream().map(ReferencedContents::asSortedMap).collect(Collectors.toList());
+	}
+
+	/**
+	 * 
+	 * @return the number of {@link ILintFixer} instantiated so far, over all steps.
+	 */
+	public int getNbInstances() {
+		return stepPools.stream().mapToInt(LintFixersPool::getNbInstances).sum();
+	}
+
+	@Override
+	public void close() {
+		LOGGER.info("engine={} instantiated {} lintFixers for {} steps",
+				engineProperties.getEngine(),
+				getNbInstances(),
+				stepPools.size());
+
+		closePools(engineProperties, ownedPools);
+	}
+
+	static void closePools(IEngineProperties engineProperties, List<LintFixersPool> pools) {
+		List<ILintFixer> created = new ArrayList<>();
+		pools.forEach(pool -> created.addAll(pool.getCreated()));
+
+		// Closes each instance, as if it were a single engine
+		new EngineAndLinters(engineProperties, created).close();
+	}
+}
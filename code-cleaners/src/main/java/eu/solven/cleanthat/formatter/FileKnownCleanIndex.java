@@ -0,0 +1,155 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link IKnownCleanIndex} persisted in a local file, with a line per clean blob. The entries of other versions of
+ * cleanthat are dropped on the next flush.
+ * 
+ * The index is bounded: the least recently used entries are evicted beyond {@link #getMaxEntries()}. The file is
+ * written from the least to the most recently used entry, so that the recency survives a reload.
+ *
+ * @author Benoit Lacelle
+ */
+public class FileKnownCleanIndex implements IKnownCleanIndex {
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileKnownCleanIndex.class);
+
+	private static final String SEPARATOR = " ";
+
+	public static final String KEY_MAX_ENTRIES = "cleanthat.known_clean.max_entries";
+	public static final int DEFAULT_MAX_ENTRIES = 1_000_000;
+
+	final Path indexPath;
+	final String cleanthatVersion;
+	final int maxEntries;
+
+	// Entries are 'engineKey blobId', in access-order. Guarded by itself.
+	final Map<String, Boolean> cleanEntries;
+	final AtomicBoolean dirty = new AtomicBoolean();
+
+	public FileKnownCleanIndex(Path indexPath, String cleanthatVersion) throws IOException {
+		this(indexPath, cleanthatVersion, getMaxEntries());
+	}
+
+	public FileKnownCleanIndex(Path indexPath, String cleanthatVersion, int maxEntries) throws IOException {
+		if (cleanthatVersion.contains(SEPARATOR)) {
+			throw new IllegalArgumentException("Invalid version: '" + cleanthatVersion + "'");
+		} else if (maxEntries <= 0) {
+			throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+		}
+		this.indexPath = indexPath;
+		this.cleanthatVersion = cleanthatVersion;
+		this.maxEntries = maxEntries;
+		this.cleanEntries = new LinkedHashMap<>(16, 0.75F, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+				return size() > FileKnownCleanIndex.this.maxEntries;
+			}
+		};
+
+		load();
+	}
+
+	public static int getMaxEntries() {
+		return Integer.getInteger(KEY_MAX_ENTRIES, DEFAULT_MAX_ENTRIES);
+	}
+
+	private void load() throws IOException {
+		if (!Files.isRegularFile(indexPath)) {
+			LOGGER.info("No known-clean index at {}", indexPath);
+			return;
+		}
+
+		var versionPrefix = cleanthatVersion + SEPARATOR;
+		try (var lines = Files.lines(indexPath, StandardCharsets.UTF_8)) {
+			lines.filter(line -> line.startsWith(versionPrefix))
+					.map(line -> line.substring(versionPrefix.length()))
+					.forEach(entry -> cleanEntries.put(entry, Boolean.TRUE));
+		}
+		LOGGER.info("Loaded {} known-clean blobs from {}", cleanEntries.size(), indexPath);
+	}
+
+	private static String makeEntry(String engineKey, String blobId) {
+		return engineKey + SEPARATOR + blobId;
+	}
+
+	@Override
+	public boolean isClean(String engineKey, String blobId) {
+		synchronized (cleanEntries) {
+			// `get` and not `containsKey`, to refresh the recency of the entry
+			return cleanEntries.get(makeEntry(engineKey, blobId)) != null;
+		}
+	}
+
+	@Override
+	public void markClean(String engineKey, String blobId) {
+		synchronized (cleanEntries) {
+			if (cleanEntries.put(makeEntry(engineKey, blobId), Boolean.TRUE) == null) {
+				dirty.set(true);
+			}
+		}
+	}
+
+	/**
+	 * The whole index is written in a temporary file, then moved atomically, so that a concurrent reader never reads a
+	 * partial index.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (!dirty.getAndSet(false)) {
+			return;
+		}
+
+		// From the least to the most recently used, so that a reload restores the eviction order
+		List<String> lines = new ArrayList<>();
+		synchronized (cleanEntries) {
+			cleanEntries.keySet().forEach(entry -> lines.add(cleanthatVersion + SEPARATOR + entry));
+		}
+
+		var parent = indexPath.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		var tmpPath = Files.createTempFile(parent, indexPath.getFileName().toString(), ".tmp");
+		try {
+			Files.write(tmpPath, lines, StandardCharsets.UTF_8);
+
+			Files.move(tmpPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmpPath);
+		}
+		LOGGER.info("Saved {} known-clean blobs into {}", lines.size(), indexPath);
+	}
+
+	@Override
+	public String toString() {
+		return "FileKnownCleanIndex(" + indexPath + ")";
+	}
+}
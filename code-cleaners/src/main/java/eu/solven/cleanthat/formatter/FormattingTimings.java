@@ -0,0 +1,191 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Getter;
+
+/**
+ * Collects the latencies of a clean: the loading of each file, and the wall-time of each engine and each lintFixer. The
+ * slowest files are kept with their breakdown, to help tuning the includes and the steps.
+ *
+ * @author Benoit Lacelle
+ */
+public class FormattingTimings {
+	private static final Logger LOGGER = LoggerFactory.getLogger(FormattingTimings.class);
+
+	public static final int DEFAULT_NB_SLOWEST_FILES = 10;
+
+	final int nbSlowestFiles;
+
+	final LatencyHistogram loading = new LatencyHistogram();
+	final ConcurrentMap<String, LatencyHistogram> engineToLatencies = new ConcurrentHashMap<>();
+	final ConcurrentMap<String, LatencyHistogram> lintFixerToLatencies = new ConcurrentHashMap<>();
+
+	// A min-heap: the head is the fastest of the slowest files
+	final PriorityQueue<FileTimings> slowestFiles =
+			new PriorityQueue<>(Comparator.comparingLong(FileTimings::getTotalNanos));
+
+	public FormattingTimings() {
+		this(DEFAULT_NB_SLOWEST_FILES);
+	}
+
+	public FormattingTimings(int nbSlowestFiles) {
+		this.nbSlowestFiles = nbSlowestFiles;
+	}
+
+	/**
+	 * The latencies of a single file. It is not thread-safe, as a file is processed by a single thread at a time.
+	 *
+	 * @author Benoit Lacelle
+	 */
+	@Getter
+	public static class FileTimings {
+		final Path path;
+		long loadNanos;
+		final Map<String, Long> engineToNanos = new LinkedHashMap<>();
+		final Map<String, Long> lintFixerToNanos = new LinkedHashMap<>();
+
+		FileTimings(Path path) {
+			this.path = path;
+		}
+
+		public long getTotalNanos() {
+			return loadNanos + engineToNanos.values().stream().mapToLong(Long::longValue).sum();
+		}
+
+		public Map<String, Object> asMap() {
+			Map<String, Object> asMap = new LinkedHashMap<>();
+
+			asMap.put("path", path.toString());
+			asMap.put("total_ms", TimeUnit.NANOSECONDS.toMillis(getTotalNanos()));
+			asMap.put("load_ms", TimeUnit.NANOSECONDS.toMillis(loadNanos));
+			engineToNanos.forEach((key, nanos) -> asMap.put(key + "_ms", TimeUnit.NANOSECONDS.toMillis(nanos)));
+			lintFixerToNanos.forEach((key, nanos) -> asMap.put(key + "_ms", TimeUnit.NANOSECONDS.toMillis(nanos)));
+
+			return asMap;
+		}
+	}
+
+	/**
+	 * 
+	 * @param path
+	 * @return a {@link FileTimings} to be filled while processing given file, then submitted through
+	 *         {@link #recordFile(FileTimings)}
+	 */
+	public FileTimings openFile(Path path) {
+		return new FileTimings(path);
+	}
+
+	public void recordLoading(FileTimings fileTimings, long nanos) {
+		loading.record(nanos);
+		fileTimings.loadNanos = nanos;
+	}
+
+	public void recordEngine(FileTimings fileTimings, String engine, long nanos) {
+		engineToLatencies.computeIfAbsent(engine, k -> new LatencyHistogram()).record(nanos);
+		fileTimings.getEngineToNanos().merge(engine, nanos, Long::sum);
+	}
+
+	/**
+	 * 
+	 * @param engine
+	 * @param fileTimings
+	 * @return a {@link ILintFixerListener} recording the latencies of the lintFixers of given engine, over given file
+	 */
+	public ILintFixerListener lintFixerListener(String engine, FileTimings fileTimings) {
+		return (lintFixer, nanos) -> {
+			var key = makeLintFixerKey(engine, lintFixer);
+
+			lintFixerToLatencies.computeIfAbsent(key, k -> new LatencyHistogram()).record(nanos);
+			fileTimings.getLintFixerToNanos().merge(key, nanos, Long::sum);
+		};
+	}
+
+	/**
+	 * The lintFixers are identified by their class: the steps of an engine relying on the same class are merged.
+	 */
+	static String makeLintFixerKey(String engine, ILintFixer lintFixer) {
+		var lintFixerName = lintFixer.getClass().getSimpleName();
+		if (lintFixerName.isEmpty()) {
+			// Anonymous classes
+			lintFixerName = lintFixer.getClass().getName();
+		}
+		return engine + "/" + lintFixerName;
+	}
+
+	public void recordFile(FileTimings fileTimings) {
+		synchronized (slowestFiles) {
+			slowestFiles.add(fileTimings);
+			if (slowestFiles.size() > nbSlowestFiles) {
+				slowestFiles.poll();
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @return the slowest files, the slowest first
+	 */
+	public List<FileTimings> getSlowestFiles() {
+		List<FileTimings> slowest;
+		synchronized (slowestFiles) {
+			slowest = new ArrayList<>(slowestFiles);
+		}
+		slowest.sort(Comparator.comparingLong(FileTimings::getTotalNanos).reversed());
+		return slowest;
+	}
+
+	public Map<String, Object> asMap() {
+		Map<String, Object> asMap = new LinkedHashMap<>();
+
+		asMap.put("load", loading.asMap());
+		asMap.put("engines", histogramsAsMap(engineToLatencies));
+		asMap.put("lint_fixers", histogramsAsMap(lintFixerToLatencies));
+		asMap.put("slowest_files", getSlowestFiles().stream().map(FileTimings::asMap).collect(Collectors.toList()));
+
+		return asMap;
+	}
+
+	private static Map<String, Object> histogramsAsMap(Map<String, LatencyHistogram> keyToLatencies) {
+		Map<String, Object> asMap = new TreeMap<>();
+		keyToLatencies.forEach((key, latencies) -> asMap.put(key, latencies.asMap()));
+		return asMap;
+	}
+
+	public void logReport() {
+		LOGGER.info("Loading: {}", loading);
+		new TreeMap<>(engineToLatencies).forEach((engine, latencies) -> LOGGER.info("engine={} {}", engine, latencies));
+		new TreeMap<>(lintFixerToLatencies)
+				.forEach((lintFixer, latencies) -> LOGGER.info("lintFixer={} {}", lintFixer, latencies));
+		getSlowestFiles().forEach(fileTimings -> LOGGER.info("Slow file: {}", fileTimings.asMap()));
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.io.IOException;
+
+/**
+ * Remembers the git blobs known to be clean given an engine configuration, so that they can be skipped without being
+ * loaded nor formatted. Implementations should be specific to a version of cleanthat, as a new version may clean
+ * differently.
+ *
+ * @author Benoit Lacelle
+ */
+public interface IKnownCleanIndex {
+	IKnownCleanIndex NONE = new IKnownCleanIndex() {
+
+		@Override
+		public boolean isClean(String engineKey, String blobId) {
+			return false;
+		}
+
+		@Override
+		public void markClean(String engineKey, String blobId) {
+			// Nothing to remember
+		}
+	};
+
+	/**
+	 * 
+	 * @param engineKey
+	 *            a hash of the engine configuration
+	 * @param blobId
+	 *            a git blob id
+	 * @return true if given blob has been cleaned with no change by given engine configuration
+	 */
+	boolean isClean(String engineKey, String blobId);
+
+	void markClean(String engineKey, String blobId);
+
+	/**
+	 * Persists the blobs marked clean since the previous flush.
+	 */
+	default void flush() throws IOException {
+		// By default, nothing is persisted
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of latencies, with buckets growing as powers of 2 microseconds. Percentiles are approximated
+ * by the upper bound of their bucket.
+ *
+ * @author Benoit Lacelle
+ */
+public class LatencyHistogram {
+	// The last bucket holds any latency above ~ 2^62 microseconds
+	private static final int NB_BUCKETS = Long.SIZE;
+
+	final AtomicLongArray buckets = new AtomicLongArray(NB_BUCKETS);
+	final LongAdder count = new LongAdder();
+	final LongAdder totalNanos = new LongAdder();
+	final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+	public void record(long nanos) {
+		var micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+
+		buckets.incrementAndGet(getBucket(micros));
+		count.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+	}
+
+	/**
+	 * 
+	 * @param micros
+	 * @return the index of the bucket, holding the latencies in ]2^(index-1), 2^index] microseconds
+	 */
+	static int getBucket(long micros) {
+		if (micros <= 1) {
+			return 0;
+		}
+		return Long.SIZE - Long.numberOfLeadingZeros(micros - 1);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	/**
+	 * 
+	 * @param percentile
+	 *            in [0, 1]
+	 * @return an upper bound of the given percentile, in microseconds
+	 */
+	public long getPercentileMicros(double percentile) {
+		var total = getCount();
+		if (total == 0) {
+			return 0;
+		}
+
+		// The rank of the requested latency, in [1, total]
+		var rank = Math.max(1, (long) Math.ceil(percentile * total));
+
+		var cumulated = 0L;
+		for (var i = 0; i < NB_BUCKETS; i++) {
+			cumulated += buckets.get(i);
+			if (cumulated >= rank) {
+				// The upper bound of the bucket, capped by the max for the last buckets
+				return Math.min(1L << Math.min(i, Long.SIZE - 2), TimeUnit.NANOSECONDS.toMicros(maxNanos.get()));
+			}
+		}
+		return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+	}
+
+	/**
+	 * 
+	 * @return a synthesis of this histogram, with durations in milliseconds
+	 */
+	public Map<String, Object> asMap() {
+		Map<String, Object> asMap = new LinkedHashMap<>();
+
+		asMap.put("count", getCount());
+		asMap.put("total_ms", TimeUnit.NANOSECONDS.toMillis(getTotalNanos()));
+		asMap.put("p50_ms", toMillis(getPercentileMicros(0.5D)));
+		asMap.put("p90_ms", toMillis(getPercentileMicros(0.9D)));
+		asMap.put("p99_ms", toMillis(getPercentileMicros(0.99D)));
+		asMap.put("max_ms", toMillis(TimeUnit.NANOSECONDS.toMicros(maxNanos.get())));
+
+		return asMap;
+	}
+
+	private static double toMillis(long micros) {
+		return micros / 1000D;
+	}
+
+	@Override
+	public String toString() {
+		return asMap().toString();
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.hash.HashCode;
+
+import eu.solven.cleanthat.codeprovider.ICodeProvider;
+import eu.solven.cleanthat.config.pojo.CleanthatStepProperties;
+import eu.solven.cleanthat.engine.IEngineLintFixerFactory;
+import eu.solven.cleanthat.language.IEngineProperties;
+
+/**
+ * A JVM-wide cache of {@link ILintFixer}, shared through sessions (e.g. the successive events processed by a warm
+ * container, or the modules of a Maven build). An entry is keyed by a hash of the normalized engine and step
+ * properties, and it is re-used only if the repository contents loaded while building its {@link ILintFixer} (e.g. a
+ * stylesheet) are unchanged.
+ * 
+ * Only the steps declared as cacheable by {@link IEngineLintFixerFactory#isCacheable(CleanthatStepProperties)} are
+ * cached.
+ *
+ * @author Benoit Lacelle
+ */
+public final class LintFixersCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(LintFixersCache.class);
+
+	// Entries may retain heavy resources (e.g. parsed configurations, classpaths): they are evicted by size and idle
+	// time
+	private static final long MAX_ENTRIES = 64;
+	private static final Duration MAX_IDLE = Duration.ofMinutes(15);
+
+	private static final Cache<HashCode, Entry> KEY_TO_ENTRY = CacheBuilder.newBuilder()
+			.maximumSize(MAX_ENTRIES)
+			.expireAfterAccess(MAX_IDLE)
+			.removalListener((RemovalListener<HashCode, Entry>) notification -> {
+				var entry = notification.getValue();
+				LOGGER.debug("Closing cached lintFixers ({})", notification.getCause());
+				EngineLintersPool.closePools(entry.engineProperties, List.of(entry.pool));
+			})
+			.build();
+
+	/**
+	 * A pool of {@link ILintFixer}, with the repository contents loaded while building them.
+	 *
+	 * @author Benoit Lacelle
+	 */
+	static final class Entry {
+		final IEngineProperties engineProperties;
+		final LintFixersPool pool = new LintFixersPool();
+		final ReferencedContents referencedContents = new ReferencedContents();
+
+		private Entry(IEngineProperties engineProperties) {
+			this.engineProperties = engineProperties;
+		}
+
+		LintFixersPool getPool() {
+			return pool;
+		}
+
+		ReferencedContents getReferencedContents() {
+			return referencedContents;
+		}
+	}
+
+	private LintFixersCache() {
+		// hidden
+	}
+
+	/**
+	 * 
+	 * @return the key of given step, or empty if the properties can not be normalized.
+	 */
+	static Optional<HashCode> makeKey(IEngineLintFixerFactory lintFixerFactory,
+			IEngineProperties engineProperties,
+			CleanthatStepProperties stepProperties) {
+		return NormalizedHashing.hash(lintFixerFactory.getClass().getName(), engineProperties, stepProperties);
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @param engineProperties
+	 * @param codeProvider
+	 *            used to check the contents loaded by the cached {@link ILintFixer} are unchanged
+	 * @return the cached {@link Entry} if it is up-to-date, else a new {@link Entry}.
+	 */
+	static Entry getEntry(HashCode key, IEngineProperties engineProperties, ICodeProvider codeProvider) {
+		var cached = KEY_TO_ENTRY.getIfPresent(key);
+
+		if (cached != null) {
+			if (cached.referencedContents.isUpToDate(codeProvider)) {
+				LOGGER.info("engine={} re-uses {} cached lintFixers",
+						engineProperties.getEngine(),
+						cached.pool.getNbInstances());
+				return cached;
+			} else {
+				LOGGER.info("engine={} has cached lintFixers, but some referenced contents changed",
+						engineProperties.getEngine());
+			}
+		}
+
+		var entry = new Entry(engineProperties);
+		KEY_TO_ENTRY.put(key, entry);
+		return entry;
+	}
+
+	/**
+	 * Typically used by tests, or to release memory.
+	 */
+	public static void invalidateAll() {
+		KEY_TO_ENTRY.invalidateAll();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * The instances of a given step. A thread-safe {@link ILintFixer} is shared, while the others are re-used sequentially.
+ *
+ * @author Benoit Lacelle
+ */
+class LintFixersPool {
+	// Set once the first instance is known to be thread-safe
+	final AtomicReference<ILintFixer> shared = new AtomicReference<>();
+	final Queue<ILintFixer> idle = new ConcurrentLinkedQueue<>();
+	final List<ILintFixer> created = Collections.synchronizedList(new ArrayList<>());
+
+	/**
+	 * 
+	 * @param factory
+	 *            called if there is neither a shared nor an idle instance
+	 * @return an {@link ILintFixer} to be used by current thread, until it is released.
+	 */
+	ILintFixer borrow(Supplier<ILintFixer> factory) {
+		var sharedLinter = shared.get();
+		if (sharedLinter != null) {
+			return sharedLinter;
+		}
+
+		var idleLinter = idle.poll();
+		if (idleLinter != null) {
+			return idleLinter;
+		}
+
+		var linter = factory.get();
+		created.add(linter);
+		if (linter.isThreadSafe()) {
+			shared.compareAndSet(null, linter);
+		}
+		return linter;
+	}
+
+	void release(ILintFixer linter) {
+		if (!linter.isThreadSafe()) {
+			idle.add(linter);
+		}
+	}
+
+	int getNbInstances() {
+		return created.size();
+	}
+
+	List<ILintFixer> getCreated() {
+		synchronized (created) {
+			return new ArrayList<>(created);
+		}
+	}
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+
+import lombok.Value;
+
+/**
+ * Holds the mutated contents until they are persisted. It is thread-safe, and the contents are kept in heap up to a
+ * budget: beyond it, contents are compressed into a temporary file, and loaded back when they are iterated.
+ * 
+ * Contents held as encoded bytes are kept, and spilled, as bytes: they are not decoded until a writer requests it.
+ * 
+ * The region of a spilled content is released when its path is put again, and later spills are written into the
+ * released regions when they fit: the spill file grows only when no released region is large enough.
+ * 
+ * @author Benoit Lacelle
+ *
+ */
+public class MutatedContentStore implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MutatedContentStore.class);
+
+	public static final String KEY_MAX_HEAP_BYTES = "cleanthat.mutated_content.max_heap_bytes";
+	public static final long DEFAULT_MAX_HEAP_BYTES = 64L * 1024 * 1024;
+
+	final long maxHeapBytes;
+
+	// Values are either a PathAndContent, or a SpilledContent. The insertion order is kept. This map is also the lock
+	// guarding the heap accounting and the spill file
+	final Map<Path, Object> pathToContent = Collections.synchronizedMap(new LinkedHashMap<>());
+	// Written only under the lock, but readable without it
+	final AtomicLong heapBytes = new AtomicLong();
+
+	// Lazily opened on the first spill
+	volatile Path spillPath;
+	FileChannel spillChannel;
+	// The length of the written part of the spill file
+	long spillEnd;
+	// The regions of the spill file which are not referenced anymore, from their offset to their length
+	final NavigableMap<Long, Integer> freeRegions = new TreeMap<>();
+
+	public MutatedContentStore() {
+		this(Long.getLong(KEY_MAX_HEAP_BYTES, DEFAULT_MAX_HEAP_BYTES));
+	}
+
+	/**
+	 * 
+	 * @param maxHeapBytes
+	 *            the contents are kept in heap until this budget is reached. Beyond it, they are spilled to disk.
+	 */
+	public MutatedContentStore(long maxHeapBytes) {
+		this.maxHeapBytes = maxHeapBytes;
+	}
+
+	/**
+	 * A content written into the spill file
+	 * 
+	 * @author Benoit Lacelle
+	 *
+	 */
+	@Value
+	private static class SpilledContent {
+		long offset;
+		int length;
+		Charset charset;
+	}
+
+	private static long weight(PathAndContent content) {
+		if (content.hasBytes()) {
+			return content.getBytes().length;
+		} else {
+			// A char weights 2 bytes in a UTF-16 String
+			return 2L * content.getContent().length();
+		}
+	}
+
+	public void put(Path path, String content) {
+		put(path, new PathAndContent(path, content));
+	}
+
+	public void put(Path path, PathAndContent content) {
+		long weight = weight(content);
+
+		synchronized (pathToContent) {
+			var previous = pathToContent.get(path);
+
+			long heapBytesWithoutPrevious = heapBytes.get();
+			if (previous instanceof PathAndContent) {
+				heapBytesWithoutPrevious -= weight((PathAndContent) previous);
+			}
+
+			if (previous instanceof SpilledContent) {
+				// Released first, so that the new content may be spilled into the same region
+				release((SpilledContent) previous);
+			}
+
+			if (heapBytesWithoutPrevious + weight > maxHeapBytes) {
+				SpilledContent spilled;
+				try {
+					spilled = spill(content);
+				} catch (RuntimeException e) {
+					// The previous content is not available anymore
+					pathToContent.remove(path);
+					heapBytes.set(heapBytesWithoutPrevious);
+					throw e;
+				}
+				pathToContent.put(path, spilled);
+				heapBytes.set(heapBytesWithoutPrevious);
+			} else {
+				pathToContent.put(path, content);
+				heapBytes.set(heapBytesWithoutPrevious + weight);
+			}
+		}
+	}
+
+	public String get(Object path) {
+		var content = getEncoded(path);
+
+		if (content == null) {
+			return null;
+		} else {
+			return content.getContent();
+		}
+	}
+
+	/**
+	 * 
+	 * @param path
+	 * @return the content, possibly as encoded bytes, or null
+	 */
+	public PathAndContent getEncoded(Object path) {
+		Object content;
+		byte[] compressed;
+		synchronized (pathToContent) {
+			content = pathToContent.get(path);
+
+			if (content instanceof SpilledContent) {
+				// Read under the lock, as the region may be released and overwritten once this path is put again
+				compressed = readSpilled((SpilledContent) content);
+			} else {
+				compressed = null;
+			}
+		}
+
+		if (content == null) {
+			return null;
+		} else if (content instanceof SpilledContent) {
+			return inflate((Path) path, compressed, ((SpilledContent) content).getCharset());
+		} else {
+			return (PathAndContent) content;
+		}
+	}
+
+	public int size() {
+		return pathToContent.size();
+	}
+
+	public long getHeapBytes() {
+		return heapBytes.get();
+	}
+
+	// Called under the lock
+	private SpilledContent spill(PathAndContent content) {
+		var compressed = new ByteArrayOutputStream();
+		try {
+			try (var deflater = new DeflaterOutputStream(compressed)) {
+				deflater.write(content.getBytes());
+			}
+
+			if (spillChannel == null) {
+				spillPath = Files.createTempFile("cleanthat-mutated-", ".deflate");
+				// In case this store is not closed (e.g. on failure)
+				spillPath.toFile().deleteOnExit();
+				LOGGER.info("Mutated contents are beyond {} bytes: spilling into {}", maxHeapBytes, spillPath);
+				spillChannel = FileChannel.open(spillPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			}
+
+			var length = compressed.size();
+			var offset = allocate(length);
+			var buffer = ByteBuffer.wrap(compressed.toByteArray());
+			while (buffer.hasRemaining()) {
+				spillChannel.write(buffer, offset + buffer.position());
+			}
+
+			return new SpilledContent(offset, length, content.getCharset());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Issue spilling into " + spillPath, e);
+		}
+	}
+
+	/**
+	 * 
+	 * @param length
+	 * @return the offset of a region of given length, reusing the first released region large enough, else growing the
+	 *         spill file.
+	 */
+	// Called under the lock
+	private long allocate(int length) {
+		for (var free : freeRegions.entrySet()) {
+			long offset = free.getKey();
+			int freeLength = free.getValue();
+			if (freeLength >= length) {
+				freeRegions.remove(offset);
+				if (freeLength > length) {
+					freeRegions.put(offset + length, freeLength - length);
+				}
+				return offset;
+			}
+		}
+
+		var offset = spillEnd;
+		spillEnd += length;
+		return offset;
+	}
+
+	// Called under the lock
+	private void release(SpilledContent spilled) {
+		long offset = spilled.getOffset();
+		int length = spilled.getLength();
+
+		// Merge with the adjacent released regions, to keep them large enough to be reused
+		var before = freeRegions.floorEntry(offset);
+		if (before != null && before.getKey() + before.getValue() == offset) {
+			freeRegions.remove(before.getKey());
+			offset = before.getKey();
+			length += before.getValue();
+		}
+		var after = freeRegions.remove(offset + length);
+		if (after != null) {
+			length += after;
+		}
+
+		freeRegions.put(offset, length);
+	}
+
+	// Called under the lock
+	private byte[] readSpilled(SpilledContent spilled) {
+		var buffer = ByteBuffer.allocate(spilled.getLength());
+		try {
+			while (buffer.hasRemaining()) {
+				if (spillChannel.read(buffer, spilled.getOffset() + buffer.position()) < 0) {
+					throw new IllegalStateException("Unexpected end of " + spillPath);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Issue reading from " + spillPath, e);
+		}
+		return buffer.array();
+	}
+
+	private PathAndContent inflate(Path path, byte[] compressed, Charset charset) {
+		try (var inflater = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+			return PathAndContent.ofBytes(path, inflater.readAllBytes(), charset);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Issue inflating from " + spillPath, e);
+		}
+	}
+
+	/**
+	 * 
+	 * @return a {@link Map} view over this store. Spilled contents are loaded on access: iterating the entries keeps a
+	 *         single spilled content in heap at a time.
+	 */
+	public Map<Path, String> asMap() {
+		return asMap(PathAndContent::getContent, PathAndContent::new);
+	}
+
+	/**
+	 * 
+	 * @return a {@link Map} view over this store, holding the contents possibly as encoded bytes.
+	 */
+	public Map<Path, PathAndContent> asEncodedMap() {
+		return asMap(Function.identity(), (path, content) -> content);
+	}
+
+	private <V> Map<Path, V> asMap(Function<PathAndContent, V> reader, BiFunction<Path, V, PathAndContent> writer) {
+		return new AbstractMap<>() {
+			@Override
+			public V get(Object key) {
+				var content = getEncoded(key);
+				if (content == null) {
+					return null;
+				}
+				return reader.apply(content);
+			}
+
+			@Override
+			public boolean containsKey(Object key) {
+				return pathToContent.containsKey(key);
+			}
+
+			@Override
+			public V put(Path key, V value) {
+				MutatedContentStore.this.put(key, writer.apply(key, value));
+				// The previous value is not loaded back from disk
+				return null;
+			}
+
+			@Override
+			public int size() {
+				return MutatedContentStore.this.size();
+			}
+
+			@Override
+			public Set<Entry<Path, V>> entrySet() {
+				return new AbstractSet<>() {
+					@Override
+					public Iterator<Entry<Path, V>> iterator() {
+						List<Path> paths;
+						synchronized (pathToContent) {
+							paths = List.copyOf(pathToContent.keySet());
+						}
+						return Iterators.transform(paths.iterator(),
+								path -> Maps.immutableEntry(path, reader.apply(getEncoded(path))));
+					}
+
+					@Override
+					public int size() {
+						return MutatedContentStore.this.size();
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (pathToContent) {
+			if (spillChannel != null) {
+				spillChannel.close();
+				Files.deleteIfExists(spillPath);
+				spillChannel = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+/**
+ * Hashes configurations, such that the hash does not depend on the ordering of the properties.
+ *
+ * @author Benoit Lacelle
+ */
+final class NormalizedHashing {
+	private static final Logger LOGGER = LoggerFactory.getLogger(NormalizedHashing.class);
+
+	private static final ObjectMapper NORMALIZING_MAPPER = JsonMapper.builder()
+			.enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+			.enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+			.build();
+
+	private NormalizedHashing() {
+		// hidden
+	}
+
+	/**
+	 * 
+	 * @param values
+	 *            serialized as JSON
+	 * @return the sha256 of given values, or empty if some value can not be serialized.
+	 */
+	static Optional<HashCode> hash(Object... values) {
+		var hasher = Hashing.sha256().newHasher();
+
+		for (Object value : values) {
+			try {
+				hasher.putString(NORMALIZING_MAPPER.writeValueAsString(value), StandardCharsets.UTF_8);
+			} catch (JsonProcessingException e) {
+				LOGGER.warn("Issue normalizing {}", value, e);
+				return Optional.empty();
+			}
+		}
+
+		return Optional.of(hasher.hash());
+	}
+}
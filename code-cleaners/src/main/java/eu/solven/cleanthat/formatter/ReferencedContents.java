@@ -0,0 +1,130 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import eu.solven.cleanthat.code_provider.CleanthatPathHelpers;
+import eu.solven.cleanthat.codeprovider.ICodeProvider;
+import eu.solven.cleanthat.codeprovider.ICodeProviderFile;
+
+/**
+ * The repository contents loaded while building some {@link ILintFixer} (e.g. a stylesheet, a license header). The
+ * behavior of a {@link ILintFixer} depends on these contents, in addition of its properties.
+ *
+ * @author Benoit Lacelle
+ */
+final class ReferencedContents {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReferencedContents.class);
+
+	// Paths are recorded as raw Strings, as each session may rely on its own FileSystem
+	final Map<String, Optional<HashCode>> pathToContentHash = new ConcurrentHashMap<>();
+
+	/**
+	 * 
+	 * @param codeProvider
+	 * @return true if each recorded content is unchanged in given {@link ICodeProvider}
+	 */
+	boolean isUpToDate(ICodeProvider codeProvider) {
+		return pathToContentHash.entrySet().stream().allMatch(e -> {
+			try {
+				return e.getValue().equals(hashContent(codeProvider.loadContentForPath(e.getKey())));
+			} catch (IOException | RuntimeException ex) {
+				LOGGER.debug("Issue loading {}", e.getKey(), ex);
+				return false;
+			}
+		});
+	}
+
+	/**
+	 * 
+	 * @param cleanthatSession
+	 * @return a {@link CleanthatSession} recording the contents loaded from the repository into this instance
+	 */
+	CleanthatSession recordingSession(CleanthatSession cleanthatSession) {
+		var recordingCodeProvider = new RecordingCodeProvider(cleanthatSession.getCodeProvider(), this);
+
+		return new CleanthatSession(cleanthatSession.getRepositoryRoot(),
+				recordingCodeProvider,
+				cleanthatSession.getRepositoryProperties());
+	}
+
+	/**
+	 * 
+	 * @return the hash of each recorded content, sorted by path. A missing content has an empty hash.
+	 */
+	Map<String, String> asSortedMap() {
+		Map<String, String> sorted = new TreeMap<>();
+		pathToContentHash.forEach((path, optHash) -> sorted.put(path, optHash.map(HashCode::toString).orElse("")));
+		return sorted;
+	}
+
+	static Optional<HashCode> hashContent(Optional<String> optContent) {
+		return optContent.map(content -> Hashing.sha256().hashString(content, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Records the contents loaded from the repository while building an {@link ILintFixer}.
+	 *
+	 * @author Benoit Lacelle
+	 */
+	private static final class RecordingCodeProvider implements ICodeProvider {
+		final ICodeProvider decorated;
+		final ReferencedContents referencedContents;
+
+		private RecordingCodeProvider(ICodeProvider decorated, ReferencedContents referencedContents) {
+			this.decorated = decorated;
+			this.referencedContents = referencedContents;
+		}
+
+		@Override
+		public Path getRepositoryRoot() {
+			return decorated.getRepositoryRoot();
+		}
+
+		@Override
+		public void listFilesForContent(Set<String> includes, Consumer<ICodeProviderFile> consumer) throws IOException {
+			decorated.listFilesForContent(includes, consumer);
+		}
+
+		@Override
+		public Optional<String> loadContentForPath(Path path) throws IOException {
+			var optContent = decorated.loadContentForPath(path);
+			var rawPath = CleanthatPathHelpers.makeContentRawPath(getRepositoryRoot(), path);
+			referencedContents.pathToContentHash.put(rawPath, hashContent(optContent));
+			return optContent;
+		}
+
+		@Override
+		public String getRepoUri() {
+			return decorated.getRepoUri();
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * An executor processing the smallest pending tasks first. Given a deadline, it maximizes the number of completed
+ * files.
+ *
+ * @author Benoit Lacelle
+ */
+class SmallestFirstExecutor {
+	final ThreadPoolExecutor executor;
+	// Break ties in the submission order
+	final AtomicLong nextIndex = new AtomicLong();
+
+	SmallestFirstExecutor(int nbThreads, String threadPrefix) {
+		var threadFactory = new ThreadFactoryBuilder().setDaemon(true).setNameFormat(threadPrefix + "%d").build();
+
+		// The queue is unbounded, as the number of pending tasks is bounded by the caller
+		executor = new ThreadPoolExecutor(nbThreads,
+				nbThreads,
+				1,
+				TimeUnit.MINUTES,
+				new PriorityBlockingQueue<>(),
+				threadFactory);
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * A task, ordered by its size then by its submission order.
+	 *
+	 * @author Benoit Lacelle
+	 */
+	private static final class SizedTask implements Runnable, Comparable<SizedTask> {
+		final Runnable task;
+		final long size;
+		final long index;
+
+		private SizedTask(Runnable task, long size, long index) {
+			this.task = task;
+			this.size = size;
+			this.index = index;
+		}
+
+		@Override
+		public void run() {
+			task.run();
+		}
+
+		@Override
+		public int compareTo(SizedTask o) {
+			var compareSize = Long.compare(size, o.size);
+			if (compareSize != 0) {
+				return compareSize;
+			}
+			return Long.compare(index, o.index);
+		}
+	}
+
+	/**
+	 * 
+	 * @param size
+	 *            the smaller, the sooner the task is executed
+	 * @param callable
+	 * @return a {@link ListenableFuture}. Cancelling it interrupts the task if it is running.
+	 */
+	<T> ListenableFuture<T> submit(long size, Callable<T> callable) {
+		var futureTask = ListenableFutureTask.create(callable);
+		executor.execute(new SizedTask(futureTask, size, nextIndex.getAndIncrement()));
+		return futureTask;
+	}
+
+	void shutdownNow() {
+		executor.shutdownNow();
+	}
+
+	boolean shutdownAndAwaitTermination(long timeout, TimeUnit unit) {
+		return MoreExecutors.shutdownAndAwaitTermination(executor, timeout, unit);
+	}
+}
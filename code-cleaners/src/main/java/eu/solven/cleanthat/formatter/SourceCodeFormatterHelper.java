@@ -15,13 +15,18 @@
  */
 package eu.solven.cleanthat.formatter;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.hash.HashCode;
+
 import eu.solven.cleanthat.config.pojo.CleanthatStepProperties;
 import eu.solven.cleanthat.engine.EngineAndLinters;
 import eu.solven.cleanthat.engine.IEngineLintFixerFactory;
@@ -48,6 +53,59 @@ public class SourceCodeFormatterHelper {
 		return new EngineAndLinters(engineProperties, linters);
 	}
 
+	/**
+	 * 
+	 * @param engineProperties
+	 * @param cleanthatSession
+	 * @param lintFixerFactory
+	 * @return an {@link EngineLintersPool}, instantiating the lintFixers on first use. The lintFixers of cacheable
+	 *         steps are shared with other sessions, through {@link LintFixersCache}.
+	 */
+	public EngineLintersPool preparePool(IEngineProperties engineProperties,
+			CleanthatSession cleanthatSession,
+			Supplier<IEngineLintFixerFactory> lintFixerFactory) {
+		var factory = lintFixerFactory.get();
+
+		List<Supplier<ILintFixer>> stepFactories = new ArrayList<>();
+		List<LintFixersPool> stepPools = new ArrayList<>();
+		List<LintFixersPool> ownedPools = new ArrayList<>();
+		List<ReferencedContents> stepContents = new ArrayList<>();
+
+		engineProperties.getSteps().stream().filter(Predicate.not(CleanthatStepProperties::isSkip)).forEach(step -> {
+			Optional<HashCode> optKey;
+			if (factory.isCacheable(step)) {
+				optKey = LintFixersCache.makeKey(factory, engineProperties, step);
+			} else {
+				optKey = Optional.empty();
+			}
+
+			// The contents loaded by the lintFixers are recorded, as the lintFixers behavior depends on them
+			ReferencedContents referencedContents;
+			if (optKey.isPresent()) {
+				var entry =
+						LintFixersCache.getEntry(optKey.get(), engineProperties, cleanthatSession.getCodeProvider());
+
+				referencedContents = entry.getReferencedContents();
+				stepPools.add(entry.getPool());
+			} else {
+				referencedContents = new ReferencedContents();
+				var pool = new LintFixersPool();
+				stepPools.add(pool);
+				ownedPools.add(pool);
+			}
+			stepContents.add(referencedContents);
+			var stepSession = referencedContents.recordingSession(cleanthatSession);
+
+			stepFactories.add(() -> {
+				var lintFixer = factory.makeLintFixer(stepSession, engineProperties, step);
+				LOGGER.info("engine={} relies on {}", engineProperties.getEngine(), lintFixer.getClass().getName());
+				return lintFixer;
+			});
+		});
+
+		return new EngineLintersPool(engineProperties, stepFactories, stepPools, ownedPools, stepContents);
+	}
+
 	/**
 	 * 
 	 * @param engineProperties
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.TreeRangeSet;
+
+public class TestChangedLinesHelper {
+	@Test
+	public void testNoChange() {
+		Assertions
+				.assertThat(
+						ChangedLinesHelper.trackChangedLines(ImmutableRangeSet.of(Range.closed(1, 1)), "a\nb", "a\nb")
+								.asRanges())
+				.containsExactly(Range.closed(1, 1));
+	}
+
+	@Test
+	public void testChangeMiddleLine() {
+		Assertions
+				.assertThat(
+						ChangedLinesHelper.trackChangedLines(ImmutableRangeSet.of(), "a\nb\nc", "a\nB\nc").asRanges())
+				.containsExactly(Range.closed(1, 1));
+	}
+
+	@Test
+	public void testInsertLines_shiftFollowingChanges() {
+		var changedInBefore = TreeRangeSet.<Integer>create();
+		changedInBefore.add(Range.closed(0, 0));
+		changedInBefore.add(Range.closed(3, 3));
+
+		Assertions
+				.assertThat(ChangedLinesHelper.trackChangedLines(changedInBefore, "a\nb\nc\nd", "a\nb\nx\ny\nc\nd")
+						.asRanges())
+				.containsExactly(Range.closed(0, 0), Range.closed(2, 3), Range.closedOpen(5, 6));
+	}
+
+	@Test
+	public void testDeleteLines() {
+		Assertions
+				.assertThat(
+						ChangedLinesHelper.trackChangedLines(ImmutableRangeSet.of(), "a\nb\nc\nd", "a\nd").asRanges())
+				.containsExactly(Range.closed(1, 1));
+	}
+}
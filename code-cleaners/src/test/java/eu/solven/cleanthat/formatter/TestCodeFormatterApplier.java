@@ -0,0 +1,278 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.primitives.Bytes;
+
+import eu.solven.cleanthat.engine.EngineAndLinters;
+import eu.solven.cleanthat.language.IEngineProperties;
+
+public class TestCodeFormatterApplier {
+	final CodeFormatterApplier applier = new CodeFormatterApplier();
+	final PathAndContent pathAndContent = new PathAndContent(Paths.get("some/path"), "a\nb\nc");
+
+	// Upper-case given lines
+	final ILintFixerWithLineRanges upperCase = new ILintFixerWithLineRanges() {
+
+		@Override
+		public boolean isChangedLinesOnly() {
+			return true;
+		}
+
+		@Override
+		public String doFormat(String content, RangeSet<Integer> lineIndexes) {
+			var lines = content.split("\n", -1);
+			for (var i = 0; i < lines.length; i++) {
+				if (lineIndexes.contains(i)) {
+					lines[i] = lines[i].toUpperCase();
+				}
+			}
+			return String.join("\n", lines);
+		}
+
+		@Override
+		public String doFormat(String content) throws IOException {
+			return doFormat(content, ImmutableRangeSet.of(Range.atLeast(0)));
+		}
+	};
+
+	@Test
+	public void testChainLinters() throws IOException {
+		ILintFixer appendD = content -> content + "\nd";
+		ILintFixer appendE = content -> content + "\ne";
+
+		var engine = new EngineAndLinters(Mockito.mock(IEngineProperties.class), List.of(appendD, appendE));
+
+		Assertions.assertThat(applier.applyProcessors(engine, pathAndContent)).isEqualTo("a\nb\nc\nd\ne");
+	}
+
+	@Test
+	public void testChainLinters_givenPreviousOutput() throws IOException {
+		ILintFixer aToX = content -> content.replace("a", "x");
+		// Would be a no-op over the original content
+		ILintFixer xToY = content -> content.replace("x", "y");
+
+		var engine = new EngineAndLinters(Mockito.mock(IEngineProperties.class), List.of(aToX, xToY));
+
+		Assertions.assertThat(applier.applyProcessors(engine, pathAndContent)).isEqualTo("y\nb\nc");
+	}
+
+	@Test
+	public void testChainLinters_keepChangesOfPreviousLinters() throws IOException {
+		ILintFixer aToX = content -> content.replace("a", "x");
+		ILintFixer bToY = content -> content.replace("b", "y");
+		ILintFixer failing = content -> {
+			throw new IllegalArgumentException("Some issue");
+		};
+		ILintFixer identity = content -> content;
+
+		var engine =
+				new EngineAndLinters(Mockito.mock(IEngineProperties.class), List.of(aToX, failing, bToY, identity));
+
+		// Neither a failing linter, nor a linter not changing its input, discards the previous changes
+		Assertions.assertThat(applier.applyProcessors(engine, pathAndContent)).isEqualTo("x\ny\nc");
+	}
+
+	@Test
+	public void testChangedLinesOnly_noChange() throws IOException {
+		var engine = new EngineAndLinters(Mockito.mock(IEngineProperties.class), List.of(upperCase));
+
+		// No previous linter changed any line
+		Assertions.assertThat(applier.applyProcessors(engine, pathAndContent)).isEqualTo("a\nb\nc");
+	}
+
+	@Test
+	public void testChangedLinesOnly_changedByPreviousLinters() throws IOException {
+		ILintFixer replaceB = content -> content.replace("b", "bb");
+		ILintFixer prependZ = content -> "z\n" + content;
+
+		var engine =
+				new EngineAndLinters(Mockito.mock(IEngineProperties.class), List.of(replaceB, prependZ, upperCase));
+
+		// 'bb' has been changed by the first linter, and shifted by the second linter which added 'z'
+		Assertions.assertThat(applier.applyProcessors(engine, pathAndContent)).isEqualTo("Z\na\nBB\nc");
+	}
+
+	@Test
+	public void testChangedLinesOnly_changedByBytesLinter() throws IOException {
+		IBytesLintFixer appendD =
+				pac -> pac.withBytes(Bytes.concat(pac.getBytes(), new byte[] { '\n', 'd' }), pac.getCharset());
+
+		var engine = new EngineAndLinters(Mockito.mock(IEngineProperties.class), List.of(appendD, upperCase));
+
+		var output = applier.applyProcessorsToContent(engine,
+				PathAndContent.ofBytes(Paths.get("some/path"),
+						"a\nb".getBytes(StandardCharsets.UTF_8),
+						StandardCharsets.UTF_8),
+				ILintFixerListener.NOOP);
+		Assertions.assertThat(output.getContent()).isEqualTo("a\nb\nD");
+	}
+
+	@Test
+	public void testListener_eachLinter() throws IOException {
+		ILintFixer appendD = content -> content + "\nd";
+		ILintFixer failing = content -> {
+			throw new IllegalArgumentException("Some issue");
+		};
+
+		var engine = new EngineAndLinters(Mockito.mock(IEngineProperties.class), List.of(appendD, failing));
+
+		List<ILintFixer> applied = new ArrayList<>();
+		Assertions.assertThat(applier.applyProcessors(engine, pathAndContent, (lintFixer, nanos) -> {
+			Assertions.assertThat(nanos).isNotNegative();
+			applied.add(lintFixer);
+		})).isEqualTo("a\nb\nc\nd");
+
+		// A failing linter is also notified
+		Assertions.assertThat(applied).containsExactly(appendD, failing);
+	}
+
+	@Test
+	public void testBytesLinters_notDecoded() throws IOException {
+		// Malformed in UTF-8: decoding it would fail
+		byte[] malformed = { 'a', (byte) 0xE9 };
+		IBytesLintFixer appendD =
+				pac -> pac.withBytes(Bytes.concat(pac.getBytes(), new byte[] { 'd' }), pac.getCharset());
+		IBytesLintFixer identity = pac -> pac;
+
+		var engine = new EngineAndLinters(Mockito.mock(IEngineProperties.class), List.of(appendD, identity));
+
+		var output = applier.applyProcessorsToContent(engine,
+				PathAndContent.ofBytes(Paths.get("some/path"), malformed, StandardCharsets.UTF_8),
+				ILintFixerListener.NOOP);
+		Assertions.assertThat(output.hasBytes()).isTrue();
+		Assertions.assertThat(output.getBytes()).containsExactly('a', 0xE9, 'd');
+	}
+
+	@Test
+	public void testBytesLinters_thenStringLinter() throws IOException {
+		IBytesLintFixer appendD =
+				pac -> pac.withBytes(Bytes.concat(pac.getBytes(), new byte[] { 'd' }), pac.getCharset());
+		ILintFixer appendE = content -> content + "e";
+
+		var engine = new EngineAndLinters(Mockito.mock(IEngineProperties.class), List.of(appendD, appendE));
+
+		var output = applier.applyProcessorsToContent(engine,
+				PathAndContent.ofBytes(Paths.get("some/path"),
+						"été".getBytes(StandardCharsets.UTF_8),
+						StandardCharsets.UTF_8),
+				ILintFixerListener.NOOP);
+		Assertions.assertThat(output.getContent()).isEqualTo("étéde");
+	}
+
+	// Upper-cases the contents, failing over the content 'fail'
+	private static final class UpperCaseBatch implements IBatchLintFixer {
+		final AtomicInteger nbBatches = new AtomicInteger();
+		final AtomicInteger nbSingleFiles = new AtomicInteger();
+
+		@Override
+		public String doFormat(PathAndContent pathAndContent) {
+			nbSingleFiles.incrementAndGet();
+			return upperCase(pathAndContent.getContent());
+		}
+
+		@Override
+		public Stream<PathAndContent> doFormat(Stream<PathAndContent> pathAndContents) {
+			nbBatches.incrementAndGet();
+			return pathAndContents.map(pac -> pac.withContent(upperCase(pac.getContent())));
+		}
+
+		private static String upperCase(String content) {
+			if ("fail".equals(content)) {
+				throw new IllegalArgumentException("Some issue");
+			}
+			return content.toUpperCase();
+		}
+	}
+
+	@Test
+	public void testBatchLinter_manyFiles() throws IOException {
+		ILintFixer appendD = content -> content + "d";
+		var batch = new UpperCaseBatch();
+
+		var engine = new EngineAndLinters(Mockito.mock(IEngineProperties.class), List.of(appendD, batch));
+
+		Map<Path, List<ILintFixer>> pathToApplied = new ConcurrentHashMap<>();
+		var paths = List.of(Paths.get("a"), Paths.get("b"), Paths.get("c"));
+		var outputs = applier.applyProcessorsToContents(engine,
+				List.of(new PathAndContent(paths.get(0), "a"),
+						new PathAndContent(paths.get(1), "b"),
+						new PathAndContent(paths.get(2), "c")),
+				paths.stream()
+						.map(path -> (ILintFixerListener) (lintFixer,
+								nanos) -> pathToApplied.computeIfAbsent(path, k -> new ArrayList<>()).add(lintFixer))
+						.collect(Collectors.toList()));
+
+		// The batch linter received the output of the previous linter, for all files at once
+		Assertions.assertThat(outputs).extracting(PathAndContent::getContent).containsExactly("AD", "BD", "CD");
+		Assertions.assertThat(batch.nbBatches).hasValue(1);
+		Assertions.assertThat(batch.nbSingleFiles).hasValue(0);
+
+		// Each file is notified of each linter
+		Assertions.assertThat(pathToApplied)
+				.containsOnlyKeys(paths)
+				.allSatisfy((path, applied) -> Assertions.assertThat(applied).containsExactly(appendD, batch));
+	}
+
+	@Test
+	public void testBatchLinter_failure_fallbackOneByOne() throws IOException {
+		var batch = new UpperCaseBatch();
+
+		var engine = new EngineAndLinters(Mockito.mock(IEngineProperties.class), List.of(batch));
+
+		List<ILintFixer> failedOnB = new ArrayList<>();
+		ILintFixerListener listenerB = new ILintFixerListener() {
+
+			@Override
+			public void onLintFixerApplied(ILintFixer lintFixer, long nanos) {
+				// Not relevant
+			}
+
+			@Override
+			public void onLintFixerFailed(ILintFixer lintFixer, Exception e) {
+				failedOnB.add(lintFixer);
+			}
+		};
+		var outputs = applier.applyProcessorsToContents(engine,
+				List.of(new PathAndContent(Paths.get("a"), "a"), new PathAndContent(Paths.get("b"), "fail")),
+				List.of(ILintFixerListener.NOOP, listenerB));
+
+		// The failure is attributed to its file, while the other file is processed
+		Assertions.assertThat(outputs).extracting(PathAndContent::getContent).containsExactly("A", "fail");
+		Assertions.assertThat(batch.nbBatches).hasValue(1);
+		Assertions.assertThat(batch.nbSingleFiles).hasValue(2);
+		Assertions.assertThat(failedOnB).containsExactly(batch);
+	}
+}
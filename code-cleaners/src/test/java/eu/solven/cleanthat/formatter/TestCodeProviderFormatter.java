@@ -0,0 +1,365 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import eu.solven.cleanthat.codeprovider.DummyCodeProviderFile;
+import eu.solven.cleanthat.codeprovider.GitBlobIds;
+import eu.solven.cleanthat.codeprovider.ICodeProviderFile;
+import eu.solven.cleanthat.codeprovider.ICodeProviderWriter;
+import eu.solven.cleanthat.codeprovider.ICodeWritingMetadata;
+import eu.solven.cleanthat.config.ConfigHelpers;
+import eu.solven.cleanthat.config.IncludeExcludeHelpers;
+import eu.solven.cleanthat.config.pojo.CleanthatEngineProperties;
+import eu.solven.cleanthat.config.pojo.CleanthatRepositoryProperties;
+import eu.solven.cleanthat.config.pojo.CleanthatStepProperties;
+import eu.solven.cleanthat.config.pojo.SourceCodeProperties;
+import eu.solven.cleanthat.engine.IEngineFormatterFactory;
+import eu.solven.cleanthat.engine.IEngineLintFixerFactory;
+import eu.solven.cleanthat.language.IEngineProperties;
+
+public class TestCodeProviderFormatter {
+	final IEngineFormatterFactory formatterFactory = Mockito.mock(IEngineFormatterFactory.class);
+	// The default methods (e.g. to load and to persist encoded contents) delegate to the stubbed methods
+	final ICodeProviderWriter codeWriter = Mockito.mock(ICodeProviderWriter.class, Mockito.CALLS_REAL_METHODS);
+
+	final CodeProviderFormatter formatter =
+			new CodeProviderFormatter(ConfigHelpers.forTests(), formatterFactory, new CodeFormatterApplier());
+
+	// Each engine appends its name to the content
+	private CleanthatEngineProperties makeEngine(String engine) {
+		IEngineLintFixerFactory lintFixerFactory = Mockito.mock(IEngineLintFixerFactory.class);
+		Mockito.when(lintFixerFactory.makeLintFixer(Mockito.any(), Mockito.any(), Mockito.any()))
+				.thenReturn(content -> content + engine);
+		Mockito.when(formatterFactory
+				.makeLanguageFormatter(Mockito.argThat((IEngineProperties engineProperties) -> engineProperties != null
+						&& engine.equals(engineProperties.getEngine()))))
+				.thenReturn(lintFixerFactory);
+
+		return CleanthatEngineProperties.builder()
+				.engine(engine)
+				.sourceCode(
+						SourceCodeProperties.builder().includes(IncludeExcludeHelpers.DEFAULT_INCLUDES_JAVA).build())
+				.step(CleanthatStepProperties.builder().id(engine).build())
+				.build();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSinglePass_manyEngines() throws IOException {
+		var repoProperties =
+				CleanthatRepositoryProperties.builder().engines(List.of(makeEngine("a"), makeEngine("b"))).build();
+
+		Path javaPath = Paths.get("src/SomeClass.java");
+		Path jsonPath = Paths.get("src/some.json");
+		Mockito.when(codeWriter.getRepositoryRoot()).thenReturn(Paths.get("/"));
+		Mockito.doAnswer(invocation -> {
+			Consumer<ICodeProviderFile> consumer = invocation.getArgument(2);
+			consumer.accept(new DummyCodeProviderFile(javaPath, null));
+			consumer.accept(new DummyCodeProviderFile(jsonPath, null));
+			return null;
+		}).when(codeWriter).listFilesForContent(Mockito.anySet(), Mockito.anySet(), Mockito.any(Consumer.class));
+		Mockito.when(codeWriter.loadContentForPath(javaPath)).thenReturn(Optional.of("content_"));
+		Mockito.when(codeWriter.persistChanges(Mockito.anyMap(), Mockito.any())).thenReturn(true);
+
+		var result = formatter.formatCode(repoProperties, codeWriter, false);
+
+		// The tree is listed once, and the file is loaded once for all engines
+		Mockito.verify(codeWriter, Mockito.times(1))
+				.listFilesForContent(Mockito.anySet(), Mockito.anySet(), Mockito.any(Consumer.class));
+		Mockito.verify(codeWriter, Mockito.times(1)).loadContentForPath(Mockito.any(Path.class));
+
+		// The engines are applied in order, and their writes are persisted together
+		ArgumentCaptor<Map<Path, String>> persisted = ArgumentCaptor.forClass(Map.class);
+		Mockito.verify(codeWriter).persistChanges(persisted.capture(), Mockito.any(ICodeWritingMetadata.class));
+		Assertions.assertThat(persisted.getValue()).isEqualTo(Map.of(javaPath, "content_ab"));
+
+		Assertions.assertThat(result.isEmpty()).isFalse();
+		// Counters are summed over engines
+		Map<String, Object> details = new LinkedHashMap<>(result.getDetails());
+		Assertions.assertThat(details)
+				.containsEntry("nb_files_formatted", 2L)
+				.containsEntry("nb_files_neither_included_nor_excluded", 2L);
+
+		// The latencies are reported by engine, and the slow files with their breakdown
+		Assertions.assertThat(details).hasEntrySatisfying("timings", timings -> {
+			Assertions.assertThat((Map<String, ?>) timings).containsKeys("load", "engines", "lint_fixers");
+			Assertions.assertThat((Map<String, Map<String, Object>>) ((Map<String, ?>) timings).get("engines"))
+					.containsOnlyKeys("a", "b")
+					.allSatisfy((engine, latencies) -> Assertions.assertThat(latencies).containsEntry("count", 1L));
+			Assertions.assertThat((List<Map<String, Object>>) ((Map<String, ?>) timings).get("slowest_files"))
+					.singleElement()
+					.satisfies(slowFile -> Assertions.assertThat(slowFile)
+							.containsEntry("path", javaPath.toString())
+							.containsKeys("load_ms", "a_ms", "b_ms"));
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testPipeline_manyFiles() throws IOException {
+		var repoProperties = CleanthatRepositoryProperties.builder().engines(List.of(makeEngine("a"))).build();
+
+		var nbFiles = 1000;
+		Set<String> loadingThreads = ConcurrentHashMap.newKeySet();
+		Mockito.when(codeWriter.getRepositoryRoot()).thenReturn(Paths.get("/"));
+		Mockito.doAnswer(invocation -> {
+			Consumer<ICodeProviderFile> consumer = invocation.getArgument(2);
+			IntStream.range(0, nbFiles)
+					.forEach(
+							i -> consumer.accept(new DummyCodeProviderFile(Paths.get("src/Some" + i + ".java"), null)));
+			return null;
+		}).when(codeWriter).listFilesForContent(Mockito.anySet(), Mockito.anySet(), Mockito.any(Consumer.class));
+		Mockito.when(codeWriter.loadContentForPath(Mockito.any(Path.class))).thenAnswer(invocation -> {
+			loadingThreads.add(Thread.currentThread().getName());
+			return Optional.of(invocation.getArgument(0).toString());
+		});
+		Mockito.when(codeWriter.persistChanges(Mockito.anyMap(), Mockito.any())).thenReturn(true);
+
+		formatter.formatCode(repoProperties, codeWriter, false);
+
+		// Contents are loaded by the IO stage
+		Assertions.assertThat(loadingThreads).allMatch(name -> name.startsWith("Cleanthat-CodeLoader-"));
+
+		ArgumentCaptor<Map<Path, String>> persisted = ArgumentCaptor.forClass(Map.class);
+		Mockito.verify(codeWriter).persistChanges(persisted.capture(), Mockito.any(ICodeWritingMetadata.class));
+		Assertions.assertThat(persisted.getValue())
+				.hasSize(nbFiles)
+				.containsEntry(Paths.get("src/Some7.java"), "src/Some7.javaa");
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testPipeline_batchLintFixer() throws IOException {
+		// Records the size of each batch
+		List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+		IBatchLintFixer batchLintFixer = new IBatchLintFixer() {
+
+			@Override
+			public String doFormat(PathAndContent pathAndContent) {
+				batchSizes.add(1);
+				return pathAndContent.getContent() + "a";
+			}
+
+			@Override
+			public Stream<PathAndContent> doFormat(Stream<PathAndContent> pathAndContents) {
+				List<PathAndContent> batch = pathAndContents.collect(Collectors.toList());
+				batchSizes.add(batch.size());
+				return batch.stream().map(pac -> pac.withContent(pac.getContent() + "a"));
+			}
+		};
+		IEngineLintFixerFactory lintFixerFactory = Mockito.mock(IEngineLintFixerFactory.class);
+		Mockito.when(lintFixerFactory.makeLintFixer(Mockito.any(), Mockito.any(), Mockito.any()))
+				.thenReturn(batchLintFixer);
+		Mockito.when(formatterFactory.makeLanguageFormatter(Mockito.any())).thenReturn(lintFixerFactory);
+		var repoProperties = CleanthatRepositoryProperties.builder()
+				.engines(List.of(CleanthatEngineProperties.builder()
+						.engine("batch")
+						.sourceCode(SourceCodeProperties.builder()
+								.includes(IncludeExcludeHelpers.DEFAULT_INCLUDES_JAVA)
+								.build())
+						.step(CleanthatStepProperties.builder().id("batch").build())
+						.build()))
+				.build();
+
+		var nbFiles = 20;
+		Mockito.when(codeWriter.getRepositoryRoot()).thenReturn(Paths.get("/"));
+		Mockito.doAnswer(invocation -> {
+			Consumer<ICodeProviderFile> consumer = invocation.getArgument(2);
+			IntStream.range(0, nbFiles)
+					.forEach(
+							i -> consumer.accept(new DummyCodeProviderFile(Paths.get("src/Some" + i + ".java"), null)));
+			return null;
+		}).when(codeWriter).listFilesForContent(Mockito.anySet(), Mockito.anySet(), Mockito.any(Consumer.class));
+		Mockito.when(codeWriter.loadContentForPath(Mockito.any(Path.class)))
+				.thenAnswer(invocation -> Optional.of(invocation.getArgument(0).toString()));
+		Mockito.when(codeWriter.persistChanges(Mockito.anyMap(), Mockito.any())).thenReturn(true);
+
+		var result = formatter.formatCode(repoProperties, codeWriter, false);
+
+		// The files are given by batches to the lintFixer
+		Assertions.assertThat(batchSizes).anyMatch(batchSize -> batchSize > 1);
+		Assertions.assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(nbFiles);
+
+		ArgumentCaptor<Map<Path, String>> persisted = ArgumentCaptor.forClass(Map.class);
+		Mockito.verify(codeWriter).persistChanges(persisted.capture(), Mockito.any(ICodeWritingMetadata.class));
+		Assertions.assertThat(persisted.getValue())
+				.hasSize(nbFiles)
+				.containsEntry(Paths.get("src/Some7.java"), "src/Some7.javaa");
+		// Counters are per file
+		Assertions.assertThat((Map<String, Object>) result.getDetails()).containsEntry("nb_files_formatted", 20L);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testDeadline_persistCompletedFiles() throws IOException {
+		var formatterWithBudget = new CodeProviderFormatter(ConfigHelpers.forTests(),
+				formatterFactory,
+				new CodeFormatterApplier(),
+				Optional.of(Duration.ofMillis(500)),
+				IKnownCleanIndex.NONE);
+		var repoProperties = CleanthatRepositoryProperties.builder().engines(List.of(makeEngine("a"))).build();
+
+		Path fastPath = Paths.get("src/Fast.java");
+		Path slowPath = Paths.get("src/Slow.java");
+		Mockito.when(codeWriter.getRepositoryRoot()).thenReturn(Paths.get("/"));
+		Mockito.doAnswer(invocation -> {
+			Consumer<ICodeProviderFile> consumer = invocation.getArgument(2);
+			consumer.accept(new DummyCodeProviderFile(slowPath, null));
+			consumer.accept(new DummyCodeProviderFile(fastPath, null));
+			return null;
+		}).when(codeWriter).listFilesForContent(Mockito.anySet(), Mockito.anySet(), Mockito.any(Consumer.class));
+		Mockito.when(codeWriter.loadContentForPath(fastPath)).thenReturn(Optional.of("fast_"));
+		Mockito.when(codeWriter.loadContentForPath(slowPath)).thenAnswer(invocation -> {
+			// Interrupted on the deadline
+			TimeUnit.MINUTES.sleep(1);
+			return Optional.of("slow_");
+		});
+		Mockito.when(codeWriter.persistChanges(Mockito.anyMap(), Mockito.any())).thenReturn(true);
+
+		var result = formatterWithBudget.formatCode(repoProperties, codeWriter, false);
+
+		// The completed file is persisted
+		ArgumentCaptor<Map<Path, String>> persisted = ArgumentCaptor.forClass(Map.class);
+		Mockito.verify(codeWriter).persistChanges(persisted.capture(), Mockito.any(ICodeWritingMetadata.class));
+		Assertions.assertThat(persisted.getValue()).isEqualTo(Map.of(fastPath, "fast_a"));
+
+		// The in-flight file is reported as remaining
+		Assertions.assertThat((Map<String, Object>) result.getDetails())
+				.containsEntry("nb_files_remaining", 1L)
+				.containsEntry("remaining_paths", List.of(slowPath.toString()));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testKnownClean_skipLoading() throws IOException {
+		var knownCleanIndex = new FileKnownCleanIndex(
+				Files.createTempDirectory("cleanthat-TestCodeProviderFormatter").resolve("known_clean.txt"),
+				"someVersion");
+		var formatterWithIndex = new CodeProviderFormatter(ConfigHelpers
+				.forTests(), formatterFactory, new CodeFormatterApplier(), Optional.empty(), knownCleanIndex);
+
+		// This engine leaves the content unchanged
+		IEngineLintFixerFactory lintFixerFactory = Mockito.mock(IEngineLintFixerFactory.class);
+		Mockito.when(lintFixerFactory.makeLintFixer(Mockito.any(), Mockito.any(), Mockito.any()))
+				.thenReturn(content -> content);
+		Mockito.when(formatterFactory.makeLanguageFormatter(Mockito.any())).thenReturn(lintFixerFactory);
+		var repoProperties = CleanthatRepositoryProperties.builder()
+				.engines(List.of(CleanthatEngineProperties.builder()
+						.engine("identity")
+						.sourceCode(SourceCodeProperties.builder()
+								.includes(IncludeExcludeHelpers.DEFAULT_INCLUDES_JAVA)
+								.build())
+						.step(CleanthatStepProperties.builder().id("identity").build())
+						.build()))
+				.build();
+
+		Path cleanPath = Paths.get("src/Clean.java");
+		var cleanContent = "clean_";
+		Mockito.when(codeWriter.getRepositoryRoot()).thenReturn(Paths.get("/"));
+		Mockito.doAnswer(invocation -> {
+			Consumer<ICodeProviderFile> consumer = invocation.getArgument(2);
+			consumer.accept(
+					new DummyCodeProviderFile(cleanPath, null, Optional.of(GitBlobIds.ofContent(cleanContent))));
+			return null;
+		}).when(codeWriter).listFilesForContent(Mockito.anySet(), Mockito.anySet(), Mockito.any(Consumer.class));
+		Mockito.when(codeWriter.loadContentForPath(cleanPath)).thenReturn(Optional.of(cleanContent));
+
+		// The first pass loads the file, and records it as clean
+		formatterWithIndex.formatCode(repoProperties, codeWriter, false);
+		Mockito.verify(codeWriter).loadContentForPath(cleanPath);
+		Assertions.assertThat(knownCleanIndex.indexPath).isRegularFile();
+
+		// The second pass skips the file without loading it
+		Mockito.clearInvocations(codeWriter);
+		var result = formatterWithIndex.formatCode(repoProperties, codeWriter, false);
+		Mockito.verify(codeWriter, Mockito.never()).loadContentForPath(Mockito.any(Path.class));
+		Assertions.assertThat((Map<String, Object>) result.getDetails()).containsEntry("nb_files_known_clean", 1L);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testKnownClean_referencedContentChanged() throws IOException {
+		var knownCleanIndex = new FileKnownCleanIndex(
+				Files.createTempDirectory("cleanthat-TestCodeProviderFormatter").resolve("known_clean.txt"),
+				"someVersion");
+		var formatterWithIndex = new CodeProviderFormatter(ConfigHelpers
+				.forTests(), formatterFactory, new CodeFormatterApplier(), Optional.empty(), knownCleanIndex);
+
+		// This engine leaves the content unchanged, but depends on a stylesheet
+		IEngineLintFixerFactory lintFixerFactory = Mockito.mock(IEngineLintFixerFactory.class);
+		Mockito.when(lintFixerFactory.makeLintFixer(Mockito.any(), Mockito.any(), Mockito.any())).thenAnswer(inv -> {
+			((CleanthatSession) inv.getArgument(0)).getCodeProvider().loadContentForPath("stylesheet.xml");
+			return (ILintFixer) content -> content;
+		});
+		Mockito.when(formatterFactory.makeLanguageFormatter(Mockito.any())).thenReturn(lintFixerFactory);
+		var repoProperties = CleanthatRepositoryProperties.builder()
+				.engines(List.of(CleanthatEngineProperties.builder()
+						.engine("identity")
+						.sourceCode(SourceCodeProperties.builder()
+								.includes(IncludeExcludeHelpers.DEFAULT_INCLUDES_JAVA)
+								.build())
+						.step(CleanthatStepProperties.builder().id("identity").build())
+						.build()))
+				.build();
+
+		Path cleanPath = Paths.get("src/Clean.java");
+		var cleanContent = "clean_";
+		Mockito.when(codeWriter.getRepositoryRoot()).thenReturn(Paths.get("/"));
+		Mockito.doAnswer(invocation -> {
+			Consumer<ICodeProviderFile> consumer = invocation.getArgument(2);
+			consumer.accept(
+					new DummyCodeProviderFile(cleanPath, null, Optional.of(GitBlobIds.ofContent(cleanContent))));
+			return null;
+		}).when(codeWriter).listFilesForContent(Mockito.anySet(), Mockito.anySet(), Mockito.any(Consumer.class));
+		Mockito.when(codeWriter.loadContentForPath(cleanPath)).thenReturn(Optional.of(cleanContent));
+		Path stylesheetPath = Paths.get("stylesheet.xml");
+		Mockito.when(codeWriter.loadContentForPath(stylesheetPath)).thenReturn(Optional.of("style_v1"));
+
+		// The first pass records the file as clean given the stylesheet_v1
+		formatterWithIndex.formatCode(repoProperties, codeWriter, false);
+		Mockito.verify(codeWriter).loadContentForPath(cleanPath);
+
+		// The stylesheet changed: the file is cleaned again
+		Mockito.when(codeWriter.loadContentForPath(stylesheetPath)).thenReturn(Optional.of("style_v2"));
+		Mockito.clearInvocations(codeWriter);
+		var result = formatterWithIndex.formatCode(repoProperties, codeWriter, false);
+		Mockito.verify(codeWriter).loadContentForPath(cleanPath);
+		Assertions.assertThat((Map<String, Object>) result.getDetails()).doesNotContainKey("nb_files_known_clean");
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import eu.solven.cleanthat.language.IEngineProperties;
+
+public class TestEngineLintersPool {
+	final IEngineProperties engineProperties = Mockito.mock(IEngineProperties.class);
+
+	final AtomicInteger nbThreadSafe = new AtomicInteger();
+	final AtomicInteger nbNotThreadSafe = new AtomicInteger();
+
+	final Supplier<ILintFixer> threadSafe = () -> {
+		nbThreadSafe.incrementAndGet();
+		return new ILintFixer() {
+
+			@Override
+			public String doFormat(String content) {
+				return content;
+			}
+
+			@Override
+			public boolean isThreadSafe() {
+				return true;
+			}
+		};
+	};
+
+	final Supplier<ILintFixer> notThreadSafe = () -> {
+		nbNotThreadSafe.incrementAndGet();
+		// Not a lambda, as a non-capturing lambda would be a singleton
+		return new ILintFixer() {
+
+			@Override
+			public String doFormat(String content) {
+				return content;
+			}
+		};
+	};
+
+	@Test
+	public void testLazy() {
+		try (var pool = new EngineLintersPool(engineProperties, List.of(threadSafe, notThreadSafe))) {
+			Assertions.assertThat(pool.getNbInstances()).isEqualTo(0);
+			Assertions.assertThat(nbThreadSafe).hasValue(0);
+			Assertions.assertThat(nbNotThreadSafe).hasValue(0);
+		}
+	}
+
+	@Test
+	public void testSequentialUsage() {
+		try (var pool = new EngineLintersPool(engineProperties, List.of(threadSafe, notThreadSafe))) {
+			for (var i = 0; i < 10; i++) {
+				var engineAndLinters = pool.borrow();
+				Assertions.assertThat(engineAndLinters.getLinters()).hasSize(2);
+				pool.release(engineAndLinters);
+			}
+
+			// A single instance per step
+			Assertions.assertThat(pool.getNbInstances()).isEqualTo(2);
+		}
+	}
+
+	@Test
+	public void testConcurrentUsage() {
+		try (var pool = new EngineLintersPool(engineProperties, List.of(threadSafe, notThreadSafe))) {
+			var first = pool.borrow();
+			var second = pool.borrow();
+
+			// The thread-safe lintFixer is shared, while the other is instantiated for each concurrent usage
+			Assertions.assertThat(second.getLinters().get(0)).isSameAs(first.getLinters().get(0));
+			Assertions.assertThat(second.getLinters().get(1)).isNotSameAs(first.getLinters().get(1));
+			Assertions.assertThat(nbThreadSafe).hasValue(1);
+			Assertions.assertThat(nbNotThreadSafe).hasValue(2);
+
+			pool.release(first);
+			pool.release(second);
+
+			// Released instances are re-used
+			pool.borrow();
+			Assertions.assertThat(nbNotThreadSafe).hasValue(2);
+		}
+	}
+}
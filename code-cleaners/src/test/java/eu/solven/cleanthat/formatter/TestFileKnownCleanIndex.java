@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class TestFileKnownCleanIndex {
+	@Test
+	public void testMarkFlushReload() throws IOException {
+		Path indexPath = Files.createTempDirectory("cleanthat-TestFileKnownCleanIndex").resolve("known_clean.txt");
+
+		var index = new FileKnownCleanIndex(indexPath, "v1");
+		Assertions.assertThat(index.isClean("engineA", "blob1")).isFalse();
+
+		index.markClean("engineA", "blob1");
+		Assertions.assertThat(index.isClean("engineA", "blob1")).isTrue();
+		Assertions.assertThat(index.isClean("engineB", "blob1")).isFalse();
+
+		index.flush();
+		Assertions.assertThat(Files.readAllLines(indexPath)).containsExactly("v1 engineA blob1");
+
+		// Same version: the entries are reloaded
+		Assertions.assertThat(new FileKnownCleanIndex(indexPath, "v1").isClean("engineA", "blob1")).isTrue();
+
+		// Another version: the entries are dropped, as the engines may behave differently
+		var otherVersion = new FileKnownCleanIndex(indexPath, "v2");
+		Assertions.assertThat(otherVersion.isClean("engineA", "blob1")).isFalse();
+		otherVersion.markClean("engineA", "blob2");
+		otherVersion.flush();
+		Assertions.assertThat(Files.readAllLines(indexPath)).containsExactly("v2 engineA blob2");
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsed() throws IOException {
+		Path indexPath = Files.createTempDirectory("cleanthat-TestFileKnownCleanIndex").resolve("known_clean.txt");
+
+		var index = new FileKnownCleanIndex(indexPath, "v1", 2);
+		index.markClean("engineA", "blob1");
+		index.markClean("engineA", "blob2");
+		// Refresh blob1: blob2 is now the least recently used
+		Assertions.assertThat(index.isClean("engineA", "blob1")).isTrue();
+		index.markClean("engineA", "blob3");
+
+		Assertions.assertThat(index.isClean("engineA", "blob2")).isFalse();
+		Assertions.assertThat(index.isClean("engineA", "blob1")).isTrue();
+		Assertions.assertThat(index.isClean("engineA", "blob3")).isTrue();
+
+		index.flush();
+		Assertions.assertThat(Files.readAllLines(indexPath)).containsExactly("v1 engineA blob1", "v1 engineA blob3");
+
+		// The recency is restored on reload: blob1 is evicted first
+		var reloaded = new FileKnownCleanIndex(indexPath, "v1", 2);
+		reloaded.markClean("engineA", "blob4");
+		Assertions.assertThat(reloaded.isClean("engineA", "blob1")).isFalse();
+		Assertions.assertThat(reloaded.isClean("engineA", "blob3")).isTrue();
+	}
+
+	@Test
+	public void testFlush_notDirty() throws IOException {
+		Path indexPath = Files.createTempDirectory("cleanthat-TestFileKnownCleanIndex").resolve("known_clean.txt");
+
+		new FileKnownCleanIndex(indexPath, "v1").flush();
+
+		Assertions.assertThat(indexPath).doesNotExist();
+	}
+}
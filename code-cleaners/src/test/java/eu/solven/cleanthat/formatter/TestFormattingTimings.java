@@ -0,0 +1,94 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class TestFormattingTimings {
+	@Test
+	public void testHistogram_buckets() {
+		Assertions.assertThat(LatencyHistogram.getBucket(0)).isEqualTo(0);
+		Assertions.assertThat(LatencyHistogram.getBucket(1)).isEqualTo(0);
+		Assertions.assertThat(LatencyHistogram.getBucket(2)).isEqualTo(1);
+		Assertions.assertThat(LatencyHistogram.getBucket(3)).isEqualTo(2);
+		Assertions.assertThat(LatencyHistogram.getBucket(4)).isEqualTo(2);
+		Assertions.assertThat(LatencyHistogram.getBucket(5)).isEqualTo(3);
+		Assertions.assertThat(LatencyHistogram.getBucket(Long.MAX_VALUE)).isEqualTo(63);
+	}
+
+	@Test
+	public void testHistogram_percentiles() {
+		var histogram = new LatencyHistogram();
+
+		Assertions.assertThat(histogram.getPercentileMicros(0.5D)).isEqualTo(0);
+
+		for (var i = 0; i < 99; i++) {
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+		}
+		histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+
+		Assertions.assertThat(histogram.getCount()).isEqualTo(100);
+		// 100us is in the bucket ]64us, 128us]
+		Assertions.assertThat(histogram.getPercentileMicros(0.5D)).isEqualTo(128);
+		Assertions.assertThat(histogram.getPercentileMicros(0.99D)).isEqualTo(128);
+		// The upper bound is capped by the max
+		Assertions.assertThat(histogram.getPercentileMicros(1D)).isEqualTo(10_000);
+
+		Assertions.assertThat(histogram.asMap())
+				.containsEntry("count", 100L)
+				.containsEntry("p50_ms", 0.128D)
+				.containsEntry("max_ms", 10D);
+	}
+
+	@Test
+	public void testSlowestFiles() {
+		var timings = new FormattingTimings(2);
+
+		for (var i = 0; i < 5; i++) {
+			var fileTimings = timings.openFile(Paths.get("file" + i));
+			timings.recordLoading(fileTimings, i);
+			timings.recordEngine(fileTimings, "someEngine", 10 * i);
+			timings.lintFixerListener("someEngine", fileTimings).onLintFixerApplied(content -> content, 5 * i);
+			timings.recordFile(fileTimings);
+		}
+
+		Assertions.assertThat(timings.getSlowestFiles())
+				.extracting(fileTimings -> fileTimings.getPath().toString())
+				.containsExactly("file4", "file3");
+		// The lintFixers are included in the engine wall-time
+		Assertions.assertThat(timings.getSlowestFiles().get(0).getTotalNanos()).isEqualTo(4 + 40);
+
+		Assertions.assertThat(timings.asMap()).containsKeys("load", "engines", "lint_fixers", "slowest_files");
+	}
+
+	@Test
+	public void testLintFixerKey() {
+		ILintFixer anonymous = new ILintFixer() {
+
+			@Override
+			public String doFormat(String content) {
+				return content;
+			}
+		};
+
+		Assertions.assertThat(FormattingTimings.makeLintFixerKey("someEngine", anonymous))
+				.isEqualTo("someEngine/" + anonymous.getClass().getName());
+	}
+}
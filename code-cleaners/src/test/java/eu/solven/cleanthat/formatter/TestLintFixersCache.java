@@ -0,0 +1,107 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import eu.solven.cleanthat.code_provider.inmemory.FileSystemCodeProvider;
+import eu.solven.cleanthat.codeprovider.CodeWritingMetadata;
+import eu.solven.cleanthat.config.pojo.CleanthatEngineProperties;
+import eu.solven.cleanthat.config.pojo.CleanthatStepProperties;
+import eu.solven.cleanthat.engine.IEngineLintFixerFactory;
+
+public class TestLintFixersCache {
+	final SourceCodeFormatterHelper helper = new SourceCodeFormatterHelper();
+	final IEngineLintFixerFactory lintFixerFactory = Mockito.mock(IEngineLintFixerFactory.class);
+
+	final CleanthatEngineProperties engineProperties = CleanthatEngineProperties.builder()
+			.engine("someEngine")
+			.step(CleanthatStepProperties.builder().id("someStep").build())
+			.build();
+
+	@After
+	public void invalidateCache() {
+		LintFixersCache.invalidateAll();
+	}
+
+	private CleanthatSession makeSession(String configContent) throws IOException {
+		var codeProvider = FileSystemCodeProvider.forTests();
+		var configPath = codeProvider.getRepositoryRoot().getFileSystem().getPath("config.txt");
+		codeProvider.persistChanges(Map.of(configPath, configContent), CodeWritingMetadata.empty());
+
+		return new CleanthatSession(codeProvider.getRepositoryRoot(), codeProvider, null);
+	}
+
+	private String format(CleanthatSession session) throws IOException {
+		try (var pool = helper.preparePool(engineProperties, session, () -> lintFixerFactory)) {
+			var engineAndLinters = pool.borrow();
+			try {
+				return engineAndLinters.getLinters().get(0).doFormat("content_");
+			} finally {
+				pool.release(engineAndLinters);
+			}
+		}
+	}
+
+	@Test
+	public void testReuseThroughSessions() throws IOException {
+		Mockito.when(lintFixerFactory.isCacheable(Mockito.any())).thenReturn(true);
+		// The lintFixer appends the content of a configuration file
+		Mockito.when(lintFixerFactory.makeLintFixer(Mockito.any(), Mockito.any(), Mockito.any()))
+				.thenAnswer(invocation -> {
+					CleanthatSession session = invocation.getArgument(0);
+					var config = session.getCodeProvider().loadContentForPath("config.txt").get();
+					return new ILintFixer() {
+
+						@Override
+						public String doFormat(String content) {
+							return content + config;
+						}
+
+						@Override
+						public boolean isThreadSafe() {
+							return true;
+						}
+					};
+				});
+
+		Assertions.assertThat(format(makeSession("a"))).isEqualTo("content_a");
+		Assertions.assertThat(format(makeSession("a"))).isEqualTo("content_a");
+		// The second session re-used the lintFixer of the first session
+		Mockito.verify(lintFixerFactory, Mockito.times(1)).makeLintFixer(Mockito.any(), Mockito.any(), Mockito.any());
+
+		// The referenced content changed: the lintFixer is built again
+		Assertions.assertThat(format(makeSession("b"))).isEqualTo("content_b");
+		Mockito.verify(lintFixerFactory, Mockito.times(2)).makeLintFixer(Mockito.any(), Mockito.any(), Mockito.any());
+	}
+
+	@Test
+	public void testNotCacheable() throws IOException {
+		Mockito.when(lintFixerFactory.makeLintFixer(Mockito.any(), Mockito.any(), Mockito.any()))
+				.thenReturn(content -> content);
+
+		format(makeSession("a"));
+		format(makeSession("a"));
+
+		Mockito.verify(lintFixerFactory, Mockito.times(2)).makeLintFixer(Mockito.any(), Mockito.any(), Mockito.any());
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class TestMutatedContentStore {
+	@Test
+	public void testInHeap() throws IOException {
+		try (var store = new MutatedContentStore()) {
+			store.put(Paths.get("a"), "contentA");
+
+			Assertions.assertThat(store.get(Paths.get("a"))).isEqualTo("contentA");
+			Assertions.assertThat(store.getHeapBytes()).isEqualTo(2L * "contentA".length());
+			Assertions.assertThat(store.spillPath).isNull();
+		}
+	}
+
+	@Test
+	public void testSpill() throws IOException {
+		Path spillPath;
+		try (var store = new MutatedContentStore(10)) {
+			store.put(Paths.get("a"), "small");
+			store.put(Paths.get("b"), "someBiggerContent".repeat(100));
+			store.put(Paths.get("c"), "été");
+
+			// Only the first content fits in the budget
+			Assertions.assertThat(store.getHeapBytes()).isEqualTo(10);
+			spillPath = store.spillPath;
+			Assertions.assertThat(spillPath).exists();
+
+			// The iteration order is the insertion order
+			Map<Path, String> asMap = new LinkedHashMap<>(store.asMap());
+			Assertions.assertThat(asMap)
+					.containsExactly(Map.entry(Paths.get("a"), "small"),
+							Map.entry(Paths.get("b"), "someBiggerContent".repeat(100)),
+							Map.entry(Paths.get("c"), "été"));
+		}
+
+		// The spill file is removed on close
+		Assertions.assertThat(spillPath).doesNotExist();
+	}
+
+	@Test
+	public void testConcurrentPuts() throws IOException {
+		try (var store = new MutatedContentStore(1024)) {
+			IntStream.range(0, 1000).parallel().forEach(i -> store.asMap().put(Paths.get("file_" + i), "content_" + i));
+
+			Assertions.assertThat(store.size()).isEqualTo(1000);
+			Assertions.assertThat(store.getHeapBytes()).isLessThanOrEqualTo(1024);
+			IntStream.range(0, 1000)
+					.forEach(i -> Assertions.assertThat(store.get(Paths.get("file_" + i))).isEqualTo("content_" + i));
+		}
+	}
+
+	@Test
+	public void testSpill_bytes() throws IOException {
+		try (var store = new MutatedContentStore(10)) {
+			byte[] latin1 = "été".repeat(10).getBytes(StandardCharsets.ISO_8859_1);
+			store.put(Paths.get("a"), PathAndContent.ofBytes(Paths.get("a"), latin1, StandardCharsets.ISO_8859_1));
+
+			Assertions.assertThat(store.getHeapBytes()).isEqualTo(0);
+			Assertions.assertThat(store.asEncodedMap()).hasEntrySatisfying(Paths.get("a"), content -> {
+				// Spilled and loaded back as bytes, with their charset
+				Assertions.assertThat(content.hasBytes()).isTrue();
+				Assertions.assertThat(content.getCharset()).isEqualTo(StandardCharsets.ISO_8859_1);
+				Assertions.assertThat(content.getBytes()).isEqualTo(latin1);
+			});
+		}
+	}
+
+	@Test
+	public void testOverwrite_heap() throws IOException {
+		try (var store = new MutatedContentStore(10)) {
+			store.put(Paths.get("a"), "small");
+			// The previous content is not counted anymore: the new one fits in the budget
+			store.put(Paths.get("a"), "other");
+
+			Assertions.assertThat(store.getHeapBytes()).isEqualTo(10);
+			Assertions.assertThat(store.spillPath).isNull();
+			Assertions.assertThat(store.get(Paths.get("a"))).isEqualTo("other");
+		}
+	}
+
+	@Test
+	public void testOverwrite_spilledRegionIsReused() throws IOException {
+		String bigger = IntStream.range(0, 1000).mapToObj(Integer::toString).collect(Collectors.joining(","));
+
+		try (var store = new MutatedContentStore(0)) {
+			store.put(Paths.get("a"), "someContent".repeat(100));
+			store.put(Paths.get("b"), "otherContent".repeat(100));
+			store.put(Paths.get("c"), "thirdContent".repeat(100));
+			long spillEnd = store.spillEnd;
+
+			// Overwriting releases the previous region, which is large enough for the new content
+			store.put(Paths.get("a"), "someContent".repeat(100));
+			Assertions.assertThat(store.spillEnd).isEqualTo(spillEnd);
+			Assertions.assertThat(store.freeRegions).isEmpty();
+
+			// The released regions are too small for the bigger contents, but they are merged together
+			store.put(Paths.get("a"), bigger);
+			store.put(Paths.get("b"), bigger);
+			Assertions.assertThat(store.spillEnd).isGreaterThan(spillEnd);
+			Assertions.assertThat(store.freeRegions).hasSize(1).containsKey(0L);
+
+			// The merged region is reused
+			long biggerSpillEnd = store.spillEnd;
+			store.put(Paths.get("c"), "otherContent".repeat(100));
+			Assertions.assertThat(store.spillEnd).isEqualTo(biggerSpillEnd);
+
+			Assertions.assertThat(store.get(Paths.get("a"))).isEqualTo(bigger);
+			Assertions.assertThat(store.get(Paths.get("b"))).isEqualTo(bigger);
+			Assertions.assertThat(store.get(Paths.get("c"))).isEqualTo("otherContent".repeat(100));
+		}
+	}
+
+	@Test
+	public void testConcurrentOverwrites() throws IOException {
+		try (var store = new MutatedContentStore(256)) {
+			IntStream.range(0, 1000)
+					.parallel()
+					.forEach(i -> store.put(Paths.get("file_" + (i % 10)), "content_" + i + "_".repeat(i % 50)));
+
+			Assertions.assertThat(store.size()).isEqualTo(10);
+
+			// The heap accounting matches the contents actually held in heap
+			long inHeap = 0;
+			for (var content : store.pathToContent.values()) {
+				if (content instanceof PathAndContent) {
+					inHeap += 2L * ((PathAndContent) content).getContent().length();
+				}
+			}
+			Assertions.assertThat(store.getHeapBytes()).isEqualTo(inHeap).isLessThanOrEqualTo(256);
+			IntStream.range(0, 10)
+					.forEach(i -> Assertions.assertThat(store.get(Paths.get("file_" + i))).startsWith("content_"));
+		}
+	}
+}
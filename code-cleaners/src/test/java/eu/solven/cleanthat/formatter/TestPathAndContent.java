@@ -0,0 +1,98 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class TestPathAndContent {
+	final Path path = Paths.get("some/path");
+
+	@Test
+	public void testOfBytes() {
+		var bytes = "été".getBytes(StandardCharsets.UTF_8);
+		var pathAndContent = PathAndContent.ofBytes(path, bytes, StandardCharsets.UTF_8);
+
+		Assertions.assertThat(pathAndContent.hasBytes()).isTrue();
+		Assertions.assertThat(pathAndContent.getBytes()).isSameAs(bytes);
+		Assertions.assertThat(pathAndContent.getSizeHint()).isEqualTo(5);
+		Assertions.assertThat(pathAndContent.getContent()).isEqualTo("été");
+	}
+
+	@Test
+	public void testOfString() {
+		var pathAndContent = new PathAndContent(path, "été");
+
+		Assertions.assertThat(pathAndContent.hasBytes()).isFalse();
+		Assertions.assertThat(pathAndContent.getSizeHint()).isEqualTo(3);
+		Assertions.assertThat(pathAndContent.getBytes()).isEqualTo("été".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testHasSameContent() {
+		var fromBytes = PathAndContent.ofBytes(path, "été".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+		var fromOtherBytes =
+				PathAndContent.ofBytes(path, "été".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+		var fromLatin1 =
+				PathAndContent.ofBytes(path, "été".getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.ISO_8859_1);
+
+		Assertions.assertThat(fromBytes.hasSameContent(fromOtherBytes)).isTrue();
+		Assertions.assertThat(fromBytes.hasSameContent(new PathAndContent(path, "été"))).isTrue();
+		// Different bytes, but the same content
+		Assertions.assertThat(fromBytes.hasSameContent(fromLatin1)).isTrue();
+		Assertions.assertThat(fromBytes.hasSameContent(fromBytes.withContent("ete"))).isFalse();
+	}
+
+	@Test
+	public void testMalformed() {
+		byte[] latin1 = "été".getBytes(StandardCharsets.ISO_8859_1);
+		var pathAndContent = PathAndContent.ofBytes(path, latin1, StandardCharsets.UTF_8);
+
+		// The bytes are available, but they are not silently decoded into a corrupted String
+		Assertions.assertThat(pathAndContent.getBytes()).isSameAs(latin1);
+		Assertions.assertThatThrownBy(pathAndContent::getContent).isInstanceOf(UncheckedIOException.class);
+	}
+
+	@Test
+	public void testIsWellFormed() {
+		Assertions
+				.assertThat(PathAndContent.isWellFormed("été".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8))
+				.isTrue();
+		Assertions
+				.assertThat(PathAndContent.isWellFormed("été".getBytes(StandardCharsets.ISO_8859_1),
+						StandardCharsets.UTF_8))
+				.isFalse();
+
+		// Larger than the validation buffer, with the malformed byte at the end
+		var large = ("a".repeat(20_000) + "é").getBytes(StandardCharsets.ISO_8859_1);
+		Assertions.assertThat(PathAndContent.isWellFormed(large, StandardCharsets.UTF_8)).isFalse();
+		Assertions.assertThat(PathAndContent.isWellFormed(large, StandardCharsets.ISO_8859_1)).isTrue();
+	}
+
+	@Test
+	public void testWithContent_keepCharset() {
+		var pathAndContent = PathAndContent.ofBytes(path, new byte[] { 'a' }, StandardCharsets.ISO_8859_1);
+
+		var mutated = pathAndContent.withContent("é");
+		Assertions.assertThat(mutated.getCharset()).isEqualTo(StandardCharsets.ISO_8859_1);
+		Assertions.assertThat(mutated.getBytes()).containsExactly(0xE9);
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.formatter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Futures;
+
+public class TestSmallestFirstExecutor {
+	@Test
+	public void testSmallestFirst() throws InterruptedException, ExecutionException {
+		var executor = new SmallestFirstExecutor(1, "TestSmallestFirstExecutor-");
+
+		try {
+			// Block the single thread, so that next tasks are queued
+			var blocker = new CountDownLatch(1);
+			var blocking = executor.submit(0, () -> blocker.await(1, TimeUnit.MINUTES));
+
+			List<Integer> executed = new CopyOnWriteArrayList<>();
+			var tasks = List.of(3, 1, 2, 1)
+					.stream()
+					.map(size -> executor.submit(size, () -> executed.add(size)))
+					.collect(Collectors.toList());
+
+			blocker.countDown();
+			blocking.get();
+			Futures.allAsList(tasks).get();
+
+			Assertions.assertThat(executed).containsExactly(1, 1, 2, 3);
+		} finally {
+			executor.shutdownAndAwaitTermination(1, TimeUnit.MINUTES);
+		}
+	}
+
+	@Test
+	public void testCancel_interrupts() throws InterruptedException {
+		var executor = new SmallestFirstExecutor(1, "TestSmallestFirstExecutor-");
+
+		try {
+			var started = new CountDownLatch(1);
+			var interrupted = new CountDownLatch(1);
+			var future = executor.submit(0, () -> {
+				started.countDown();
+				try {
+					TimeUnit.MINUTES.sleep(1);
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+				}
+				return null;
+			});
+
+			Assertions.assertThat(started.await(1, TimeUnit.MINUTES)).isTrue();
+			future.cancel(true);
+			Assertions.assertThat(interrupted.await(1, TimeUnit.MINUTES)).isTrue();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -17,18 +17,30 @@ package eu.solven.cleanthat.code_provider.inmemory;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.MalformedInputException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -36,7 +48,13 @@ import java.util.function.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.google.common.jimfs.Jimfs;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import eu.solven.cleanthat.code_provider.CleanthatPathHelpers;
@@ -46,6 +64,9 @@ import eu.solven.cleanthat.codeprovider.ICodeProvider;
 import eu.solven.cleanthat.codeprovider.ICodeProviderFile;
 import eu.solven.cleanthat.codeprovider.ICodeProviderWriter;
 import eu.solven.cleanthat.codeprovider.ICodeWritingMetadata;
+import eu.solven.cleanthat.config.IncludeExcludeHelpers;
+import eu.solven.cleanthat.formatter.PathAndContent;
+import eu.solven.pepper.thread.PepperExecutorsHelper;
 
 /**
  * An {@link ICodeProvider} for {@link FileSystem}
@@ -55,9 +76,44 @@ import eu.solven.cleanthat.codeprovider.ICodeWritingMetadata;
 public class FileSystemCodeProvider implements ICodeProviderWriter {
 	private static final Logger LOGGER = LoggerFactory.getLogger(FileSystemCodeProvider.class);
 
+	public static final String KEY_NB_WRITER_THREADS = "cleanthat.fs.nb_writer_threads";
+	// Writes are IO-bound, and may be slow on network FileSystems
+	public static final int DEFAULT_NB_WRITER_THREADS = 8;
+
+	private static final String POSIX_ATTRIBUTE_VIEW = "posix";
+
 	final FileSystem fs;
 	final Path root;
 	final Charset charset;
+	final int nbWriterThreads = Integer.getInteger(KEY_NB_WRITER_THREADS, DEFAULT_NB_WRITER_THREADS);
+
+	// The size and hash of the files loaded through this instance, by path in the FileSystem
+	final Map<Path, LoadedContent> pathToLoaded = new ConcurrentHashMap<>();
+
+	/**
+	 * The size and the hash of a content
+	 * 
+	 * @author Benoit Lacelle
+	 *
+	 */
+	private static final class LoadedContent {
+		final int size;
+		final HashCode hash;
+
+		private LoadedContent(int size, HashCode hash) {
+			this.size = size;
+			this.hash = hash;
+		}
+
+		private static LoadedContent of(byte[] bytes) {
+			return new LoadedContent(bytes.length, Hashing.sha256().hashBytes(bytes));
+		}
+
+		private boolean isSameContent(byte[] bytes) {
+			// The hash is computed only if the size matches
+			return size == bytes.length && hash.equals(Hashing.sha256().hashBytes(bytes));
+		}
+	}
 
 	@SuppressFBWarnings(value = "CT_CONSTRUCTOR_THROW",
 			justification = "We need to derive this class in FileSystemGitCodeProvider")
@@ -88,11 +144,32 @@ public class FileSystemCodeProvider implements ICodeProviderWriter {
 
 	@Override
 	public void listFilesForContent(Set<String> includes, Consumer<ICodeProviderFile> consumer) throws IOException {
-		listFilesForContent(p -> false, consumer);
+		listFilesForContent(includes, Set.of(), consumer);
+	}
+
+	@Override
+	public void listFilesForContent(Set<String> includes, Set<String> excludes, Consumer<ICodeProviderFile> consumer)
+			throws IOException {
+		listFilesForContent(p -> false, IncludeExcludeHelpers.prepareDirectoryPruner(fs, includes, excludes), consumer);
 	}
 
 	protected void listFilesForContent(Predicate<Path> ignorePredicate, Consumer<ICodeProviderFile> consumer)
 			throws IOException {
+		listFilesForContent(ignorePredicate, p -> false, consumer);
+	}
+
+	/**
+	 * 
+	 * @param ignorePredicate
+	 *            applied on the {@link Path} in the {@link FileSystem}
+	 * @param skipDirectory
+	 *            applied on the content {@link Path} of directories, true if the whole subtree can be skipped
+	 * @param consumer
+	 * @throws IOException
+	 */
+	protected void listFilesForContent(Predicate<Path> ignorePredicate,
+			Predicate<Path> skipDirectory,
+			Consumer<ICodeProviderFile> consumer) throws IOException {
 		// https://stackoverflow.com/questions/22867286/files-walk-calculate-total-size/22868706#22868706
 		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
 
@@ -101,6 +178,9 @@ public class FileSystemCodeProvider implements ICodeProviderWriter {
 				if (ignorePredicate.test(dir)) {
 					// We skip folders which are ignored, not to process each of their files
 					return FileVisitResult.SKIP_SUBTREE;
+				} else if (!dir.equals(root) && skipDirectory.test(root.relativize(dir))) {
+					// We skip folders which can not hold a file matching the includes and excludes
+					return FileVisitResult.SKIP_SUBTREE;
 				} else {
 					return FileVisitResult.CONTINUE;
 				}
@@ -140,31 +220,130 @@ public class FileSystemCodeProvider implements ICodeProviderWriter {
 
 	@Override
 	public boolean persistChanges(Map<Path, String> pathToMutatedContent, ICodeWritingMetadata codeWritingMetadata) {
-		var hasWritten = new AtomicBoolean();
-		pathToMutatedContent.forEach((inMemoryPath, content) -> {
-			var resolved = resolvePath(inMemoryPath);
-			try {
-				Files.createDirectories(resolved.getParent());
+		return persistEncodedChanges(Maps.transformEntries(pathToMutatedContent, PathAndContent::new),
+				codeWritingMetadata);
+	}
 
-				if (Files.exists(resolved)) {
-					var existingContent = Files.readString(resolved, charset);
+	/**
+	 * Files are written by a bounded pool of threads, and this returns once all of them are written. Each file is
+	 * written into a temporary file, then moved atomically: a concurrent reader never reads a partial file.
+	 * 
+	 * A file is skipped if its content is the one loaded through this instance, compared by size and hash, without
+	 * re-reading it.
+	 */
+	@Override
+	public boolean persistEncodedChanges(Map<Path, PathAndContent> pathToMutatedContent,
+			ICodeWritingMetadata codeWritingMetadata) {
+		var hasWritten = new AtomicBoolean();
 
-					if (existingContent.equals(content)) {
-						LOGGER.info("We skip writing content as same content already present: {}", resolved);
-						return;
+		var nbThreads = Math.max(1, Math.min(nbWriterThreads, pathToMutatedContent.size()));
+		var writerExecutor = MoreExecutors.listeningDecorator(
+				PepperExecutorsHelper.newShrinkableFixedThreadPool(nbThreads, "Cleanthat-FileWriter-"));
+		// The contents may be loaded lazily from a spilling store: they are not all queued in heap
+		var inFlight = new Semaphore(2 * nbThreads);
+		List<ListenableFuture<?>> futures = new ArrayList<>();
+		try {
+			pathToMutatedContent.forEach((inMemoryPath, content) -> {
+				inFlight.acquireUninterruptibly();
+				ListenableFuture<?> written = writerExecutor.submit(() -> {
+					if (persistChange(inMemoryPath, content)) {
+						hasWritten.set(true);
 					}
-				}
+				});
+				written.addListener(inFlight::release, MoreExecutors.directExecutor());
+				futures.add(written);
+			});
+		} finally {
+			// The barrier: all submitted writes are done, even if one of them failed
+			if (!MoreExecutors.shutdownAndAwaitTermination(writerExecutor, 1, TimeUnit.DAYS)) {
+				LOGGER.warn("Executor not terminated");
+			}
+		}
 
-				LOGGER.info("Write file: {}", resolved);
-				Files.write(resolved, content.getBytes(charset));
-				hasWritten.set(true);
-			} catch (IOException e) {
-				throw new UncheckedIOException("Issue on: " + inMemoryPath + " (resolved into " + resolved + ")", e);
+		for (var future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while writing files", e);
+			} catch (ExecutionException e) {
+				Throwables.throwIfUnchecked(e.getCause());
+				throw new IllegalStateException("Issue writing files", e.getCause());
 			}
-		});
+		}
 		return hasWritten.get();
 	}
 
+	/**
+	 * 
+	 * @param inMemoryPath
+	 * @param content
+	 * @return true if the file has been written
+	 */
+	protected boolean persistChange(Path inMemoryPath, PathAndContent content) {
+		var resolved = resolvePath(inMemoryPath);
+		try {
+			var bytes = encode(content);
+			if (isSameContent(resolved, bytes)) {
+				LOGGER.info("We skip writing content as same content already present: {}", resolved);
+				return false;
+			}
+
+			LOGGER.info("Write file: {}", resolved);
+			writeAtomically(resolved, bytes);
+			pathToLoaded.put(resolved, LoadedContent.of(bytes));
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Issue on: " + inMemoryPath + " (resolved into " + resolved + ")", e);
+		}
+	}
+
+	private boolean isSameContent(Path resolved, byte[] bytes) throws IOException {
+		var loaded = pathToLoaded.get(resolved);
+		if (loaded != null) {
+			// The file is not re-read: it is expected not to be modified concurrently
+			return loaded.isSameContent(bytes);
+		} else if (Files.exists(resolved) && Files.size(resolved) == bytes.length) {
+			// The file has not been loaded through this instance: it is read only if the size matches
+			return Arrays.equals(Files.readAllBytes(resolved), bytes);
+		} else {
+			return false;
+		}
+	}
+
+	private void writeAtomically(Path resolved, byte[] bytes) throws IOException {
+		var parent = resolved.getParent();
+		Files.createDirectories(parent);
+
+		// Not Files.createTempFile, as it would restrict the permissions of new files
+		var tmpPath = parent.resolve("." + resolved.getFileName() + "." + UUID.randomUUID() + ".tmp");
+		try {
+			Files.write(tmpPath, bytes, StandardOpenOption.CREATE_NEW);
+			if (Files.exists(resolved)
+					&& resolved.getFileSystem().supportedFileAttributeViews().contains(POSIX_ATTRIBUTE_VIEW)) {
+				// e.g. an executable script remains executable
+				Files.setPosixFilePermissions(tmpPath, Files.getPosixFilePermissions(resolved));
+			}
+
+			try {
+				Files.move(tmpPath, resolved, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				LOGGER.debug("Atomic move is not supported for {}", resolved, e);
+				Files.move(tmpPath, resolved, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tmpPath);
+		}
+	}
+
+	private byte[] encode(PathAndContent content) {
+		if (charset.equals(content.getCharset())) {
+			return content.getBytes();
+		} else {
+			return content.getContent().getBytes(charset);
+		}
+	}
+
 	@Override
 	public Optional<String> loadContentForPath(Path path) throws IOException {
 		CleanthatPathHelpers.checkContentPath(path);
@@ -174,11 +353,34 @@ public class FileSystemCodeProvider implements ICodeProviderWriter {
 		return safeReadString(pathForRootFS);
 	}
 
+	@Override
+	public Optional<PathAndContent> loadEncodedContentForPath(Path path) throws IOException {
+		CleanthatPathHelpers.checkContentPath(path);
+
+		var pathForRootFS = CleanthatPathHelpers.resolveChild(getRepositoryRoot(), path);
+
+		if (Files.exists(pathForRootFS)) {
+			var bytes = readAllBytes(pathForRootFS);
+
+			// The bytes are checked, but not decoded: a lintFixer given malformed bytes may write back a corrupted
+			// content
+			if (!PathAndContent.isWellFormed(bytes, charset)) {
+				LOGGER.warn("Issue reading {}: it is not valid {}", pathForRootFS, charset);
+				return Optional.empty();
+			}
+			return Optional.of(PathAndContent.ofBytes(path, bytes, charset));
+		} else {
+			return Optional.empty();
+		}
+	}
+
 	private Optional<String> safeReadString(Path pathForRootFS) throws IOException {
 		if (Files.exists(pathForRootFS)) {
+			var bytes = readAllBytes(pathForRootFS);
+
 			String asString;
 			try {
-				asString = Files.readString(pathForRootFS, charset);
+				asString = charset.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
 			} catch (MalformedInputException e) {
 				LOGGER.warn("Issue reading {}", pathForRootFS, e);
 				return Optional.empty();
@@ -189,6 +391,15 @@ public class FileSystemCodeProvider implements ICodeProviderWriter {
 		}
 	}
 
+	/**
+	 * Reads given file, remembering its size and hash to skip writing the same content back.
+	 */
+	private byte[] readAllBytes(Path pathForRootFS) throws IOException {
+		var bytes = Files.readAllBytes(pathForRootFS);
+		pathToLoaded.put(pathForRootFS, LoadedContent.of(bytes));
+		return bytes;
+	}
+
 	@Override
 	public String getRepoUri() {
 		throw new IllegalArgumentException("No repository URI");
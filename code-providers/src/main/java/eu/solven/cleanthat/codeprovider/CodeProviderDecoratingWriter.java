@@ -26,6 +26,8 @@ import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import eu.solven.cleanthat.formatter.PathAndContent;
+
 /**
  * Typically used to be able to read from one {@link ICodeProvider} and write into a different
  * {@link ICodeProviderWriterLogic}
@@ -60,6 +62,13 @@ public class CodeProviderDecoratingWriter implements ICodeProviderWriter {
 		codeProvider.listFilesForContent(includePatterns, consumer);
 	}
 
+	@Override
+	public void listFilesForContent(Set<String> includePatterns,
+			Set<String> excludePatterns,
+			Consumer<ICodeProviderFile> consumer) throws IOException {
+		codeProvider.listFilesForContent(includePatterns, excludePatterns, consumer);
+	}
+
 	@Override
 	public String toString() {
 		return codeProvider.toString();
@@ -70,6 +79,11 @@ public class CodeProviderDecoratingWriter implements ICodeProviderWriter {
 		return codeProvider.loadContentForPath(path);
 	}
 
+	@Override
+	public Optional<PathAndContent> loadEncodedContentForPath(Path path) throws IOException {
+		return codeProvider.loadEncodedContentForPath(path);
+	}
+
 	@Override
 	public String getRepoUri() {
 		return codeProvider.getRepoUri();
@@ -80,6 +94,12 @@ public class CodeProviderDecoratingWriter implements ICodeProviderWriter {
 		return writerLogicSupplier.get().persistChanges(pathToMutatedContent, metadata);
 	}
 
+	@Override
+	public boolean persistEncodedChanges(Map<Path, PathAndContent> pathToMutatedContent,
+			ICodeWritingMetadata metadata) {
+		return writerLogicSupplier.get().persistEncodedChanges(pathToMutatedContent, metadata);
+	}
+
 	@Override
 	public void cleanTmpFiles() {
 		LOGGER.debug("Nothing to clean");
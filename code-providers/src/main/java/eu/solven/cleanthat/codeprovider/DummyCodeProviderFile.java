@@ -16,6 +16,7 @@
 package eu.solven.cleanthat.codeprovider;
 
 import java.nio.file.Path;
+import java.util.Optional;
 
 import eu.solven.cleanthat.code_provider.CleanthatPathHelpers;
 
@@ -28,6 +29,7 @@ import eu.solven.cleanthat.code_provider.CleanthatPathHelpers;
 public final class DummyCodeProviderFile implements ICodeProviderFile {
 	private final Path path;
 	private final Object raw;
+	private final Optional<String> blobId;
 
 	/**
 	 * 
@@ -36,6 +38,18 @@ public final class DummyCodeProviderFile implements ICodeProviderFile {
 	 * @param raw
 	 */
 	public DummyCodeProviderFile(Path path, Object raw) {
+		this(path, raw, Optional.empty());
+	}
+
+	/**
+	 * 
+	 * @param path
+	 *            path of the file, consider '/' is the root of the repository
+	 * @param raw
+	 * @param blobId
+	 *            the git blob id of the content, if known
+	 */
+	public DummyCodeProviderFile(Path path, Object raw, Optional<String> blobId) {
 		if (raw instanceof DummyCodeProviderFile) {
 			throw new IllegalArgumentException("input can not be an instance of " + this.getClass());
 		}
@@ -44,6 +58,7 @@ public final class DummyCodeProviderFile implements ICodeProviderFile {
 
 		this.path = path;
 		this.raw = raw;
+		this.blobId = blobId;
 	}
 
 	@Override
@@ -55,4 +70,9 @@ public final class DummyCodeProviderFile implements ICodeProviderFile {
 	public Object getRaw() {
 		return raw;
 	}
+
+	@Override
+	public Optional<String> getBlobId() {
+		return blobId;
+	}
 }
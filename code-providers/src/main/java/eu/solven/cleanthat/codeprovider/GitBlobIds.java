@@ -0,0 +1,57 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.codeprovider;
+
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Helps computing git blob ids, as provided by {@link ICodeProviderFile#getBlobId()}.
+ *
+ * @author Benoit Lacelle
+ */
+public final class GitBlobIds {
+	private GitBlobIds() {
+		// hidden
+	}
+
+	/**
+	 * 
+	 * @param content
+	 * @return the git blob id of given content, encoded in UTF-8. It may differ from the blob id in the repository if
+	 *         the file is in another encoding.
+	 */
+	public static String ofContent(String content) {
+		return ofBytes(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * 
+	 * @param bytes
+	 * @return the git blob id of given bytes
+	 */
+	// Git relies on SHA-1 to identify objects
+	@SuppressWarnings("deprecation")
+	public static String ofBytes(byte[] bytes) {
+		return Hashing.sha1()
+				.newHasher()
+				.putString("blob " + bytes.length + "\0", StandardCharsets.US_ASCII)
+				.putBytes(bytes)
+				.hash()
+				.toString();
+	}
+}
@@ -22,6 +22,7 @@ import java.util.Set;
 import java.util.function.Consumer;
 
 import eu.solven.cleanthat.code_provider.CleanthatPathHelpers;
+import eu.solven.cleanthat.formatter.PathAndContent;
 
 /**
  * Abstract the various ways to iterate over code (Github PR, Gitlab MR, local folder, ...)
@@ -55,6 +56,22 @@ public interface ICodeProvider {
 	 */
 	void listFilesForContent(Set<String> includes, Consumer<ICodeProviderFile> consumer) throws IOException;
 
+	/**
+	 * Includes and excludes are hints: they enable skipping whole subtrees which can not hold a relevant file (e.g.
+	 * 'node_modules' or 'target'), but the caller is still responsible for filtering each listed file.
+	 * 
+	 * @param includes
+	 *            a {@link Set} of pattern like 'glob:**\/src/\**\/*.java' or 'regex:.*\/src/.*\/[^/]*\.java'
+	 * @param excludes
+	 *            a {@link Set} of pattern like 'glob:**\/target/**'
+	 * @param consumer
+	 * @throws IOException
+	 */
+	default void listFilesForContent(Set<String> includes, Set<String> excludes, Consumer<ICodeProviderFile> consumer)
+			throws IOException {
+		listFilesForContent(includes, consumer);
+	}
+
 	default void listFilesForFilenames(Set<String> includes, Consumer<ICodeProviderFile> consumer) throws IOException {
 		listFilesForContent(includes, consumer);
 	}
@@ -73,6 +90,18 @@ public interface ICodeProvider {
 		return loadContentForPath(path);
 	}
 
+	/**
+	 * 
+	 * @param path
+	 * @return the content of given path, possibly as encoded bytes with their charset. It enables processing the
+	 *         content without decoding it into a {@link String}. By default, it wraps
+	 *         {@link #loadContentForPath(Path)}.
+	 * @throws IOException
+	 */
+	default Optional<PathAndContent> loadEncodedContentForPath(Path path) throws IOException {
+		return loadContentForPath(path).map(content -> new PathAndContent(path, content));
+	}
+
 	String getRepoUri();
 
 }
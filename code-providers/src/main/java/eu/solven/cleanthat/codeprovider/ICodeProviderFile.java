@@ -16,6 +16,7 @@
 package eu.solven.cleanthat.codeprovider;
 
 import java.nio.file.Path;
+import java.util.Optional;
 
 /**
  * 
@@ -31,4 +32,13 @@ public interface ICodeProviderFile {
 	 * @return
 	 */
 	Object getRaw();
+
+	/**
+	 * 
+	 * @return the git blob id (i.e. the sha1 of the content) if it is known without loading the content (e.g. from a
+	 *         git tree).
+	 */
+	default Optional<String> getBlobId() {
+		return Optional.empty();
+	}
 }
@@ -18,6 +18,10 @@ package eu.solven.cleanthat.codeprovider;
 import java.nio.file.Path;
 import java.util.Map;
 
+import com.google.common.collect.Maps;
+
+import eu.solven.cleanthat.formatter.PathAndContent;
+
 /**
  * Enable writing/commiting code
  *
@@ -34,4 +38,16 @@ public interface ICodeProviderWriterLogic {
 	 */
 	boolean persistChanges(Map<Path, String> pathToMutatedContent, ICodeWritingMetadata metadata);
 
+	/**
+	 * 
+	 * @param pathToMutatedContent
+	 *            the contents may hold encoded bytes, which can be written without being decoded
+	 * @param metadata
+	 * @return true if some commit has been pushed
+	 */
+	default boolean persistEncodedChanges(Map<Path, PathAndContent> pathToMutatedContent,
+			ICodeWritingMetadata metadata) {
+		// A lazy view: the contents are decoded one by one
+		return persistChanges(Maps.transformValues(pathToMutatedContent, PathAndContent::getContent), metadata);
+	}
 }
@@ -21,16 +21,24 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
+import com.google.common.jimfs.Configuration;
 import com.google.common.jimfs.Jimfs;
 
 import eu.solven.cleanthat.codeprovider.CodeWritingMetadata;
 import eu.solven.cleanthat.codeprovider.ICodeProviderWriter;
+import eu.solven.cleanthat.formatter.PathAndContent;
 import eu.solven.pepper.unittest.ILogDisabler;
 import eu.solven.pepper.unittest.PepperTestHelper;
 
@@ -58,6 +66,26 @@ public class TestFileSystemCodeProvider {
 		});
 	}
 
+	@Test
+	public void testListFiles_skipSubtrees() throws IOException {
+		ICodeProviderWriter cp = new FileSystemCodeProvider(fs.getPath(fs.getSeparator()));
+
+		cp.persistChanges(Map.of(fs.getPath("src", "main", "SomeClass.java"),
+				"someContent",
+				fs.getPath("src", "main", "node_modules", "some.js"),
+				"someContent",
+				fs.getPath("docs", "SomeDoc.java"),
+				"someContent"), CodeWritingMetadata.empty());
+
+		List<String> paths = new ArrayList<>();
+		cp.listFilesForContent(Set.of("glob:src/**/*.java"),
+				Set.of("glob:**/node_modules/**"),
+				file -> paths.add(file.getPath().toString()));
+
+		// Neither 'docs' nor 'node_modules' are walked
+		Assertions.assertThat(paths).containsExactly("src/main/SomeClass.java");
+	}
+
 	@Test
 	public void testLoadFileOutOfRoot() throws IOException {
 		var secretPath = fs.getPath(fs.getSeparator(), "secretFile");
@@ -132,4 +160,97 @@ public class TestFileSystemCodeProvider {
 			Assertions.assertThat(optUtf8).isEmpty();
 		}
 	}
+
+	@Test
+	public void testEncodedContent() throws IOException {
+		ICodeProviderWriter cp = new FileSystemCodeProvider(fs.getPath(fs.getSeparator()), StandardCharsets.ISO_8859_1);
+
+		var latin1Path = fs.getPath("latin1.txt");
+		var utf8Path = fs.getPath("utf8.txt");
+		byte[] latin1 = "été".getBytes(StandardCharsets.ISO_8859_1);
+		cp.persistEncodedChanges(
+				Map.of(latin1Path,
+						PathAndContent.ofBytes(latin1Path, latin1, StandardCharsets.ISO_8859_1),
+						utf8Path,
+						PathAndContent
+								.ofBytes(utf8Path, "été".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8)),
+				CodeWritingMetadata.empty());
+
+		// The content is written in the charset of the provider
+		Assertions.assertThat(Files.readAllBytes(fs.getPath(fs.getSeparator(), "utf8.txt"))).isEqualTo(latin1);
+
+		// The bytes are loaded without being decoded
+		Assertions.assertThat(cp.loadEncodedContentForPath(latin1Path)).hasValueSatisfying(content -> {
+			Assertions.assertThat(content.hasBytes()).isTrue();
+			Assertions.assertThat(content.getCharset()).isEqualTo(StandardCharsets.ISO_8859_1);
+			Assertions.assertThat(content.getBytes()).isEqualTo(latin1);
+			Assertions.assertThat(content.getContent()).isEqualTo("été");
+		});
+	}
+
+	@Test
+	public void testEncodedContent_wrongCharset() throws IOException {
+		var latin1File = fs.getPath(fs.getSeparator(), "project", "latin1.txt");
+		Files.createDirectories(latin1File.getParent());
+		Files.write(latin1File, "Entwickeln Sie mit Vergnügen".getBytes(StandardCharsets.ISO_8859_1));
+
+		ICodeProviderWriter utf8CodeProvider =
+				new FileSystemCodeProvider(fs.getPath(fs.getSeparator(), "project"), StandardCharsets.UTF_8);
+
+		// The malformed file is skipped, instead of being handed to lintFixers which would write back U+FFFD
+		try (ILogDisabler logDisabler = PepperTestHelper.disableLog(FileSystemCodeProvider.class)) {
+			Assertions.assertThat(utf8CodeProvider.loadEncodedContentForPath(fs.getPath("latin1.txt"))).isEmpty();
+		}
+	}
+
+	@Test
+	public void testPersist_manyFiles() throws IOException {
+		ICodeProviderWriter cp = new FileSystemCodeProvider(fs.getPath(fs.getSeparator()));
+
+		Map<Path, String> pathToContent = new LinkedHashMap<>();
+		IntStream.range(0, 100)
+				.forEach(i -> pathToContent.put(fs.getPath("dir" + (i % 7), "file" + i + ".txt"), "content" + i));
+
+		Assertions.assertThat(cp.persistChanges(pathToContent, CodeWritingMetadata.empty())).isTrue();
+
+		// All files are written once this returns, and no temporary file remains
+		List<String> paths = new ArrayList<>();
+		cp.listFilesForContent(file -> paths.add(file.getPath().toString()));
+		Assertions.assertThat(paths).hasSize(100).noneMatch(path -> path.endsWith(".tmp"));
+		Assertions.assertThat(cp.loadContentForPath("dir3/file52.txt")).contains("content52");
+	}
+
+	@Test
+	public void testPersist_sameAsLoaded() throws IOException {
+		ICodeProviderWriter cp = new FileSystemCodeProvider(fs.getPath(fs.getSeparator()));
+		var path = fs.getPath("file.txt");
+
+		Assertions.assertThat(cp.persistChanges(Map.of(path, "initial"), CodeWritingMetadata.empty())).isTrue();
+		Assertions.assertThat(cp.loadEncodedContentForPath(path)).isPresent();
+
+		// Same content as loaded: not written
+		Assertions.assertThat(cp.persistChanges(Map.of(path, "initial"), CodeWritingMetadata.empty())).isFalse();
+
+		// Same size, but different content
+		Assertions.assertThat(cp.persistChanges(Map.of(path, "changed"), CodeWritingMetadata.empty())).isTrue();
+		Assertions.assertThat(cp.loadContentForPath(path)).contains("changed");
+
+		// The written content is remembered
+		Assertions.assertThat(cp.persistChanges(Map.of(path, "changed"), CodeWritingMetadata.empty())).isFalse();
+	}
+
+	@Test
+	public void testPersist_keepPermissions() throws IOException {
+		var unixFs = Jimfs.newFileSystem(Configuration.unix().toBuilder().setAttributeViews("basic", "posix").build());
+		var script = unixFs.getPath("/script.sh");
+		Files.writeString(script, "echo");
+		var executable = PosixFilePermissions.fromString("rwxr-xr-x");
+		Files.setPosixFilePermissions(script, executable);
+
+		ICodeProviderWriter cp = new FileSystemCodeProvider(unixFs.getPath("/"));
+		cp.persistChanges(Map.of(unixFs.getPath("script.sh"), "echo 'Hello'"), CodeWritingMetadata.empty());
+
+		Assertions.assertThat(Files.readString(script)).isEqualTo("echo 'Hello'");
+		Assertions.assertThat(Files.getPosixFilePermissions(script)).isEqualTo(executable);
+	}
 }
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.code_provider.inmemory;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import eu.solven.cleanthat.codeprovider.GitBlobIds;
+
+public class TestGitBlobIds {
+	// Computed with 'git hash-object'
+	@Test
+	public void testOfContent() {
+		Assertions.assertThat(GitBlobIds.ofContent("")).isEqualTo("e69de29bb2d1d6434b8b29ae775ad8c2e48c5391");
+		Assertions.assertThat(GitBlobIds.ofContent("hello\n")).isEqualTo("ce013625030ba8dba906f756967f9e9ca394464a");
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.config;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link PathMatcher} matching any of a {@link Collection} of patterns. The most common patterns are indexed
+ * ('glob:**\/*.java', 'glob:**\/pom.xml', 'glob:**\/node_modules/**', 'glob:some/file.txt'), so that they are evaluated
+ * through hash lookups in a single pass over the names of the path. Other patterns are compiled into JDK
+ * {@link PathMatcher}, indexed in a trie by their leading literal directories: only those which may match given path
+ * are evaluated.
+ * 
+ * @author Benoit Lacelle
+ */
+public final class CombinedPathMatcher implements PathMatcher {
+	// Lowest priority: matchers which may match anywhere are held by the root node
+	final Node root = new Node();
+
+	// 'glob:some/file.txt'
+	final Set<String> literals = new HashSet<>();
+	// 'glob:**/*.java'
+	final Set<String> extensions = new HashSet<>();
+	// 'glob:**/pom.xml'
+	final Set<String> fileNames = new HashSet<>();
+	// 'glob:**/node_modules/**'
+	final Set<String> directoryNames = new HashSet<>();
+
+	/**
+	 * A node of the trie, keyed by a directory name.
+	 *
+	 * @author Benoit Lacelle
+	 */
+	static final class Node {
+		final Map<String, Node> children = new HashMap<>();
+		final List<PathMatcher> matchers = new ArrayList<>();
+	}
+
+	private CombinedPathMatcher() {
+		// Use compile
+	}
+
+	public static CombinedPathMatcher compile(FileSystem fs, Collection<String> globOrRegex) {
+		var combined = new CombinedPathMatcher();
+
+		// Under Windows, glob matching is case-insensitive: we do not index any pattern
+		var indexable = "/".equals(fs.getSeparator());
+
+		globOrRegex.stream().map(IncludeExcludeHelpers::implyGlob).forEach(pattern -> {
+			if (!indexable || !combined.index(pattern)) {
+				IncludeExcludeHelpers.expandFromRoot(pattern).forEach(expanded -> {
+					var matcher = IncludeExcludeHelpers.compilePattern(fs, expanded);
+					combined.insert(IncludeExcludeHelpers.getLiteralDirectory(expanded), matcher);
+				});
+			}
+		});
+
+		return combined;
+	}
+
+	/**
+	 * 
+	 * @param pattern
+	 * @return true if the pattern has been indexed, hence it does not need to be compiled into a {@link PathMatcher}
+	 */
+	private boolean index(String pattern) {
+		if (!pattern.startsWith(IncludeExcludeHelpers.PREFIX_GLOB)) {
+			return false;
+		}
+
+		if (pattern.startsWith(IncludeExcludeHelpers.PREFIX_GLOB_ANY_DIRECTORY)) {
+			// The pattern and its variant from root: a name at any depth
+			var anyDepth = pattern.substring(IncludeExcludeHelpers.PREFIX_GLOB_ANY_DIRECTORY.length());
+
+			if (anyDepth.startsWith("*.") && isLiteralName(anyDepth.substring("*.".length()), true)) {
+				extensions.add(anyDepth.substring("*.".length()));
+				return true;
+			} else if (isLiteralName(anyDepth, false)) {
+				fileNames.add(anyDepth);
+				return true;
+			} else if (anyDepth.endsWith("/**")) {
+				var directoryName = anyDepth.substring(0, anyDepth.length() - "/**".length());
+
+				if (isLiteralName(directoryName, false)) {
+					directoryNames.add(directoryName);
+					return true;
+				}
+			}
+			return false;
+		} else {
+			var glob = pattern.substring(IncludeExcludeHelpers.PREFIX_GLOB.length());
+
+			if (glob.chars().noneMatch(c -> IncludeExcludeHelpers.GLOB_SPECIAL_CHARS.indexOf(c) >= 0)) {
+				literals.add(glob);
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private static boolean isLiteralName(String name, boolean isExtension) {
+		return !name.isEmpty() && name.chars()
+				.noneMatch(c -> c == '/' || isExtension && c == '.'
+						|| IncludeExcludeHelpers.GLOB_SPECIAL_CHARS.indexOf(c) >= 0);
+	}
+
+	private void insert(String literalDirectory, PathMatcher matcher) {
+		var node = root;
+
+		if (!literalDirectory.isEmpty()) {
+			for (var directoryName : literalDirectory.split("/")) {
+				node = node.children.computeIfAbsent(directoryName, k -> new Node());
+			}
+		}
+
+		node.matchers.add(matcher);
+	}
+
+	@Override
+	public boolean matches(Path path) {
+		if (!literals.isEmpty() && literals.contains(path.toString())) {
+			return true;
+		}
+
+		var nameCount = path.getNameCount();
+		if (nameCount == 0) {
+			return root.matchers.stream().anyMatch(m -> m.matches(path));
+		}
+
+		var fileName = path.getName(nameCount - 1).toString();
+		if (fileNames.contains(fileName)) {
+			return true;
+		}
+		var lastDot = fileName.lastIndexOf('.');
+		if (lastDot >= 0 && extensions.contains(fileName.substring(lastDot + 1))) {
+			return true;
+		}
+
+		// Literal directories of the trie are relative to the repository root
+		var node = path.getRoot() == null ? root : null;
+		List<PathMatcher> candidates = new ArrayList<>(root.matchers);
+
+		for (var i = 0; i < nameCount - 1; i++) {
+			var directoryName = path.getName(i).toString();
+			if (directoryNames.contains(directoryName)) {
+				return true;
+			}
+
+			if (node != null) {
+				node = node.children.get(directoryName);
+				if (node != null) {
+					candidates.addAll(node.matchers);
+				}
+			}
+		}
+
+		return candidates.stream().anyMatch(m -> m.matches(path));
+	}
+
+	@Override
+	public String toString() {
+		return "literals=" + literals
+				+ " extensions="
+				+ extensions
+				+ " fileNames="
+				+ fileNames
+				+ " directoryNames="
+				+ directoryNames;
+	}
+}
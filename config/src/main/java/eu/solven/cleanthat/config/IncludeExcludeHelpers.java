@@ -22,12 +22,21 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
 /**
  * Helpers related to include and exclude rules
  * 
@@ -41,6 +50,24 @@ public class IncludeExcludeHelpers {
 	// https://stackoverflow.com/questions/9148528/how-do-i-use-directory-globbing-in-jdk7
 	public static final List<String> DEFAULT_INCLUDES_JAVA = Arrays.asList("glob:**/*.java");
 
+	static final String PREFIX_GLOB = "glob:";
+	static final String PREFIX_REGEX = "regex:";
+	static final String PREFIX_GLOB_ANY_DIRECTORY = PREFIX_GLOB + "**/";
+
+	// A pattern ending with this matches all the files of given directory, and of its sub-directories
+	private static final String SUFFIX_ANY_SUBTREE = "/**";
+
+	static final String GLOB_SPECIAL_CHARS = "*?[]{}\\";
+
+	private static final long MAX_CACHED_MATCHERS_PER_FS = 1024;
+
+	// Weak keys, not to retain in-memory FileSystems
+	private static final LoadingCache<FileSystem, Cache<List<String>, PathMatcher>> FS_TO_PATTERNS_TO_MATCHER =
+			CacheBuilder.newBuilder()
+					.weakKeys()
+					.build(CacheLoader
+							.from(fs -> CacheBuilder.newBuilder().maximumSize(MAX_CACHED_MATCHERS_PER_FS).build()));
+
 	protected IncludeExcludeHelpers() {
 		// hidden
 	}
@@ -55,47 +82,160 @@ public class IncludeExcludeHelpers {
 	 * @param globOrRegex
 	 * @return a List of {@link PathMatcher}
 	 */
+	public static List<PathMatcher> prepareMatcher(FileSystem fs, Collection<String> globOrRegex) {
+		return globOrRegex.stream()
+				.map(IncludeExcludeHelpers::implyGlob)
+				.flatMap(r -> expandFromRoot(r).map(expanded -> compilePattern(fs, expanded)))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * 
+	 * @param fs
+	 * @param globOrRegex
+	 * @return a single {@link PathMatcher} matching any of given patterns, evaluated in a single pass over the path. It
+	 *         is cached, as it is typically requested for each engine of each run.
+	 */
+	public static PathMatcher prepareCombinedMatcher(FileSystem fs, Collection<String> globOrRegex) {
+		var patternsToMatcher = FS_TO_PATTERNS_TO_MATCHER.getUnchecked(fs);
+
+		return patternsToMatcher.asMap()
+				.computeIfAbsent(List.copyOf(globOrRegex), patterns -> CombinedPathMatcher.compile(fs, patterns));
+	}
+
+	static String implyGlob(String globOrRegex) {
+		if (!globOrRegex.startsWith(PREFIX_GLOB) && !globOrRegex.startsWith(PREFIX_REGEX)) {
+			var newPattern = PREFIX_GLOB + globOrRegex;
+			LOGGER.info("We implied glob from implicit syntax: {} -> {}", globOrRegex, newPattern);
+			return newPattern;
+		} else {
+			return globOrRegex;
+		}
+	}
+
+	static Stream<String> expandFromRoot(String globOrRegex) {
+		if (globOrRegex.startsWith(PREFIX_GLOB_ANY_DIRECTORY)) {
+			// https://gitlab.com/gitlab-org/gitlab-foss/-/issues/66096
+			// https://github.com/fish-shell/fish-shell/issues/7222
+			var patternFromRoot = PREFIX_GLOB + globOrRegex.substring(PREFIX_GLOB_ANY_DIRECTORY.length());
+			return Stream.of(globOrRegex, patternFromRoot);
+		} else {
+			return Stream.of(globOrRegex);
+		}
+	}
+
 	// https://stackoverflow.com/questions/44388227/sonar-raises-blocker-issue-on-java-filesystems-getdefault
 	@SuppressWarnings("PMD.CloseResource")
-	public static List<PathMatcher> prepareMatcher(FileSystem fs, Collection<String> globOrRegex) {
-		return globOrRegex.stream().flatMap(r -> {
+	static PathMatcher compilePattern(FileSystem fs, String globOrRegex) {
+		// https://stackoverflow.com/questions/18722471/when-to-use-double-star-in-glob-syntax-within-java
+		// In glob, the separator may be always '/'
+		// Hence, replacement with '\\' would be necessary only under windows
 
-			if (!r.startsWith("glob:") && !r.startsWith("regex:")) {
-				var newPattern = "glob:" + r;
-				LOGGER.info("We implied glob from implicit syntax: {} -> {}", r, newPattern);
-				r = newPattern;
-			}
+		String newPattern;
+		// https://stackoverflow.com/questions/64102053/java-pathmatcher-not-working-properly-on-windows
+		if ("\\".equals(fs.getSeparator())) {
+			// We are under Windows
+			newPattern = globOrRegex.replace("/", "\\\\");
+			LOGGER.info("File.separator='{}' so we switched regex to: {}", fs.getSeparator(), newPattern);
+		} else {
+			// We are under Linux
+			newPattern = globOrRegex;
+		}
 
-			// https://stackoverflow.com/questions/18722471/when-to-use-double-star-in-glob-syntax-within-java
-			// In glob, the separator may be always '/'
-			// Hence, replacement with '\\' would be necessary only under windows
+		try {
+			return fs.getPathMatcher(newPattern);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Invalid regex: " + newPattern, e);
+		}
+	}
 
-			String newPattern;
-			// https://stackoverflow.com/questions/64102053/java-pathmatcher-not-working-properly-on-windows
-			if ("\\".equals(fs.getSeparator())) {
-				// We are under Windows
-				newPattern = r.replace("/", "\\\\");
-				LOGGER.info("File.separator='{}' so we switched regex to: {}", fs.getSeparator(), newPattern);
-			} else {
-				// We are under Linux
-				newPattern = r;
+	/**
+	 * 
+	 * @param globOrRegex
+	 * @return the directories, relative to the repository root, holding all the files which may be matched by given
+	 *         patterns. Empty if some pattern may match a file anywhere (e.g. 'glob:**\/*.java', or any regex).
+	 */
+	public static Optional<Set<String>> getMatchableDirectories(Collection<String> globOrRegex) {
+		Set<String> directories = new TreeSet<>();
+
+		for (var pattern : globOrRegex) {
+			var literalDirectory = getLiteralDirectory(pattern);
+
+			if (literalDirectory.isEmpty()) {
+				return Optional.empty();
 			}
+			directories.add(literalDirectory);
+		}
 
-			if (r.startsWith("glob:**/")) {
-				// https://gitlab.com/gitlab-org/gitlab-foss/-/issues/66096
-				// https://github.com/fish-shell/fish-shell/issues/7222
-				var patternFromRoot = "glob:" + r.substring("glob:**/".length());
-				return Stream.of(newPattern, patternFromRoot);
-			} else {
-				return Stream.of(newPattern);
+		return Optional.of(directories);
+	}
+
+	/**
+	 * 
+	 * @param globOrRegex
+	 * @return the leading directories of the pattern, up to the first one holding a glob special character. Empty if
+	 *         the pattern may match a file in the repository root.
+	 */
+	static String getLiteralDirectory(String globOrRegex) {
+		String glob;
+		if (globOrRegex.startsWith(PREFIX_REGEX)) {
+			return "";
+		} else if (globOrRegex.startsWith(PREFIX_GLOB)) {
+			glob = globOrRegex.substring(PREFIX_GLOB.length());
+		} else {
+			// Implicit glob, as in prepareMatcher
+			glob = globOrRegex;
+		}
+
+		var segments = glob.split("/", -1);
+
+		var literalDirectory = new StringJoiner("/");
+		// The last segment is a fileName, not a directory
+		for (var i = 0; i < segments.length - 1; i++) {
+			var segment = segments[i];
+
+			if (segment.isEmpty() || segment.chars().anyMatch(c -> GLOB_SPECIAL_CHARS.indexOf(c) >= 0)) {
+				break;
 			}
+			literalDirectory.add(segment);
+		}
+
+		return literalDirectory.toString();
+	}
 
-		}).map(r -> {
-			try {
-				return fs.getPathMatcher(r);
-			} catch (RuntimeException e) {
-				throw new IllegalArgumentException("Invalid regex: " + r, e);
+	/**
+	 * Typically used by ICodeProviders to skip whole subtrees (e.g. 'node_modules' or 'target') while listing files.
+	 * 
+	 * @param fs
+	 * @param includes
+	 * @param excludes
+	 * @return a {@link Predicate} over directories, relative to the repository root, true if no file in the directory,
+	 *         or in any of its sub-directories, can be both included and not excluded.
+	 */
+	public static Predicate<Path> prepareDirectoryPruner(FileSystem fs,
+			Collection<String> includes,
+			Collection<String> excludes) {
+		Optional<List<Path>> optIncludedDirectories = getMatchableDirectories(includes)
+				.map(directories -> directories.stream().map(fs::getPath).collect(Collectors.toList()));
+
+		// 'glob:**/target/**' excludes all files in any directory matching 'glob:**/target'
+		List<String> excludedDirectories = excludes.stream()
+				.filter(exclude -> !exclude.startsWith(PREFIX_REGEX) && exclude.endsWith(SUFFIX_ANY_SUBTREE))
+				.map(exclude -> exclude.substring(0, exclude.length() - SUFFIX_ANY_SUBTREE.length()))
+				.collect(Collectors.toList());
+		var excludedDirectoryMatcher = prepareCombinedMatcher(fs, excludedDirectories);
+
+		return directory -> {
+			if (excludedDirectoryMatcher.matches(directory)) {
+				return true;
+			} else if (optIncludedDirectories.isPresent()) {
+				// The directory is either a parent or a child of some included directory
+				return optIncludedDirectories.get()
+						.stream()
+						.noneMatch(included -> directory.startsWith(included) || included.startsWith(directory));
+			} else {
+				return false;
 			}
-		}).collect(Collectors.toList());
+		};
 	}
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.config;
+
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class TestCombinedPathMatcher {
+	final FileSystem fs = FileSystems.getDefault();
+
+	final List<String> paths = List.of("SomeClass.java",
+			"/SomeClass.java",
+			"src/main/java/SomeClass.java",
+			"src/main/java/some.json",
+			"src/test/java/SomeClass.java",
+			"pom.xml",
+			"module/pom.xml",
+			"module/pom.xml.bak",
+			"node_modules/some.js",
+			"module/node_modules/deep/some.js",
+			"module/node_modules",
+			"docs/some/file.txt",
+			".java");
+
+	private void checkSameAsPathMatchers(List<String> patterns) {
+		var combined = CombinedPathMatcher.compile(fs, patterns);
+		var pathMatchers = IncludeExcludeHelpers.prepareMatcher(fs, patterns);
+
+		paths.forEach(rawPath -> {
+			var path = fs.getPath(rawPath);
+			Assertions.assertThat(combined.matches(path))
+					.as("%s on %s", patterns, rawPath)
+					.isEqualTo(IncludeExcludeHelpers.findMatching(pathMatchers, path).isPresent());
+		});
+	}
+
+	@Test
+	public void testSameAsPathMatchers() {
+		checkSameAsPathMatchers(List.of("glob:**/*.java"));
+		checkSameAsPathMatchers(List.of("glob:**/pom.xml"));
+		checkSameAsPathMatchers(List.of("**/node_modules/**"));
+		checkSameAsPathMatchers(List.of("glob:docs/some/file.txt"));
+		checkSameAsPathMatchers(List.of("glob:src/main/java/**/*.java", "glob:src/*/java/*.java"));
+		checkSameAsPathMatchers(List.of("glob:**/src/main/**", "regex:.*\\.json"));
+		checkSameAsPathMatchers(List.of("glob:*.java", "glob:**/*.{js,json}"));
+		checkSameAsPathMatchers(List.of());
+	}
+
+	@Test
+	public void testIndexedPatterns() {
+		var combined = CombinedPathMatcher.compile(fs,
+				List.of("glob:**/*.java", "glob:**/pom.xml", "glob:**/node_modules/**", "glob:docs/some/file.txt"));
+
+		// Indexed patterns are not compiled into PathMatchers
+		Assertions.assertThat(combined.root.matchers).isEmpty();
+		Assertions.assertThat(combined.root.children).isEmpty();
+	}
+
+	@Test
+	public void testCached() {
+		var patterns = List.of("glob:src/main/java/**/*.java");
+
+		Assertions.assertThat(IncludeExcludeHelpers.prepareCombinedMatcher(fs, patterns))
+				.isSameAs(IncludeExcludeHelpers.prepareCombinedMatcher(fs, patterns));
+	}
+}
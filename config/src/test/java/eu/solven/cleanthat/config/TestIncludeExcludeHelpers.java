@@ -18,6 +18,8 @@ package eu.solven.cleanthat.config;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
@@ -57,4 +59,42 @@ public class TestIncludeExcludeHelpers {
 
 		Assertions.assertThat(optMatcher).isPresent();
 	}
+
+	@Test
+	public void testMatchableDirectories() {
+		Assertions.assertThat(IncludeExcludeHelpers.getMatchableDirectories(List.of("glob:**/*.java"))).isEmpty();
+		Assertions.assertThat(IncludeExcludeHelpers.getMatchableDirectories(List.of("regex:src/.*"))).isEmpty();
+		Assertions.assertThat(IncludeExcludeHelpers.getMatchableDirectories(List.of("glob:*.md"))).isEmpty();
+
+		Assertions
+				.assertThat(IncludeExcludeHelpers
+						.getMatchableDirectories(List.of("glob:src/main/java/**/*.java", "docs/*.md", "src/{a,b}/*")))
+				.contains(Set.of("src/main/java", "docs", "src"));
+	}
+
+	@Test
+	public void testDirectoryPruner() {
+		var skipDirectory = IncludeExcludeHelpers.prepareDirectoryPruner(fs,
+				List.of("glob:src/main/java/**/*.java"),
+				List.of("glob:**/node_modules/**", "regex:.*/target/.*"));
+
+		// Parents and children of the included directory
+		Assertions.assertThat(skipDirectory).rejects(fs.getPath("src"), fs.getPath("src/main/java/eu/solven"));
+		// Siblings of the included directory
+		Assertions.assertThat(skipDirectory).accepts(fs.getPath("docs"), fs.getPath("src/test"));
+		// Excluded subtrees, at any depth
+		Assertions.assertThat(skipDirectory)
+				.accepts(fs.getPath("src/main/java/node_modules"), fs.getPath("src/main/java/eu/node_modules"));
+		// Regex excludes are not analyzed
+		Assertions.assertThat(skipDirectory).rejects(fs.getPath("src/main/java/target"));
+	}
+
+	@Test
+	public void testDirectoryPruner_includeAnywhere() {
+		var skipDirectory =
+				IncludeExcludeHelpers.prepareDirectoryPruner(fs, List.of("glob:**/*.java"), List.of("**/target/**"));
+
+		Assertions.assertThat(skipDirectory).rejects(fs.getPath("src"), fs.getPath("docs"));
+		Assertions.assertThat(skipDirectory).accepts(fs.getPath("target"), fs.getPath("module/target"));
+	}
 }
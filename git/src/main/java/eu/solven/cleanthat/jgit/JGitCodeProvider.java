@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.eclipse.jgit.api.CloneCommand;
@@ -49,6 +50,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
 
 import eu.solven.cleanthat.code_provider.CleanthatPathHelpers;
 import eu.solven.cleanthat.codeprovider.DummyCodeProviderFile;
@@ -56,6 +58,8 @@ import eu.solven.cleanthat.codeprovider.ICodeProvider;
 import eu.solven.cleanthat.codeprovider.ICodeProviderFile;
 import eu.solven.cleanthat.codeprovider.ICodeProviderWriter;
 import eu.solven.cleanthat.codeprovider.ICodeWritingMetadata;
+import eu.solven.cleanthat.config.IncludeExcludeHelpers;
+import eu.solven.cleanthat.formatter.PathAndContent;
 
 /**
  * An {@link ICodeProvider} for Github pull-requests
@@ -104,13 +108,23 @@ public class JGitCodeProvider implements ICodeProviderWriter {
 	@Override
 	public void listFilesForContent(Set<String> includePatterns, Consumer<ICodeProviderFile> consumer)
 			throws IOException {
+		listFilesForContent(includePatterns, Set.of(), consumer);
+	}
+
+	@Override
+	public void listFilesForContent(Set<String> includePatterns,
+			Set<String> excludePatterns,
+			Consumer<ICodeProviderFile> consumer) throws IOException {
 		LOGGER.debug("About to list files");
 
-		walkFiles(consumer, "");
+		var skipDirectory = IncludeExcludeHelpers
+				.prepareDirectoryPruner(getRepositoryRoot().getFileSystem(), includePatterns, excludePatterns);
+		walkFiles(consumer, skipDirectory, "");
 	}
 
 	// https://github.com/centic9/jgit-cookbook/blob/master/src/main/java/org/dstadler/jgit/api/ListFilesOfCommitAndTag.java
-	private void walkFiles(Consumer<ICodeProviderFile> consumer, String path) throws IOException {
+	private void walkFiles(Consumer<ICodeProviderFile> consumer, Predicate<Path> skipDirectory, String path)
+			throws IOException {
 		Repository localRepository = jgit.getRepository();
 		RevCommit revCommit = buildRevCommit(localRepository, commit);
 
@@ -121,11 +135,19 @@ public class JGitCodeProvider implements ICodeProviderWriter {
 		if (path.isEmpty()) {
 			try (TreeWalk treeWalk = new TreeWalk(localRepository)) {
 				treeWalk.addTree(localTree);
-				treeWalk.setRecursive(true);
+				// Not recursive, so that we do not enter subtrees which can not hold a relevant file
+				treeWalk.setRecursive(false);
 				treeWalk.setPostOrderTraversal(false);
 
 				while (treeWalk.next()) {
-					acceptLocalTreeWalk(consumer, treeWalk);
+					if (!treeWalk.isSubtree()) {
+						acceptLocalTreeWalk(consumer, treeWalk);
+					} else if (skipDirectory.test(
+							CleanthatPathHelpers.makeContentPath(getRepositoryRoot(), treeWalk.getPathString()))) {
+						LOGGER.debug("Skip subtree: {}", treeWalk.getPathString());
+					} else {
+						treeWalk.enterSubtree();
+					}
 				}
 			}
 		} else {
@@ -152,7 +174,8 @@ public class JGitCodeProvider implements ICodeProviderWriter {
 
 	protected void acceptLocalTreeWalk(Consumer<ICodeProviderFile> consumer, TreeWalk treeWalk) {
 		Path path = CleanthatPathHelpers.makeContentPath(getRepositoryRoot(), treeWalk.getPathString());
-		consumer.accept(new DummyCodeProviderFile(path, path));
+		// The blob id is available from the tree, without loading the content
+		consumer.accept(new DummyCodeProviderFile(path, path, Optional.of(treeWalk.getObjectId(0).name())));
 	}
 
 	protected Path resolvePath(Path path) {
@@ -190,6 +213,12 @@ public class JGitCodeProvider implements ICodeProviderWriter {
 
 	@Override
 	public boolean persistChanges(Map<Path, String> pathToMutatedContent, ICodeWritingMetadata metadata) {
+		return persistEncodedChanges(Maps.transformEntries(pathToMutatedContent, PathAndContent::new), metadata);
+	}
+
+	@Override
+	public boolean persistEncodedChanges(Map<Path, PathAndContent> pathToMutatedContent,
+			ICodeWritingMetadata metadata) {
 		if (pathToMutatedContent.isEmpty()) {
 			return false;
 		}
@@ -204,8 +233,14 @@ public class JGitCodeProvider implements ICodeProviderWriter {
 			try {
 				// Typically needed for ".cleanthat" directory when writing '.cleanthat/cleanthat.yaml'
 				Files.createDirectories(resolvedPath.getParent());
-				Files.writeString(resolvedPath,
-						v,
+				byte[] bytes;
+				if (StandardCharsets.UTF_8.equals(v.getCharset())) {
+					bytes = v.getBytes();
+				} else {
+					bytes = v.getContent().getBytes(StandardCharsets.UTF_8);
+				}
+				Files.write(resolvedPath,
+						bytes,
 						// We may create new files (e.g. when initializing cleanthat configuration)
 						StandardOpenOption.CREATE,
 						// In most cases, we overwrite existing files
@@ -257,9 +292,26 @@ public class JGitCodeProvider implements ICodeProviderWriter {
 		}
 	}
 
+	@Override
+	public Optional<PathAndContent> loadEncodedContentForPath(Path path) throws IOException {
+		var resolvedPath = resolvePath(path);
+
+		if (resolvedPath.toFile().isFile()) {
+			return Optional.of(PathAndContent.ofBytes(path, Files.readAllBytes(resolvedPath), StandardCharsets.UTF_8));
+		} else {
+			return Optional.empty();
+		}
+	}
+
 	@Override
 	public String getRepoUri() {
-		return "TODO";
+		var originUrl = jgit.getRepository().getConfig().getString("remote", Constants.DEFAULT_REMOTE_NAME, "url");
+		if (Strings.isNullOrEmpty(originUrl)) {
+			// A local repository, with no remote
+			return workingDir.toUri().toString();
+		} else {
+			return originUrl;
+		}
 	}
 
 	public static String getHeadName(Repository repo) {
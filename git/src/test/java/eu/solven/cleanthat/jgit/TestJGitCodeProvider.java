@@ -15,17 +15,25 @@
  */
 package eu.solven.cleanthat.jgit;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import org.assertj.core.api.Assertions;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.google.common.jimfs.Jimfs;
 
+import eu.solven.cleanthat.codeprovider.GitBlobIds;
 import eu.solven.cleanthat.codeprovider.ICodeProviderFile;
 
 public class TestJGitCodeProvider {
@@ -40,6 +48,7 @@ public class TestJGitCodeProvider {
 				.isEqualTo("root/folder/file");
 		TreeWalk treeWalk = Mockito.mock(TreeWalk.class);
 		Mockito.when(treeWalk.getPathString()).thenReturn("root/folder/file");
+		Mockito.when(treeWalk.getObjectId(0)).thenReturn(ObjectId.zeroId());
 		codeProvider.acceptLocalTreeWalk(consumer, treeWalk);
 	}
 
@@ -50,4 +59,31 @@ public class TestJGitCodeProvider {
 		Assertions.assertThat(codeProvider.resolvePath(Paths.get("root/folder/file")).toString().replace('\\', '/'))
 				.isEqualTo("/git_root/git_folder/root/folder/file");
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testListFiles_skipSubtrees() throws IOException, GitAPIException {
+		var workingDir = Files.createTempDirectory("cleanthat-TestJGitCodeProvider");
+
+		for (var path : List.of("src/SomeClass.java", "src/node_modules/some.js", "docs/SomeDoc.java")) {
+			var file = workingDir.resolve(path);
+			Files.createDirectories(file.getParent());
+			Files.writeString(file, "someContent");
+		}
+
+		try (Git jgit = Git.init().setDirectory(workingDir.toFile()).call()) {
+			jgit.add().addFilepattern(".").call();
+			var commit = jgit.commit().setMessage("Initial commit").setSign(false).call();
+
+			JGitCodeProvider codeProvider = new JGitCodeProvider(workingDir, jgit, commit.getName(), false);
+
+			List<String> paths = new ArrayList<>();
+			codeProvider.listFilesForContent(Set.of("glob:src/**/*.java"), Set.of("glob:**/node_modules/**"), file -> {
+				paths.add(file.getPath().toString());
+				// The blob id is listed with the tree, before loading the content
+				Assertions.assertThat(file.getBlobId()).contains(GitBlobIds.ofContent("someContent"));
+			});
+
+			Assertions.assertThat(paths).containsExactly("src/SomeClass.java");
+		}
+	}
+}
@@ -16,16 +16,14 @@
 package eu.solven.cleanthat.code_provider.github.code_provider;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 
 import org.kohsuke.github.GHContent;
 import org.kohsuke.github.GHRepository;
 
-import com.google.common.base.Charsets;
-import com.google.common.io.CharStreams;
-
 import eu.solven.cleanthat.codeprovider.ICodeProvider;
+import eu.solven.cleanthat.formatter.PathAndContent;
 
 /**
  * An {@link ICodeProvider} for Github code. Sub-classes manages PR, ref/branches/...
@@ -47,6 +45,19 @@ public abstract class AGithubCodeProvider implements ICodeProvider {
 	}
 
 	public static String loadContent(GHRepository repository, String filename, String sha1) throws IOException {
+		// Malformed bytes are replaced, as when reading through a Reader
+		return new String(loadBytes(repository, filename, sha1), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 
+	 * @param repository
+	 * @param filename
+	 * @param sha1
+	 * @return the decoded Base64 bytes, without decoding them into a String
+	 * @throws IOException
+	 */
+	public static byte[] loadBytes(GHRepository repository, String filename, String sha1) throws IOException {
 		GHContent content = repository.getFileContent(filename, sha1);
 
 		if ("none".equals(content.getEncoding())) {
@@ -54,10 +65,17 @@ public abstract class AGithubCodeProvider implements ICodeProvider {
 			throw new FileIsTooBigException(content.getGitUrl(), content.getSize());
 		}
 
-		String asString;
-		try (var reader = new InputStreamReader(content.read(), Charsets.UTF_8)) {
-			asString = CharStreams.toString(reader);
+		try (var inputStream = content.read()) {
+			return inputStream.readAllBytes();
 		}
-		return asString;
+	}
+
+	/**
+	 * 
+	 * @param content
+	 * @return the content as a String, replacing malformed bytes
+	 */
+	protected static String decodeLeniently(PathAndContent content) {
+		return new String(content.getBytes(), content.getCharset());
 	}
 }
@@ -16,10 +16,13 @@
 package eu.solven.cleanthat.code_provider.github.code_provider;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.kohsuke.github.GHFileNotFoundException;
 import org.kohsuke.github.GHRepository;
@@ -31,6 +34,8 @@ import eu.solven.cleanthat.code_provider.CleanthatPathHelpers;
 import eu.solven.cleanthat.codeprovider.DummyCodeProviderFile;
 import eu.solven.cleanthat.codeprovider.ICodeProvider;
 import eu.solven.cleanthat.codeprovider.ICodeProviderFile;
+import eu.solven.cleanthat.config.IncludeExcludeHelpers;
+import eu.solven.cleanthat.formatter.PathAndContent;
 
 /**
  * An {@link ICodeProvider} for Github pull-requests
@@ -88,6 +93,12 @@ public abstract class AGithubSha1CodeProvider extends AGithubCodeProvider implem
 
 	@Override
 	public void listFilesForContent(Set<String> patterns, Consumer<ICodeProviderFile> consumer) throws IOException {
+		listFilesForContent(patterns, Set.of(), consumer);
+	}
+
+	@Override
+	public void listFilesForContent(Set<String> patterns, Set<String> excludes, Consumer<ICodeProviderFile> consumer)
+			throws IOException {
 		// https://stackoverflow.com/questions/25022016/get-all-file-names-from-a-github-repo-through-the-github-api
 		String sha = getSha1();
 
@@ -101,25 +112,43 @@ public abstract class AGithubSha1CodeProvider extends AGithubCodeProvider implem
 			LOGGER.info(
 					"Tree.size()=={} -> We will not rely on API to fetch each files, but rather create a local copy (wget zip, git clone, ...)",
 					treeSize);
-			helper.listFilesLocally(consumer);
+			helper.listFilesLocally(patterns, excludes, consumer);
 		} else {
-			processTree(tree, consumer);
+			var skipDirectory = IncludeExcludeHelpers
+					.prepareDirectoryPruner(getRepositoryRoot().getFileSystem(), patterns, excludes);
+			processTree(tree, skipDirectory, consumer);
 		}
 	}
 
 	private void processTree(GHTree tree, Consumer<ICodeProviderFile> consumer) {
+		processTree(tree, p -> false, consumer);
+	}
+
+	private void processTree(GHTree tree, Predicate<Path> skipDirectory, Consumer<ICodeProviderFile> consumer) {
 		if (tree.isTruncated()) {
 			LOGGER.debug("Should we process some folders independantly?");
 		}
 
+		// The tree is recursive: entries of a skipped subtree are listed anyway, and discarded given their ancestors
+		Set<Path> skippedDirectories = new HashSet<>();
+
 		// https://stackoverflow.com/questions/25022016/get-all-file-names-from-a-github-repo-through-the-github-api
 		tree.getTree().forEach(ghTreeEntry -> {
 			if ("blob".equals(ghTreeEntry.getType())) {
 				Path contentPath = CleanthatPathHelpers.makeContentPath(getRepositoryRoot(), ghTreeEntry.getPath());
-				consumer.accept(new DummyCodeProviderFile(contentPath, ghTreeEntry));
+				if (!isInSkippedDirectory(skippedDirectories, contentPath)) {
+					consumer.accept(
+							new DummyCodeProviderFile(contentPath, ghTreeEntry, Optional.of(ghTreeEntry.getSha())));
+				}
 			} else if ("tree".equals(ghTreeEntry.getType())) {
 				LOGGER.debug("Discard tree as original call for tree was recursive: {}", ghTreeEntry);
 
+				Path contentPath = CleanthatPathHelpers.makeContentPath(getRepositoryRoot(), ghTreeEntry.getPath());
+				if (skipDirectory.test(contentPath)) {
+					LOGGER.debug("Skip subtree: {}", contentPath);
+					skippedDirectories.add(contentPath);
+				}
+
 				// GHTree subTree;
 				// try {
 				// subTree = ghTreeEntry.asTree();
@@ -134,6 +163,19 @@ public abstract class AGithubSha1CodeProvider extends AGithubCodeProvider implem
 		});
 	}
 
+	private static boolean isInSkippedDirectory(Set<Path> skippedDirectories, Path contentPath) {
+		if (skippedDirectories.isEmpty()) {
+			return false;
+		}
+
+		for (var parent = contentPath.getParent(); parent != null; parent = parent.getParent()) {
+			if (skippedDirectories.contains(parent)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public Optional<String> loadContentForPath(Path contentPath) throws IOException {
 		CleanthatPathHelpers.checkContentPath(contentPath);
@@ -143,10 +185,27 @@ public abstract class AGithubSha1CodeProvider extends AGithubCodeProvider implem
 			var contentRawPath = contentPath.toString();
 			// We have a local clone: load the file from it
 			return helper.localClone.get().loadContentForPath(contentRawPath);
+		} else {
+			return loadEncodedContentForPath(contentPath).map(AGithubCodeProvider::decodeLeniently);
+		}
+	}
+
+	@Override
+	public Optional<PathAndContent> loadEncodedContentForPath(Path contentPath) throws IOException {
+		CleanthatPathHelpers.checkContentPath(contentPath);
+
+		var localClone = helper.localClone.get();
+		if (localClone != null) {
+			// Switch to a path of the underlying ICodeProvider, as it has a different root
+			var clonePath =
+					CleanthatPathHelpers.makeContentPath(localClone.getRepositoryRoot(), contentPath.toString());
+			// We have a local clone: load the file from it
+			return localClone.loadEncodedContentForPath(clonePath);
 		} else {
 			try {
 				String rawPath = CleanthatPathHelpers.makeContentRawPath(getRepositoryRoot(), contentPath);
-				return Optional.of(loadContent(repo, rawPath, getSha1()));
+				return Optional.of(PathAndContent
+						.ofBytes(contentPath, loadBytes(repo, rawPath, getSha1()), StandardCharsets.UTF_8));
 			} catch (GHFileNotFoundException e) {
 				LOGGER.trace("We miss: {}", contentPath, e);
 				LOGGER.debug("We miss: {}", contentPath);
@@ -23,6 +23,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -79,6 +80,13 @@ public class GithubSha1CodeProviderHelper {
 		localClone.get().listFilesForContent(consumer);
 	}
 
+	public void listFilesLocally(Set<String> includes, Set<String> excludes, Consumer<ICodeProviderFile> consumer)
+			throws IOException {
+		ensureLocalClone();
+
+		localClone.get().listFilesForContent(includes, excludes, consumer);
+	}
+
 	/**
 	 * 
 	 * @return true if we indeed clone locally. False if already cloned locally
@@ -17,6 +17,7 @@ package eu.solven.cleanthat.code_provider.github.refs;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Optional;
 import java.util.Set;
@@ -40,6 +41,7 @@ import eu.solven.cleanthat.codeprovider.DummyCodeProviderFile;
 import eu.solven.cleanthat.codeprovider.ICodeProvider;
 import eu.solven.cleanthat.codeprovider.ICodeProviderFile;
 import eu.solven.cleanthat.codeprovider.IListOnlyModifiedFiles;
+import eu.solven.cleanthat.formatter.PathAndContent;
 import eu.solven.pepper.logging.PepperLogHelper;
 
 /**
@@ -107,7 +109,7 @@ public abstract class AGithubDiffCodeProvider extends AGithubCodeProvider implem
 				LOGGER.debug("Skip a removed file: {}", fileName);
 			} else {
 				Path contentPath = CleanthatPathHelpers.makeContentPath(getRepositoryRoot(), fileName);
-				consumer.accept(new DummyCodeProviderFile(contentPath, prFile));
+				consumer.accept(new DummyCodeProviderFile(contentPath, prFile, Optional.ofNullable(prFile.getSha())));
 			}
 		});
 	}
@@ -119,9 +121,15 @@ public abstract class AGithubDiffCodeProvider extends AGithubCodeProvider implem
 
 	@Override
 	public Optional<String> loadContentForPath(Path contentPath) throws IOException {
+		return loadEncodedContentForPath(contentPath).map(AGithubCodeProvider::decodeLeniently);
+	}
+
+	@Override
+	public Optional<PathAndContent> loadEncodedContentForPath(Path contentPath) throws IOException {
 		String rawPath = CleanthatPathHelpers.makeContentRawPath(getRepositoryRoot(), contentPath);
 		try {
-			return Optional.of(loadContent(baseRepository, rawPath, getHeadId()));
+			return Optional.of(PathAndContent
+					.ofBytes(contentPath, loadBytes(baseRepository, rawPath, getHeadId()), StandardCharsets.UTF_8));
 		} catch (GHFileNotFoundException e) {
 			LOGGER.trace("We miss: {}", contentPath, e);
 			LOGGER.debug("We miss: {}", contentPath);
@@ -17,6 +17,7 @@ package eu.solven.cleanthat.code_provider.github.refs;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Map;
 import java.util.Optional;
@@ -31,6 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import eu.solven.cleanthat.code_provider.CleanthatPathHelpers;
+import eu.solven.cleanthat.code_provider.github.code_provider.AGithubCodeProvider;
 import eu.solven.cleanthat.code_provider.github.code_provider.AGithubSha1CodeProvider;
 import eu.solven.cleanthat.codeprovider.DummyCodeProviderFile;
 import eu.solven.cleanthat.codeprovider.ICodeProvider;
@@ -38,6 +40,7 @@ import eu.solven.cleanthat.codeprovider.ICodeProviderFile;
 import eu.solven.cleanthat.codeprovider.ICodeProviderWriter;
 import eu.solven.cleanthat.codeprovider.ICodeWritingMetadata;
 import eu.solven.cleanthat.codeprovider.IListOnlyModifiedFiles;
+import eu.solven.cleanthat.formatter.PathAndContent;
 import eu.solven.cleanthat.git_abstraction.GithubRepositoryFacade;
 import eu.solven.cleanthat.github.IGitRefsConstants;
 
@@ -81,7 +84,7 @@ public class GithubPRCodeProvider extends AGithubSha1CodeProvider
 				LOGGER.debug("Skip a deleted file: {}", prFile.getFilename());
 			} else {
 				Path contentPath = CleanthatPathHelpers.makeContentPath(getRepositoryRoot(), prFile.getFilename());
-				consumer.accept(new DummyCodeProviderFile(contentPath, prFile));
+				consumer.accept(new DummyCodeProviderFile(contentPath, prFile, Optional.ofNullable(prFile.getSha())));
 			}
 		});
 	}
@@ -114,9 +117,16 @@ public class GithubPRCodeProvider extends AGithubSha1CodeProvider
 
 	@Override
 	public Optional<String> loadContentForPath(Path path) throws IOException {
+		return loadEncodedContentForPath(path).map(AGithubCodeProvider::decodeLeniently);
+	}
+
+	@Override
+	public Optional<PathAndContent> loadEncodedContentForPath(Path path) throws IOException {
 		try {
 			var rawPath = CleanthatPathHelpers.makeContentRawPath(getRepositoryRoot(), path);
-			return Optional.of(loadContent(pr.getRepository(), rawPath, pr.getHead().getSha()));
+			return Optional.of(PathAndContent.ofBytes(path,
+					loadBytes(pr.getRepository(), rawPath, pr.getHead().getSha()),
+					StandardCharsets.UTF_8));
 		} catch (GHFileNotFoundException e) {
 			LOGGER.trace("We miss: {}", path, e);
 			LOGGER.debug("We miss: {}", path);
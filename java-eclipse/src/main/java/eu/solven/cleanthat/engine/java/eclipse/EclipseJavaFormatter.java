@@ -16,6 +16,7 @@
 package eu.solven.cleanthat.engine.java.eclipse;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -25,12 +26,20 @@ import org.eclipse.jdt.core.formatter.CodeFormatter;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
 import org.eclipse.text.edits.MalformedTreeException;
 import org.eclipse.text.edits.TextEdit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.hash.HashCode;
+
 import eu.solven.cleanthat.formatter.ILintFixerWithId;
+import eu.solven.cleanthat.formatter.ILintFixerWithLineRanges;
 import eu.solven.cleanthat.formatter.LineEnding;
 import eu.solven.pepper.logging.PepperLogHelper;
 
@@ -43,19 +52,49 @@ import eu.solven.pepper.logging.PepperLogHelper;
 // Example configurations:
 // https://raw.githubusercontent.com/spring-io/spring-javaformat/master/.eclipse/eclipse-code-formatter.xml
 // https://raw.githubusercontent.com/solven-eu/pepper/master/static/src/main/resources/eclipse/eclipse_java_code_formatter.xml
-public class EclipseJavaFormatter implements ILintFixerWithId {
+public class EclipseJavaFormatter implements ILintFixerWithId, ILintFixerWithLineRanges {
 	private static final Logger LOGGER = LoggerFactory.getLogger(EclipseJavaFormatter.class);
 
 	public static final String ID = "eclipse_formatter";
 
+	// A session generally relies on a single configuration, but the stylesheet generator may iterate through many
+	private static final int MAX_FORMATTERS_PER_THREAD = 4;
+
+	// A CodeFormatter is not thread-safe, but it can be re-used sequentially. Creating it is costly as it parses the
+	// whole options Map. Hence, we keep a few formatters per thread, keyed by the hash of their settings (LRU eviction)
+	private static final ThreadLocal<Map<HashCode, CodeFormatter>> THREAD_TO_FORMATTERS =
+			ThreadLocal.withInitial(() -> new LinkedHashMap<>(MAX_FORMATTERS_PER_THREAD, 0.75F, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<HashCode, CodeFormatter> eldest) {
+					return size() > MAX_FORMATTERS_PER_THREAD;
+				}
+			});
+
 	private final Map<String, String> defaultSettings;
+	private final HashCode settingsHash;
+	private final boolean changedLinesOnly;
 
 	// For statistics purposes
 	private static final AtomicInteger NB_FORMATTED = new AtomicInteger();
 	private static final AtomicLong TIME_FORMATTING = new AtomicLong();
+	private static final AtomicInteger NB_FORMATTER_CREATED = new AtomicInteger();
 
 	public EclipseJavaFormatter(EclipseJavaFormatterConfiguration configuration) {
+		this(configuration, false);
+	}
+
+	/**
+	 *
+	 * @param configuration
+	 * @param changedLinesOnly
+	 *            if true, only the lines changed by the previous lintFixers of the engine are formatted
+	 */
+	public EclipseJavaFormatter(EclipseJavaFormatterConfiguration configuration, boolean changedLinesOnly) {
 		defaultSettings = configuration.getSettings();
+		settingsHash = configuration.getSettingsHash();
+		this.changedLinesOnly = changedLinesOnly;
 	}
 
 	@Override
@@ -63,17 +102,68 @@ public class EclipseJavaFormatter implements ILintFixerWithId {
 		return ID;
 	}
 
+	@Override
+	public boolean isChangedLinesOnly() {
+		return changedLinesOnly;
+	}
+
+	/**
+	 * The {@link CodeFormatter} are held by a {@link ThreadLocal}: this can be shared by multiple threads.
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 	@Override
 	public String doFormat(String code) throws IOException {
-		// Make a new formatter to enable thread-safety
-		CodeFormatter formatter = makeFormatter();
+		return doFormat(code, new IRegion[] { new Region(0, code.length()) });
+	}
+
+	@Override
+	public String doFormat(String code, RangeSet<Integer> lineIndexes) throws IOException {
+		return doFormat(code, toRegions(new Document(code), lineIndexes));
+	}
+
+	/**
+	 *
+	 * @param doc
+	 * @param lineIndexes
+	 * @return the {@link IRegion}s covering given lines, including their line delimiters.
+	 */
+	protected IRegion[] toRegions(IDocument doc, RangeSet<Integer> lineIndexes) {
+		var lastLine = doc.getNumberOfLines() - 1;
+		return lineIndexes.subRangeSet(Range.closed(0, lastLine)).asRanges().stream().map(range -> {
+			// canonical ranges are [lower, upper)
+			var canonical = range.canonical(DiscreteDomain.integers());
+			int firstLine = canonical.lowerEndpoint();
+			int endLine = canonical.upperEndpoint() - 1;
+
+			try {
+				var offset = doc.getLineOffset(firstLine);
+				var endOffset = doc.getLineOffset(endLine) + doc.getLineLength(endLine);
+				return new Region(offset, endOffset - offset);
+			} catch (BadLocationException e) {
+				throw new IllegalArgumentException("Invalid lines: " + range, e);
+			}
+		}).filter(region -> region.getLength() > 0).toArray(IRegion[]::new);
+	}
+
+	protected String doFormat(String code, IRegion[] regions) {
+		if (regions.length == 0) {
+			LOGGER.debug("No region to format");
+			return code;
+		}
+
+		// Each thread has its own formatters to enable thread-safety
+		CodeFormatter formatter = getFormatter();
 
 		var start = System.currentTimeMillis();
 		TextEdit textEdit;
 		try {
 			var eolChars = LineEnding.getOrGuess(LineEnding.NATIVE, () -> code);
 			textEdit = formatter.format(CodeFormatter.K_COMPILATION_UNIT
-					| CodeFormatter.F_INCLUDE_COMMENTS, code, 0, code.length(), 0, eolChars);
+					| CodeFormatter.F_INCLUDE_COMMENTS, code, regions, 0, eolChars);
 			if (textEdit == null) {
 				LOGGER.warn("Code cannot be formatted. Possible cause is unmatched source/target/compliance version.");
 				return null;
@@ -110,7 +200,20 @@ public class EclipseJavaFormatter implements ILintFixerWithId {
 		return formattedCode;
 	}
 
-	private CodeFormatter makeFormatter() {
+	/**
+	 *
+	 * @return a {@link CodeFormatter} for current settings, which may have been used by previous calls on current
+	 *         thread.
+	 */
+	protected CodeFormatter getFormatter() {
+		return THREAD_TO_FORMATTERS.get().computeIfAbsent(settingsHash, k -> makeFormatter());
+	}
+
+	protected CodeFormatter makeFormatter() {
+		var nbCreated = NB_FORMATTER_CREATED.incrementAndGet();
+		if (Integer.bitCount(nbCreated) == 1) {
+			LOGGER.info("Total Eclipse CodeFormatter created: {}", nbCreated);
+		}
 		return ToolFactory.createCodeFormatter(defaultSettings, ToolFactory.M_FORMAT_EXISTING);
 	}
 }
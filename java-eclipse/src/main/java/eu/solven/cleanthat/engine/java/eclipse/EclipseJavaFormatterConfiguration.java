@@ -15,23 +15,35 @@
  */
 package eu.solven.cleanthat.engine.java.eclipse;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
 
 import org.eclipse.jdt.core.JavaCore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.xml.sax.SAXException;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import eu.solven.cleanthat.codeprovider.ICodeProvider;
 import eu.solven.cleanthat.codeprovider.resource.CleanthatUrlLoader;
@@ -51,11 +63,34 @@ public class EclipseJavaFormatterConfiguration {
 
 	private static final String KEY_URL = "url";
 
+	// Parsed settings, given the hash of the stylesheet content
+	private static final Cache<HashCode, Map<String, String>> CONTENT_TO_SETTINGS =
+			CacheBuilder.newBuilder().maximumSize(64).recordStats().build();
+
+	// Stylesheet contents, given their resolved location. Only the contents which can not change during the JVM
+	// lifetime (i.e. from the classpath) are cached
+	private static final Cache<String, byte[]> LOCATION_TO_CONTENT =
+			CacheBuilder.newBuilder().maximumSize(16).recordStats().build();
+
 	private final Map<String, String> settings;
 
+	// Computed once, as the settings are used as a key to cache the CodeFormatters
+	private final HashCode settingsHash;
+
 	public EclipseJavaFormatterConfiguration(Map<String, String> settings) {
 		// Sorted for human-friendliness
 		this.settings = ImmutableMap.copyOf(new TreeMap<>(settings));
+		this.settingsHash = hashSettings(this.settings);
+	}
+
+	private static HashCode hashSettings(Map<String, String> sortedSettings) {
+		var hasher = Hashing.sha256().newHasher();
+		sortedSettings.forEach((key, value) -> {
+			// Lengths are hashed, so that ("ab", "c") and ("a", "bc") are different
+			hasher.putInt(key.length()).putString(key, StandardCharsets.UTF_8);
+			hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+		});
+		return hasher.hash();
 	}
 
 	public static EclipseJavaFormatterConfiguration load(ICodeProvider codeProvider,
@@ -93,17 +128,70 @@ public class EclipseJavaFormatterConfiguration {
 	}
 
 	public static EclipseJavaFormatterConfiguration loadResource(Resource resource) {
+		byte[] content;
+		if (resource instanceof ClassPathResource) {
+			content = loadClasspathContent(resource);
+		} else {
+			// Other contents may change (e.g. a repository content differs between refs, a file is re-generated). Moreover,
+			// loading a repository content through the codeProvider records it as a reference of the engine
+			content = loadContent(resource);
+		}
+
+		// The same stylesheet is typically loaded by each engine build, and by the stylesheet generator
+		var contentHash = Hashing.murmur3_128().hashBytes(content);
+		Map<String, String> settings = CONTENT_TO_SETTINGS.getIfPresent(contentHash);
+		if (settings == null) {
+			settings = parseSettings(content);
+			CONTENT_TO_SETTINGS.put(contentHash, settings);
+		} else {
+			LOGGER.debug("Cache-hit for the settings of {}", resource);
+		}
+		return new EclipseJavaFormatterConfiguration(settings);
+	}
+
+	private static byte[] loadClasspathContent(Resource resource) {
+		String location;
+		try {
+			location = resource.getURL().toString();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		try {
+			return LOCATION_TO_CONTENT.get(location, () -> loadContent(resource));
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			Throwables.throwIfUnchecked(e.getCause());
+			throw new IllegalStateException("Issue loading: " + resource, e.getCause());
+		}
+	}
+
+	private static byte[] loadContent(Resource resource) {
 		try (var is = resource.getInputStream()) {
-			try {
-				Map<String, String> settings = new ConfigReader().read(is);
-				return new EclipseJavaFormatterConfiguration(settings);
-			} catch (SAXException | ConfigReadException e) {
-				throw new RuntimeException("Issue parsing config", e);
-			}
+			return is.readAllBytes();
 		} catch (MalformedURLException e) {
 			throw new IllegalArgumentException("Invalid java.config_uri: " + resource, e);
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
 	}
+
+	private static Map<String, String> parseSettings(byte[] content) {
+		try (var is = new ByteArrayInputStream(content)) {
+			return ImmutableMap.copyOf(new TreeMap<>(new ConfigReader().read(is)));
+		} catch (SAXException | ConfigReadException e) {
+			throw new RuntimeException("Issue parsing config", e);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@VisibleForTesting
+	static CacheStats getCacheStats() {
+		return CONTENT_TO_SETTINGS.stats();
+	}
+
+	@VisibleForTesting
+	static CacheStats getLocationCacheStats() {
+		return LOCATION_TO_CONTENT.stats();
+	}
 }
@@ -17,19 +17,34 @@ package eu.solven.cleanthat.engine.java.eclipse.generator;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 import org.apache.commons.text.similarity.LevenshteinDistance;
 
 import com.github.difflib.DiffUtils;
+import com.github.difflib.patch.AbstractDelta;
 import com.github.difflib.patch.DeltaType;
 import com.github.difflib.patch.Patch;
 import com.github.difflib.patch.PatchFailedException;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.math.LongMath;
 
 import eu.solven.cleanthat.formatter.ILintFixer;
 
@@ -41,19 +56,88 @@ import eu.solven.cleanthat.formatter.ILintFixer;
  */
 public class CodeDiffHelper {
 
+	// Each entry holds a 128-bit HashCode and a Long: all entries have the same footprint (about 128 bytes, given their
+	// headers and the cache internal structures). Hence, the cache is bounded by its number of entries: 512K entries
+	// for about 64MB
+	private static final long MAX_CACHE_ENTRIES = 512L * 1024;
+
+	private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private static final Pattern EOL_PATTERN = Pattern.compile("[\r\n]+");
+
 	// Compute the diff can be expensive. However, we expect to encounter many times
 	// files formatted exactly the same
 	// way
-	protected final Cache<List<String>, Long> cache = CacheBuilder.newBuilder().build();
+	// The key is a hash of the original and formatted contents, not to retain all formatted variants in memory
+	protected final Cache<HashCode, Long> cache = CacheBuilder.newBuilder()
+			.maximumSize(MAX_CACHE_ENTRIES)
+			.recordStats()
+			.build();
+
+	// For statistics purposes
+	protected final AtomicLong nbFormatted = new AtomicLong();
+	protected final AtomicLong nbSkipped = new AtomicLong();
+	// The cumulated time spent formatting and diffing contents, to report the utilization of the threads
+	protected final AtomicLong busyNanos = new AtomicLong();
 
 	protected long computeDiffScore(ILintFixer formatter, Collection<String> contents) {
-		return contents.parallelStream().mapToLong(content -> {
-			try {
-				return computeDiffScore(formatter, content);
-			} catch (IOException e) {
-				throw new UncheckedIOException(e);
+		return computeDiffScore(formatter, contents, Long.MAX_VALUE);
+	}
+
+	/**
+	 * 
+	 * @param formatter
+	 * @param contents
+	 *            the contents to score. They should be ordered so that the most discriminating contents come first.
+	 * @param maxScore
+	 *            once the running score is above this value, remaining contents are not formatted anymore.
+	 * @return the sum of the scores of given contents, or a score strictly above maxScore if the computation has been
+	 *         interrupted early.
+	 */
+	protected long computeDiffScore(ILintFixer formatter, Collection<String> contents, long maxScore) {
+		var runningScore = new AtomicLong();
+
+		// Contents are processed by chunks: each thread formats sequentially a chunk with the same settings, which
+		// enables re-using its formatter. There is a few chunks per thread for work-stealing to balance the load
+		var chunkSize = Math.max(1, contents.size() / (getParallelism() * CHUNKS_PER_THREAD));
+		Lists.partition(List.copyOf(contents), chunkSize).parallelStream().forEach(chunk -> {
+			for (String content : chunk) {
+				if (runningScore.get() > maxScore) {
+					// This candidate is already worse than the best known candidate
+					nbSkipped.incrementAndGet();
+					continue;
+				}
+
+				var start = System.nanoTime();
+				long score;
+				try {
+					// The budget left to this file before the candidate is known to be worse
+					score = computeDiffScore(formatter, content, maxScore - runningScore.get());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				busyNanos.addAndGet(System.nanoTime() - start);
+				nbFormatted.incrementAndGet();
+				// A failure to format leads to a Long.MAX_VALUE score: do not overflow
+				runningScore.accumulateAndGet(score, LongMath::saturatedAdd);
 			}
-		}).sum();
+		});
+
+		return runningScore.get();
+	}
+
+	/**
+	 * 
+	 * @return the parallelism of the {@link ForkJoinPool} executing current task, or of the common pool.
+	 */
+	private static int getParallelism() {
+		var pool = ForkJoinTask.getPool();
+		if (pool == null) {
+			pool = ForkJoinPool.commonPool();
+		}
+		return pool.getParallelism();
 	}
 
 	/**
@@ -65,6 +149,20 @@ public class CodeDiffHelper {
 	 * @throws IOException
 	 */
 	protected long computeDiffScore(ILintFixer lintFixer, String content) throws IOException {
+		return computeDiffScore(lintFixer, content, Long.MAX_VALUE);
+	}
+
+	/**
+	 * 
+	 * @param lintFixer
+	 * @param content
+	 * @param maxScore
+	 *            the diff computation is interrupted as soon as the score is known to be above this value
+	 * @return a score indicating how much this formatter impacts given content, or a score strictly above maxScore if
+	 *         the computation has been interrupted early.
+	 * @throws IOException
+	 */
+	protected long computeDiffScore(ILintFixer lintFixer, String content, long maxScore) throws IOException {
 		var formatted = lintFixer.doFormat(content);
 
 		if (formatted == null) {
@@ -72,18 +170,178 @@ public class CodeDiffHelper {
 			return Long.MAX_VALUE;
 		}
 
-		long deltaDiff;
-		try {
-			deltaDiff = cache.get(Arrays.asList(content, formatted), () -> deltaDiff(content, formatted));
-		} catch (ExecutionException e) {
-			throw new RuntimeException(e);
+		var hash = hash(content, formatted);
+		Long cached = cache.getIfPresent(hash);
+		if (cached != null) {
+			return cached;
+		}
+
+		long deltaDiff = deltaDiff(content, formatted, maxScore);
+		if (deltaDiff <= maxScore) {
+			// Only exact scores are cached
+			cache.put(hash, deltaDiff);
 		}
 		return deltaDiff;
 	}
 
-	public long deltaDiff(String pathAsString, String formatted) {
-		List<String> originalRows = Arrays.asList(pathAsString.split("[\r\n]+"));
-		List<String> formattedRows = Arrays.asList(formatted.split("[\r\n]+"));
+	protected HashCode hash(String content, String formatted) {
+		// The length prevents ambiguities on the frontier between the 2 Strings
+		return HASH_FUNCTION.newHasher()
+				.putInt(content.length())
+				.putUnencodedChars(content)
+				.putUnencodedChars(formatted)
+				.hash();
+	}
+
+	public CacheStats getCacheStats() {
+		return cache.stats();
+	}
+
+	public long deltaDiff(String original, String formatted) {
+		return deltaDiff(original, formatted, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Computes the same score than {@link #deltaDiffExhaustive(String, String)}, but faster: the common prefix and
+	 * suffix are trimmed before splitting rows, rows are diffed by identifiers, and the computation is interrupted once
+	 * the score is above maxScore.
+	 * 
+	 * @param original
+	 * @param formatted
+	 * @param maxScore
+	 * @return the diff score, or a score strictly above maxScore if the computation has been interrupted early.
+	 */
+	public long deltaDiff(String original, String formatted, long maxScore) {
+		if (original.equals(formatted)) {
+			return 0L;
+		}
+
+		var minLength = Math.min(original.length(), formatted.length());
+
+		// Trim the common prefix, up to the end of the last common row
+		var prefix = 0;
+		while (prefix < minLength && original.charAt(prefix) == formatted.charAt(prefix)) {
+			prefix++;
+		}
+		var rowsStart = 0;
+		for (var i = prefix - 1; i >= 0; i--) {
+			if (isEol(original.charAt(i))) {
+				rowsStart = i + 1;
+				break;
+			}
+		}
+
+		// Trim the common suffix, from the start of the first common row
+		var suffix = 0;
+		while (suffix < minLength - rowsStart && original.charAt(original.length() - 1 - suffix) == formatted
+				.charAt(formatted.length() - 1 - suffix)) {
+			suffix++;
+		}
+		var rowsEndFromEnd = 0;
+		for (var i = suffix - 1; i >= 0; i--) {
+			if (isEol(original.charAt(original.length() - 1 - i))) {
+				rowsEndFromEnd = i + 1;
+				break;
+			}
+		}
+
+		List<String> originalRows = splitRows(original, rowsStart, original.length() - rowsEndFromEnd);
+		List<String> formattedRows = splitRows(formatted, rowsStart, formatted.length() - rowsEndFromEnd);
+
+		// Each delta scores at least the difference of length between its source and its target: skip the diff if
+		// this lower-bound is already above maxScore
+		var lowerBound = Math.abs(
+				sumLength(originalRows, 0, originalRows.size()) - sumLength(formattedRows, 0, formattedRows.size()));
+		if (lowerBound > maxScore) {
+			return lowerBound;
+		}
+
+		// Diff rows by their identifiers, which is cheaper than comparing Strings
+		Map<String, Integer> rowToId = new HashMap<>();
+		List<Integer> originalIds = toIds(rowToId, originalRows);
+		List<Integer> formattedIds = toIds(rowToId, formattedRows);
+		Patch<Integer> diff = DiffUtils.diff(originalIds, formattedIds);
+
+		var deltaDiff = 0L;
+		for (AbstractDelta<Integer> delta : diff.getDeltas()) {
+			if (delta.getType() == DeltaType.EQUAL) {
+				continue;
+			}
+
+			var source = delta.getSource();
+			var target = delta.getTarget();
+			if (source.size() == 1 && target.size() == 1) {
+				var sourceLine = originalRows.get(source.getPosition());
+				var targetLine = formattedRows.get(target.getPosition());
+
+				// Interrupt the distance as soon as it can not be below maxScore
+				var threshold = (int) Math.min(Integer.MAX_VALUE - 1, maxScore - deltaDiff);
+				int distance = new LevenshteinDistance(threshold).apply(sourceLine, targetLine);
+				if (distance < 0) {
+					return maxScore + 1;
+				}
+				deltaDiff += distance;
+			} else {
+				var sourceSize = sumLength(originalRows, source.getPosition(), source.size());
+				var targetSize = sumLength(formattedRows, target.getPosition(), target.size());
+				// Given a diff, we consider the biggest square between the source and the
+				// target
+				deltaDiff += Math.max(sourceSize, targetSize);
+			}
+
+			if (deltaDiff > maxScore) {
+				return deltaDiff;
+			}
+		}
+		return deltaDiff;
+	}
+
+	private static boolean isEol(char c) {
+		return c == '\r' || c == '\n';
+	}
+
+	/**
+	 * 
+	 * @return the rows, as split by {@link #deltaDiffExhaustive(String, String)} would split the rows of the whole
+	 *         String. The range is expected to start at the beginning of a row, and end at the end of a row.
+	 */
+	private static List<String> splitRows(String string, int from, int to) {
+		if (from > 0) {
+			// Skip the EOL at the beginning, as they are part of the previous rows
+			while (from < to && isEol(string.charAt(from))) {
+				from++;
+			}
+			if (from == to) {
+				return Collections.emptyList();
+			}
+		}
+		return Arrays.asList(EOL_PATTERN.split(string.substring(from, to)));
+	}
+
+	private static List<Integer> toIds(Map<String, Integer> rowToId, List<String> rows) {
+		List<Integer> ids = new ArrayList<>(rows.size());
+		rows.forEach(row -> ids.add(rowToId.computeIfAbsent(row, r -> rowToId.size())));
+		return ids;
+	}
+
+	private static long sumLength(List<String> rows, int from, int size) {
+		var sum = 0L;
+		for (var i = from; i < from + size; i++) {
+			sum += rows.get(i).length();
+		}
+		return sum;
+	}
+
+	/**
+	 * The reference implementation of the diff score, over the whole contents.
+	 * 
+	 * @param pathAsString
+	 * @param formatted
+	 * @return the diff score
+	 */
+	public long deltaDiffExhaustive(String pathAsString, String formatted) {
+		List<String> originalRows = Arrays.asList(EOL_PATTERN.split(pathAsString));
+		List<String> formattedRows = Arrays.asList(EOL_PATTERN.split(formatted));
 		Patch<String> diff = DiffUtils.diff(originalRows, formattedRows);
 		List<String> patchApplied;
 		try {
@@ -17,24 +17,37 @@ package eu.solven.cleanthat.engine.java.eclipse.generator;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
@@ -44,11 +57,19 @@ import org.slf4j.LoggerFactory;
 import org.springframework.core.io.ClassPathResource;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.MapDifference;
+import com.google.common.collect.Maps;
 import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.math.LongMath;
+import com.google.common.primitives.Ints;
 
 import eu.solven.cleanthat.engine.java.eclipse.EclipseJavaFormatter;
 import eu.solven.cleanthat.engine.java.eclipse.EclipseJavaFormatterConfiguration;
@@ -73,8 +94,22 @@ public class EclipseStylesheetGenerator implements IEclipseStylesheetGenerator {
 	// However, the point of this procedure is generally to generate a stylesheet enforcing some style
 	private boolean tryOptionsKeepingExistingFormat = false;
 
+	// Candidates are first evaluated over a sample of files, for successive-halving. The full corpus decides between
+	// the NB_FINALISTS best candidates
+	private static final int NB_FINALISTS = 2;
+	private int minSampleSize = 16;
+	// The seed used to sample files, for reproducibility
+	private long sampleSeed = 0;
+	// The sensitivity probe formats only a sample of the files
+	private int probeSampleSize = 64;
+	// The number of threads of the pool dedicated to the search
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
 	final CodeDiffHelper diffHelper = new CodeDiffHelper();
 
+	private final Supplier<Map<String, Map<String, String>>> defaultConfigurations =
+			Suppliers.memoize(this::computeDefaultConfigurations);
+
 	// This is useful to start optimizing these parameters, before optimizing other
 	// parameters which behavior depends on these first parameters
 	protected Set<String> getMostImpactfulSettings() {
@@ -89,6 +124,22 @@ public class EclipseStylesheetGenerator implements IEclipseStylesheetGenerator {
 		this.tryOptionsKeepingExistingFormat = tryOptionsKeepingExistingFormat;
 	}
 
+	public void setMinSampleSize(int minSampleSize) {
+		this.minSampleSize = minSampleSize;
+	}
+
+	public void setSampleSeed(long sampleSeed) {
+		this.sampleSeed = sampleSeed;
+	}
+
+	public void setProbeSampleSize(int probeSampleSize) {
+		this.probeSampleSize = probeSampleSize;
+	}
+
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
 	/**
 	 * This method is useful to generate automatically an Eclipse configuration which match an existing code-base. It is
 	 * especially useful for people NOT using Eclipse IDE.
@@ -99,6 +150,10 @@ public class EclipseStylesheetGenerator implements IEclipseStylesheetGenerator {
 	 */
 	@Override
 	public Map<String, String> generateSettings(OffsetDateTime timeout, Map<Path, String> pathToFile) {
+		return runInSearchPool(() -> doGenerateSettings(timeout, pathToFile));
+	}
+
+	protected Map<String, String> doGenerateSettings(OffsetDateTime timeout, Map<Path, String> pathToFile) {
 		ScoredOption<Map<String, String>> bestDefaultConfig = findBestDefaultSetting(timeout, pathToFile);
 
 		if (pathToFile.isEmpty()) {
@@ -133,6 +188,245 @@ public class EclipseStylesheetGenerator implements IEclipseStylesheetGenerator {
 		return searchForOptimalConfiguration(timeout, pathToFile, bestDefaultConfig).getOption();
 	}
 
+	/**
+	 * The search is executed by a dedicated {@link ForkJoinPool}: the parallel streams of the search (over candidates,
+	 * and over chunks of files) are then executed by this pool instead of the common pool, shared with the rest of the
+	 * JVM. Nested tasks are balanced by work-stealing.
+	 * 
+	 * @param search
+	 * @return the result of the search
+	 */
+	protected <T> T runInSearchPool(Supplier<T> search) {
+		var pool = new ForkJoinPool(parallelism, p -> {
+			var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+			thread.setName("Cleanthat-EclipseStylesheet-" + thread.getPoolIndex());
+			return thread;
+		}, null, false);
+
+		var busyBefore = diffHelper.busyNanos.get();
+		var start = System.nanoTime();
+		try {
+			return pool.invoke(ForkJoinTask.adapt((Callable<T>) search::get));
+		} finally {
+			pool.shutdown();
+
+			var busyNanos = diffHelper.busyNanos.get() - busyBefore;
+			var availableNanos = Math.max(1L, (System.nanoTime() - start) * parallelism);
+			LOGGER.info("Formatted {} files ({} formats skipped by early-abort). Diff cache: {}",
+					diffHelper.nbFormatted.get(),
+					diffHelper.nbSkipped.get(),
+					diffHelper.getCacheStats());
+			LOGGER.info("Search pool: parallelism={} utilization={}% steals={}",
+					parallelism,
+					busyNanos * 100 / availableNanos,
+					pool.getStealCount());
+		}
+	}
+
+	/**
+	 * Similar to {@link #generateSettings(OffsetDateTime, Map)}, but returns the summary of the search. It enables a
+	 * later search to start from the produced stylesheet.
+	 *
+	 * @param timeout
+	 * @param repositoryRoot
+	 *            the paths are recorded in the summary relatively to this root
+	 * @param pathToFile
+	 * @return the summary of this search, holding the optimal settings
+	 */
+	public EclipseStylesheetSearchSummary generateSettings(OffsetDateTime timeout,
+			Path repositoryRoot,
+			Map<Path, String> pathToFile) {
+		return runInSearchPool(() -> {
+			Map<String, String> settings = doGenerateSettings(timeout, pathToFile);
+
+			Map<String, String> rawPathToContent = toRawPathToContent(repositoryRoot, pathToFile);
+			Map<String, String> pathToHash =
+					ImmutableMap.copyOf(Maps.transformValues(rawPathToContent, EclipseStylesheetGenerator::hash));
+
+			SetMultimap<String, String> contentToPaths = MultimapBuilder.hashKeys().treeSetValues().build();
+			rawPathToContent.forEach((path, content) -> contentToPaths.put(content, path));
+
+			// The probe is cheap, as it is done over a sample. It is not limited by the timeout, as an unknown impact
+			// would record each path as impacted by each setting
+			SetMultimap<String, String> settingToImpactedPaths = MultimapBuilder.treeKeys().treeSetValues().build();
+			probeSensitivity(OffsetDateTime.MAX, settings, contentToPaths.keySet(), getAllSetttings()).entries()
+					.forEach(e -> settingToImpactedPaths.putAll(e.getKey(), contentToPaths.get(e.getValue())));
+
+			return summarize(rawPathToContent, pathToHash, settings, settingToImpactedPaths);
+		});
+	}
+
+	/**
+	 * Similar to {@link #generateSettings(OffsetDateTime, Map)}, but the search starts from an existing stylesheet
+	 * instead of the standard configurations. The settings impacting the files which changed since the previous search
+	 * are re-evaluated first, as the other settings are expected to be already optimal.
+	 *
+	 * @param timeout
+	 * @param repositoryRoot
+	 *            the paths are recorded in the summary relatively to this root, so that the summary can be re-used from
+	 *            another folder or another machine
+	 * @param pathToFile
+	 * @param initialSettings
+	 *            typically the stylesheet produced by a previous search
+	 * @param optPreviousSummary
+	 *            the summary of the previous search. If empty, all files are considered as changed.
+	 * @return the summary of this search, holding the optimal settings
+	 */
+	public EclipseStylesheetSearchSummary generateSettings(OffsetDateTime timeout,
+			Path repositoryRoot,
+			Map<Path, String> pathToFile,
+			Map<String, String> initialSettings,
+			Optional<EclipseStylesheetSearchSummary> optPreviousSummary) {
+		return runInSearchPool(
+				() -> doGenerateSettings(timeout, repositoryRoot, pathToFile, initialSettings, optPreviousSummary));
+	}
+
+	protected EclipseStylesheetSearchSummary doGenerateSettings(OffsetDateTime timeout,
+			Path repositoryRoot,
+			Map<Path, String> pathToFile,
+			Map<String, String> initialSettings,
+			Optional<EclipseStylesheetSearchSummary> optPreviousSummary) {
+		ScoredOption<Map<String, String>> bestSettings =
+				computeScore(pathToFile.values(), new TreeMap<>(initialSettings));
+		LOGGER.info("Warm-start from a stylesheet with score={}", bestSettings.getScore());
+
+		EclipseStylesheetSearchSummary previousSummary =
+				optPreviousSummary.orElseGet(() -> EclipseStylesheetSearchSummary.builder().build());
+
+		Map<String, String> rawPathToContent = toRawPathToContent(repositoryRoot, pathToFile);
+
+		Map<String, String> pathToHash =
+				ImmutableMap.copyOf(Maps.transformValues(rawPathToContent, EclipseStylesheetGenerator::hash));
+		MapDifference<String, String> difference = Maps.difference(previousSummary.getPathToHash(), pathToHash);
+		// Removed paths are considered as changed, as they may have been the reason for some setting value
+		Set<String> changedPaths = ImmutableSet.<String>builder()
+				.addAll(difference.entriesDiffering().keySet())
+				.addAll(difference.entriesOnlyOnLeft().keySet())
+				.addAll(difference.entriesOnlyOnRight().keySet())
+				.build();
+		LOGGER.info("{} paths changed since the previous search, amongst {} paths",
+				changedPaths.size(),
+				pathToHash.size());
+
+		SetMultimap<String, String> settingToImpactedPaths = MultimapBuilder.treeKeys().treeSetValues().build();
+
+		// The impact over unchanged paths is restored from the previous search: only changed paths are probed
+		previousSummary.getSettingToImpactedPaths()
+				.forEach((setting, paths) -> paths.stream()
+						.filter(path -> rawPathToContent.containsKey(path) && !changedPaths.contains(path))
+						.forEach(path -> settingToImpactedPaths.put(setting, path)));
+		SetMultimap<String, String> contentToPaths = MultimapBuilder.hashKeys().treeSetValues().build();
+		rawPathToContent.entrySet()
+				.stream()
+				.filter(e -> changedPaths.contains(e.getKey()))
+				.forEach(e -> contentToPaths.put(e.getValue(), e.getKey()));
+		probeSensitivity(timeout, bestSettings.getOption(), contentToPaths.keySet(), getAllSetttings()).entries()
+				.forEach(e -> settingToImpactedPaths.putAll(e.getKey(), contentToPaths.get(e.getValue())));
+
+		SetMultimap<String, String> settingToImpactedContents = MultimapBuilder.treeKeys().hashSetValues().build();
+		settingToImpactedPaths
+				.forEach((setting, path) -> settingToImpactedContents.put(setting, rawPathToContent.get(path)));
+
+		// Settings impacting changed paths are processed first, and then settings with the worst score
+		Set<String> prioritizedSettings = new LinkedHashSet<>();
+		Set<String> otherSettings = new LinkedHashSet<>();
+		Map<String, Set<String>> previousImpactedPaths = previousSummary.getSettingToImpactedPaths();
+		settingToImpactedPaths.keySet()
+				.stream()
+				.sorted(Comparator
+						.<String>comparingLong(
+								setting -> previousSummary.getSettingToScore().getOrDefault(setting, Long.MAX_VALUE))
+						.reversed()
+						.thenComparing(Comparator.naturalOrder()))
+				.forEach(setting -> {
+					boolean impactsChangedPath = Stream
+							.concat(settingToImpactedPaths.get(setting).stream(),
+									previousImpactedPaths.getOrDefault(setting, Set.of()).stream())
+							.anyMatch(changedPaths::contains);
+					if (impactsChangedPath) {
+						prioritizedSettings.add(setting);
+					} else {
+						otherSettings.add(setting);
+					}
+				});
+		LOGGER.info("{} settings impact the changed paths, amongst {} impacting settings",
+				prioritizedSettings.size(),
+				settingToImpactedPaths.keySet().size());
+
+		bestSettings = optimizeSetOfSettings(timeout,
+				pathToFile,
+				bestSettings,
+				prioritizedSettings,
+				settingToImpactedContents);
+		bestSettings =
+				optimizeSetOfSettings(timeout, pathToFile, bestSettings, otherSettings, settingToImpactedContents);
+
+		logPathsImpactedByConfiguration(pathToFile, bestSettings);
+
+		return summarize(rawPathToContent, pathToHash, bestSettings.getOption(), settingToImpactedPaths);
+	}
+
+	/**
+	 * 
+	 * @param rawPathToContent
+	 * @param pathToHash
+	 * @param settings
+	 * @param settingToImpactedPaths
+	 * @return an {@link EclipseStylesheetSearchSummary}, where each setting is scored over the paths it impacts
+	 */
+	protected EclipseStylesheetSearchSummary summarize(Map<String, String> rawPathToContent,
+			Map<String, String> pathToHash,
+			Map<String, String> settings,
+			SetMultimap<String, String> settingToImpactedPaths) {
+		var formatter = new EclipseJavaFormatter(new EclipseJavaFormatterConfiguration(settings));
+		Map<String, Long> pathToScore = new ConcurrentHashMap<>();
+		rawPathToContent.entrySet()
+				.parallelStream()
+				.forEach(e -> pathToScore.put(e.getKey(),
+						computeDiffScore(formatter, Collections.singleton(e.getValue()))));
+
+		Map<String, Long> settingToScore = new TreeMap<>();
+		settingToImpactedPaths.asMap()
+				.forEach((setting, paths) -> settingToScore.put(setting,
+						paths.stream().mapToLong(pathToScore::get).reduce(0L, LongMath::saturatedAdd)));
+
+		Map<String, Set<String>> rawSettingToImpactedPaths = new TreeMap<>();
+		settingToImpactedPaths.asMap()
+				.forEach((setting, paths) -> rawSettingToImpactedPaths.put(setting, new TreeSet<>(paths)));
+
+		return EclipseStylesheetSearchSummary.builder()
+				.settings(ImmutableMap.copyOf(new TreeMap<>(settings)))
+				.score(pathToScore.values().stream().mapToLong(Long::longValue).reduce(0L, LongMath::saturatedAdd))
+				.pathToHash(new TreeMap<>(pathToHash))
+				.settingToImpactedPaths(rawSettingToImpactedPaths)
+				.settingToScore(settingToScore)
+				.build();
+	}
+
+	private static Map<String, String> toRawPathToContent(Path repositoryRoot, Map<Path, String> pathToFile) {
+		Map<String, String> rawPathToContent = new TreeMap<>();
+		pathToFile.forEach((path, content) -> rawPathToContent.put(toRawPath(repositoryRoot, path), content));
+		return rawPathToContent;
+	}
+
+	/**
+	 * 
+	 * @param repositoryRoot
+	 * @param path
+	 * @return the path relative to the repository root, with '/' as separator whatever the FileSystem.
+	 */
+	protected static String toRawPath(Path repositoryRoot, Path path) {
+		var relativePath = repositoryRoot.toAbsolutePath().normalize().relativize(path.toAbsolutePath().normalize());
+
+		return StreamSupport.stream(relativePath.spliterator(), false)
+				.map(Path::toString)
+				.collect(Collectors.joining("/"));
+	}
+
+	private static String hash(String content) {
+		return Hashing.murmur3_128().hashString(content, StandardCharsets.UTF_8).toString();
+	}
+
 	private Map.Entry<Path, String> findBiggestFile(Map<Path, String> pathToFile) {
 		if (pathToFile.isEmpty()) {
 			throw new IllegalStateException("There is not a single java file");
@@ -176,21 +470,43 @@ public class EclipseStylesheetGenerator implements IEclipseStylesheetGenerator {
 			ScoredOption<Map<String, String>> bestDefaultConfig) {
 		ScoredOption<Map<String, String>> bestSettings = bestDefaultConfig;
 
+		// Skip the settings which can not impact the contents, and evaluate the others only over the contents they
+		// impact
+		SetMultimap<String, String> settingToImpactedContents =
+				probeSensitivity(timeout, bestSettings.getOption(), pathToFile.values(), getAllSetttings());
+		Set<String> impactingSettings = settingToImpactedContents.keySet();
+
 		// Start optimizing comment parameters
 		// It is useful as may lines/diff score may come from comments
-		bestSettings = optimizeSetOfSettings(timeout, pathToFile, bestSettings, getCommentSettings());
+		bestSettings = optimizeSetOfSettings(timeout,
+				pathToFile,
+				bestSettings,
+				Sets.intersection(getCommentSettings(), impactingSettings),
+				settingToImpactedContents);
 
 		// Start optimizing some crucial parameters
-		bestSettings = optimizeSetOfSettings(timeout, pathToFile, bestSettings, getMostImpactfulSettings());
+		bestSettings = optimizeSetOfSettings(timeout,
+				pathToFile,
+				bestSettings,
+				Sets.intersection(getMostImpactfulSettings(), impactingSettings),
+				settingToImpactedContents);
 
 		// Then we optimize parameters which differs from standard configurations: these are parameters which are often
 		// changed
 		Set<String> commonlyChangedSettings = getSettingsChangingThroughStandardConfig();
-		bestSettings = optimizeSetOfSettings(timeout, pathToFile, bestSettings, commonlyChangedSettings);
+		bestSettings = optimizeSetOfSettings(timeout,
+				pathToFile,
+				bestSettings,
+				Sets.intersection(commonlyChangedSettings, impactingSettings),
+				settingToImpactedContents);
 
 		// Do not limit ourselves to settings in the current bestSetting, as it may not be exhaustive
 		Set<String> settingsToSwitch = getAllSetttings();
-		bestSettings = optimizeSetOfSettings(timeout, pathToFile, bestSettings, settingsToSwitch);
+		bestSettings = optimizeSetOfSettings(timeout,
+				pathToFile,
+				bestSettings,
+				Sets.intersection(settingsToSwitch, impactingSettings),
+				settingToImpactedContents);
 
 		logPathsImpactedByConfiguration(pathToFile, bestSettings);
 
@@ -231,14 +547,143 @@ public class EclipseStylesheetGenerator implements IEclipseStylesheetGenerator {
 		return commonlyChangedSettings;
 	}
 
+	/**
+	 * A cheap sensitivity probe: each setting is switched to its probed values over a sample of the contents, and we
+	 * record the sampled contents formatted differently. Settings impacting no sampled content can then be skipped, and
+	 * other settings can be evaluated only over the contents they impact. As the impact over the contents out of the
+	 * sample is unknown, they are considered impacted by any setting impacting the sample.
+	 * 
+	 * This assumes the impact of a setting does not depend on the other settings, which is generally but not always
+	 * true. This also assumes a setting impacting no sampled content impacts no content: the sample is stratified by
+	 * size, hence it holds the biggest contents.
+	 * 
+	 * @param timeout
+	 * @param baseSettings
+	 * @param contents
+	 * @param settings
+	 * @return for each setting which may impact some content, the impacted contents.
+	 */
+	protected SetMultimap<String, String> probeSensitivity(OffsetDateTime timeout,
+			Map<String, String> baseSettings,
+			Collection<String> contents,
+			Set<String> settings) {
+		Set<String> distinctContents = new LinkedHashSet<>(contents);
+		List<String> sample = sampleContents(distinctContents, probeSampleSize);
+		Set<String> notSampled = Sets.difference(distinctContents, ImmutableSet.copyOf(sample));
+
+		// Only the sample is formatted with the base settings
+		var baseFormatter = new EclipseJavaFormatter(new EclipseJavaFormatterConfiguration(baseSettings));
+		Map<String, Optional<String>> sampleToBase = new ConcurrentHashMap<>();
+		sample.parallelStream()
+				.forEach(content -> sampleToBase.put(content,
+						Optional.ofNullable(formatOrNull(baseFormatter, content))));
+
+		SetMultimap<String, String> settingToImpactedContents =
+				Multimaps.synchronizedSetMultimap(MultimapBuilder.treeKeys().hashSetValues().build());
+		settings.parallelStream().forEach(setting -> {
+			if (OffsetDateTime.now().isAfter(timeout)) {
+				// We do not know: consider all contents as impacted
+				settingToImpactedContents.putAll(setting, distinctContents);
+				return;
+			}
+
+			List<EclipseJavaFormatter> probedFormatters = probedValues(setting).stream()
+					.filter(value -> !value.equals(baseSettings.get(setting)))
+					.map(value -> {
+						Map<String, String> tweakedConfiguration = new TreeMap<>(baseSettings);
+						tweakedConfiguration.put(setting, value);
+						return new EclipseJavaFormatter(new EclipseJavaFormatterConfiguration(tweakedConfiguration));
+					})
+					.collect(Collectors.toList());
+
+			List<String> impactedContents = new ArrayList<>();
+			sampleToBase.forEach((content, optBase) -> {
+				// A content failing to be formatted is considered impacted by any setting
+				boolean impacted = optBase.isEmpty() || probedFormatters.stream()
+						.anyMatch(formatter -> !optBase.get().equals(formatOrNull(formatter, content)));
+
+				if (impacted) {
+					impactedContents.add(content);
+				}
+			});
+
+			if (!impactedContents.isEmpty()) {
+				settingToImpactedContents.putAll(setting, impactedContents);
+				settingToImpactedContents.putAll(setting, notSampled);
+			}
+		});
+
+		LOGGER.info("Sensitivity probe over {} contents out of {}: {} settings out of {} may impact the contents",
+				sample.size(),
+				distinctContents.size(),
+				settingToImpactedContents.keySet().size(),
+				settings.size());
+		return ImmutableSetMultimap.copyOf(settingToImpactedContents);
+	}
+
+	private String formatOrNull(EclipseJavaFormatter formatter, String content) {
+		try {
+			return formatter.doFormat(content);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 
+	 * @param setting
+	 * @return the values to probe for given setting: all the values of an enum setting, as they have no order, else the
+	 *         lowest and the highest values of a numeric setting (e.g. no wrapping and always wrapping for an encoded
+	 *         alignment)
+	 */
+	protected List<String> probedValues(String setting) {
+		Set<String> values = possibleOptions(setting);
+
+		if (values.stream().anyMatch(value -> Ints.tryParse(value) == null)) {
+			return values.stream().sorted().collect(Collectors.toList());
+		}
+
+		// Numbers are compared as numbers
+		List<String> sortedValues =
+				values.stream().sorted(Comparator.comparing(Ints::tryParse)).collect(Collectors.toList());
+
+		if (sortedValues.size() <= 2) {
+			return sortedValues;
+		} else {
+			return List.of(sortedValues.get(0), sortedValues.get(sortedValues.size() - 1));
+		}
+	}
+
 	protected ScoredOption<Map<String, String>> optimizeSetOfSettings(OffsetDateTime timeout,
 			Map<Path, String> pathToFile,
 			ScoredOption<Map<String, String>> bestSettings,
 			Set<String> settingsToSwitch) {
+		return optimizeSetOfSettings(timeout, pathToFile, bestSettings, settingsToSwitch, ImmutableSetMultimap.of());
+	}
+
+	/**
+	 * 
+	 * @param timeout
+	 * @param pathToFile
+	 * @param bestSettings
+	 * @param settingsToSwitch
+	 * @param settingToImpactedContents
+	 *            if a setting is present, it is evaluated only over its impacted contents.
+	 * @return the best settings
+	 */
+	protected ScoredOption<Map<String, String>> optimizeSetOfSettings(OffsetDateTime timeout,
+			Map<Path, String> pathToFile,
+			ScoredOption<Map<String, String>> bestSettings,
+			Set<String> settingsToSwitch,
+			SetMultimap<String, String> settingToImpactedContents) {
 		analyticsOverOptions(settingsToSwitch);
 
 		// Process one by one only options still appearing as relevant
-		bestSettings = optimizeParametersOneByOne(timeout, pathToFile, bestSettings, settingsToSwitch);
+		bestSettings = optimizeParametersOneByOne(timeout,
+				pathToFile,
+				bestSettings,
+				settingsToSwitch,
+				settingToImpactedContents);
 		return bestSettings;
 	}
 
@@ -256,12 +701,19 @@ public class EclipseStylesheetGenerator implements IEclipseStylesheetGenerator {
 	private ScoredOption<Map<String, String>> optimizeParametersOneByOne(OffsetDateTime timeout,
 			Map<Path, String> pathToFile,
 			ScoredOption<Map<String, String>> bestSettings,
-			Set<String> settingsToSwitch) {
+			Set<String> settingsToSwitch,
+			SetMultimap<String, String> settingToImpactedContents) {
 		// This is a greedy algorithm, trying to find the Set of options minimizing the
 		// diff with existing files
 		// We iterate targeting to reach a score of 0 (meaning we spot a configuration
 		// matching exactly current code-style)
 		Set<String> improvedSettings = new TreeSet<>();
+
+		// Biggest files first: they are the most discriminating, which helps early-abort of bad candidates
+		List<String> contents = pathToFile.values()
+				.stream()
+				.sorted(Comparator.comparingInt(String::length).reversed())
+				.collect(Collectors.toList());
 		do {
 			// Set<String> previousHasMutated = new TreeSet<>(hasMutated);
 			improvedSettings.clear();
@@ -271,8 +723,15 @@ public class EclipseStylesheetGenerator implements IEclipseStylesheetGenerator {
 			// Hence, we can process each parameter independently
 			for (String settingToSwitch : settingsToSwitch) {
 				LOGGER.debug("Setting about to be optimized: {}", settingToSwitch);
-				ScoredOption<Map<String, String>> newBestSettings =
-						pickOptimalOption(pathToFile.values(), bestSettings, settingToSwitch);
+				ScoredOption<Map<String, String>> newBestSettings;
+				if (settingToImpactedContents.containsKey(settingToSwitch)) {
+					newBestSettings = pickOptimalOptionOverImpacted(contents,
+							bestSettings,
+							settingToSwitch,
+							settingToImpactedContents.get(settingToSwitch));
+				} else {
+					newBestSettings = pickOptimalOption(contents, bestSettings, settingToSwitch);
+				}
 				if (!bestSettings.getOption().equals(newBestSettings.getOption())) {
 					bestSettings = newBestSettings;
 					improvedSettings.add(settingToSwitch);
@@ -345,7 +804,16 @@ public class EclipseStylesheetGenerator implements IEclipseStylesheetGenerator {
 		return diffHelper.computeDiffScore(formatter, values);
 	}
 
+	/**
+	 * 
+	 * @return the standard configurations, by name. They are loaded once per generator, as this is called many times by
+	 *         a single generation.
+	 */
 	protected Map<String, Map<String, String>> loadDefaultConfigurations() {
+		return defaultConfigurations.get();
+	}
+
+	private Map<String, Map<String, String>> computeDefaultConfigurations() {
 		Map<String, Map<String, String>> keyToConfig = new TreeMap<>();
 
 		{
@@ -367,14 +835,14 @@ public class EclipseStylesheetGenerator implements IEclipseStylesheetGenerator {
 			Map<String, String> googleConvention = EclipseJavaFormatterConfiguration
 					.loadResource(new ClassPathResource("/eclipse/eclipse-java-google-style.xml"))
 					.getSettings();
-			keyToConfig.put("google", googleConvention);
+			keyToConfig.put("google", new TreeMap<>(googleConvention));
 		}
 
 		{
 			Map<String, String> springConvention = EclipseJavaFormatterConfiguration
 					.loadResource(new ClassPathResource("/eclipse/spring-eclipse-code-formatter.xml"))
 					.getSettings();
-			keyToConfig.put("spring", springConvention);
+			keyToConfig.put("spring", new TreeMap<>(springConvention));
 		}
 
 		// https://stackoverflow.com/questions/3754405/best-eclipse-code-formatters
@@ -384,7 +852,8 @@ public class EclipseStylesheetGenerator implements IEclipseStylesheetGenerator {
 		// tabs)
 		prepareConfig(keyToConfig);
 
-		return keyToConfig;
+		// Immutable as it is shared
+		return ImmutableMap.copyOf(Maps.transformValues(keyToConfig, ImmutableMap::copyOf));
 	}
 
 	protected void prepareConfig(Map<String, Map<String, String>> keyToConfig) {
@@ -460,23 +929,68 @@ public class EclipseStylesheetGenerator implements IEclipseStylesheetGenerator {
 		return output;
 	}
 
+	/**
+	 * 
+	 * @param contents
+	 * @param initialOptions
+	 * @param parameterToSwitch
+	 * @param impactedContents
+	 *            the contents which may be impacted by parameterToSwitch. Other contents are not formatted, as their
+	 *            score would not change.
+	 * @return the best option, excluding the current setting.
+	 */
+	protected ScoredOption<Map<String, String>> pickOptimalOptionOverImpacted(List<String> contents,
+			ScoredOption<Map<String, String>> initialOptions,
+			String parameterToSwitch,
+			Set<String> impactedContents) {
+		List<String> restrictedContents =
+				contents.stream().filter(impactedContents::contains).collect(Collectors.toList());
+		if (restrictedContents.size() == contents.size()) {
+			return pickOptimalOption(contents, initialOptions, parameterToSwitch);
+		}
+
+		ScoredOption<Map<String, String>> restrictedInitial =
+				computeScore(restrictedContents, initialOptions.getOption());
+		ScoredOption<Map<String, String>> restrictedBest =
+				pickOptimalOption(restrictedContents, restrictedInitial, parameterToSwitch);
+		if (restrictedBest.getOption().equals(initialOptions.getOption())) {
+			return initialOptions;
+		}
+
+		// The score of not impacted contents is unchanged
+		var notImpactedScore = LongMath.saturatedSubtract(initialOptions.getScore(), restrictedInitial.getScore());
+		return new ScoredOption<Map<String, String>>(restrictedBest.getOption(),
+				LongMath.saturatedAdd(notImpactedScore, restrictedBest.getScore()));
+	}
+
 	private ScoredOption<Map<String, String>> pickOptimalOption(Collection<String> contents,
 			ScoredOption<Map<String, String>> initialOptions,
 			String parameterToSwitch,
 			Set<String> possibleOptions) {
 		LOGGER.debug("Considering parameter: {} ({} candidates)", parameterToSwitch, possibleOptions.size());
-		Optional<ScoredOption<Map<String, String>>> optMin = possibleOptions.parallelStream().map(possibleValue -> {
+
+		List<Map<String, String>> candidates = possibleOptions.stream().map(possibleValue -> {
 			Map<String, String> tweakedConfiguration = new TreeMap<>(initialOptions.getOption());
 			var currentBestOption = tweakedConfiguration.put(parameterToSwitch, possibleValue);
 			if (currentBestOption == null) {
 				LOGGER.debug("This happens when we consider a parameter not explicit in the current settings");
 			} else if (currentBestOption.equals(possibleValue)) {
 				// No-need to check with current value
-				return Optional.<ScoredOption<Map<String, String>>>empty();
+				return Optional.<Map<String, String>>empty();
 			}
-			ScoredOption<Map<String, String>> scoredOption = computeScore(contents, tweakedConfiguration);
-			return Optional.of(scoredOption);
-		}).flatMap(Optional::stream).min(Comparator.comparingLong(ScoredOption::getScore));
+			return Optional.of(tweakedConfiguration);
+		}).flatMap(Optional::stream).collect(Collectors.toList());
+
+		List<Map<String, String>> finalists = selectFinalists(contents, candidates);
+
+		// Branch-and-bound: a candidate is interrupted as soon as it is known to be worse than the best candidate
+		var bestScore = new AtomicLong(initialOptions.getScore());
+		Optional<ScoredOption<Map<String, String>>> optMin = finalists.parallelStream().map(tweakedConfiguration -> {
+			ScoredOption<Map<String, String>> scoredOption =
+					computeScore(contents, tweakedConfiguration, bestScore.get());
+			bestScore.accumulateAndGet(scoredOption.getScore(), Math::min);
+			return scoredOption;
+		}).min(Comparator.comparingLong(ScoredOption::getScore));
 		long initialScore = initialOptions.getScore();
 
 		ScoredOption<Map<String, String>> output;
@@ -501,11 +1015,78 @@ public class EclipseStylesheetGenerator implements IEclipseStylesheetGenerator {
 		return output;
 	}
 
+	/**
+	 * Successive-halving: candidates are scored over a small sample of files, the worse half is discarded, and the
+	 * sample doubles for the survivors. The full corpus is left to decide between the finalists.
+	 * 
+	 * @param contents
+	 * @param candidates
+	 * @return the candidates to be scored over the whole contents
+	 */
+	protected List<Map<String, String>> selectFinalists(Collection<String> contents,
+			List<Map<String, String>> candidates) {
+		List<Map<String, String>> survivors = candidates;
+
+		var sampleSize = minSampleSize;
+		while (survivors.size() > NB_FINALISTS && sampleSize < contents.size()) {
+			List<String> sample = sampleContents(contents, sampleSize);
+
+			List<Map<String, String>> sortedSurvivors = survivors.parallelStream()
+					.map(candidate -> computeScore(sample, candidate))
+					.sorted(Comparator.comparingLong(ScoredOption::getScore))
+					.map(ScoredOption::getOption)
+					.collect(Collectors.toList());
+
+			// Keep the better half (rounded up)
+			survivors = sortedSurvivors.subList(0, Math.max(NB_FINALISTS, (sortedSurvivors.size() + 1) / 2));
+			sampleSize *= 2;
+		}
+
+		return survivors;
+	}
+
+	/**
+	 * 
+	 * @param contents
+	 * @param sampleSize
+	 * @return a stratified sample of given contents: contents are sorted by size, and a random content is picked in
+	 *         each stratum. The sample is reproducible given the sampleSeed.
+	 */
+	protected List<String> sampleContents(Collection<String> contents, int sampleSize) {
+		List<String> sorted = contents.stream()
+				.sorted(Comparator.comparingInt(String::length).reversed().thenComparing(Comparator.naturalOrder()))
+				.collect(Collectors.toList());
+		if (sampleSize >= sorted.size()) {
+			return sorted;
+		}
+
+		var random = new Random(sampleSeed);
+		return IntStream.range(0, sampleSize).mapToObj(i -> {
+			var from = i * sorted.size() / sampleSize;
+			var to = (i + 1) * sorted.size() / sampleSize;
+			return sorted.get(from + random.nextInt(to - from));
+		}).collect(Collectors.toList());
+	}
+
 	protected ScoredOption<Map<String, String>> computeScore(Collection<String> contents,
 			Map<String, String> tweakedConfiguration) {
+		return computeScore(contents, tweakedConfiguration, Long.MAX_VALUE);
+	}
+
+	/**
+	 * 
+	 * @param contents
+	 * @param tweakedConfiguration
+	 * @param maxScore
+	 *            the scoring is interrupted as soon as the score is known to be above this value
+	 * @return a {@link ScoredOption}, which score is strictly above maxScore if it has been interrupted early.
+	 */
+	protected ScoredOption<Map<String, String>> computeScore(Collection<String> contents,
+			Map<String, String> tweakedConfiguration,
+			long maxScore) {
 		EclipseJavaFormatterConfiguration config = new EclipseJavaFormatterConfiguration(tweakedConfiguration);
 		EclipseJavaFormatter formatter = new EclipseJavaFormatter(config);
-		long tweakedDiffScoreDiff = computeDiffScore(formatter, contents);
+		long tweakedDiffScoreDiff = diffHelper.computeDiffScore(formatter, contents, maxScore);
 		ScoredOption<Map<String, String>> scoredOption =
 				new ScoredOption<Map<String, String>>(tweakedConfiguration, tweakedDiffScoreDiff);
 		return scoredOption;
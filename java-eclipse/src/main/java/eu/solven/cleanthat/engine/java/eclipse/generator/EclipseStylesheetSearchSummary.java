@@ -0,0 +1,56 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.engine.java.eclipse.generator;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMap;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Summarizes a stylesheet search, so that a later search can start from its result. It records which files impacts each
+ * setting, in order to re-evaluate first the settings impacting files which changed since.
+ * 
+ * @author Benoit Lacelle
+ *
+ */
+@Data
+@Builder
+@Jacksonized
+public class EclipseStylesheetSearchSummary {
+	// The optimal settings found by the search
+	@Builder.Default
+	private final Map<String, String> settings = ImmutableMap.of();
+
+	// The score of the settings over the whole corpus
+	private final long score;
+
+	// Given a path, the hash of its content when the search has been done
+	@Builder.Default
+	private final Map<String, String> pathToHash = ImmutableMap.of();
+
+	// Given a setting, the paths which are formatted differently when this setting is tweaked
+	@Builder.Default
+	private final Map<String, Set<String>> settingToImpactedPaths = ImmutableMap.of();
+
+	// Given a setting, the score of the settings over the impacted paths
+	@Builder.Default
+	private final Map<String, Long> settingToScore = ImmutableMap.of();
+}
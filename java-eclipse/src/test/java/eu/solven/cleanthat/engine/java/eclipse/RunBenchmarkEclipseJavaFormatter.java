@@ -0,0 +1,97 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.engine.java.eclipse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.core.formatter.CodeFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+
+import com.google.common.base.Stopwatch;
+
+/**
+ * Compares the time to format a few hundred files, creating a new {@link CodeFormatter} for each file or re-using the
+ * formatter of current thread.
+ *
+ * @author Benoit Lacelle
+ */
+public class RunBenchmarkEclipseJavaFormatter {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RunBenchmarkEclipseJavaFormatter.class);
+
+	private static final int NB_FILES = 500;
+	private static final int NB_ROUNDS = 5;
+
+	protected RunBenchmarkEclipseJavaFormatter() {
+		// hidden
+	}
+
+	public static void main(String[] args) throws IOException {
+		List<String> files = loadFiles();
+
+		var config = EclipseJavaFormatterConfiguration
+				.loadResource(new ClassPathResource("/eclipse/eclipse-java-google-style.xml"));
+
+		EclipseJavaFormatter reusingFormatter = new EclipseJavaFormatter(config);
+		EclipseJavaFormatter creatingFormatter = new EclipseJavaFormatter(config) {
+			@Override
+			protected CodeFormatter getFormatter() {
+				return makeFormatter();
+			}
+		};
+
+		for (var round = 0; round < NB_ROUNDS; round++) {
+			var creatingMs = formatAll(creatingFormatter, files);
+			var reusingMs = formatAll(reusingFormatter, files);
+
+			LOGGER.info("Round #{} over {} files: new formatter per file: {}ms, re-used formatter: {}ms",
+					round,
+					files.size(),
+					creatingMs,
+					reusingMs);
+		}
+	}
+
+	private static List<String> loadFiles() throws IOException {
+		List<String> sources = new ArrayList<>();
+		for (String path : List.of("/source/do_not_format_me/Generic/ConstantWithDigitInName.java",
+				"/source/do_not_format_me/MiTrust/LocaleHelper.java",
+				"/source/do_not_format_me/MiTrust/TestNodeResourceImpl.java")) {
+			sources.add(
+					new String(new ClassPathResource(path).getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+		}
+
+		// Many small files is the case where the formatter creation overhead is the most visible
+		List<String> files = new ArrayList<>();
+		for (var i = 0; i < NB_FILES; i++) {
+			files.add(sources.get(i % sources.size()));
+		}
+		return files;
+	}
+
+	private static long formatAll(EclipseJavaFormatter formatter, List<String> files) throws IOException {
+		var stopwatch = Stopwatch.createStarted();
+		for (String file : files) {
+			formatter.doFormat(file);
+		}
+		return stopwatch.elapsed(TimeUnit.MILLISECONDS);
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.engine.java.eclipse;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.formatter.CodeFormatter;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableRangeSet;
+import com.google.common.collect.Range;
+
+public class TestEclipseJavaFormatter {
+	final Map<String, String> settings = Map.of(JavaCore.COMPILER_SOURCE, "11", JavaCore.COMPILER_COMPLIANCE, "11");
+
+	final AtomicInteger nbCreated = new AtomicInteger();
+
+	private EclipseJavaFormatter makeFormatter(Map<String, String> settings) {
+		return new EclipseJavaFormatter(new EclipseJavaFormatterConfiguration(settings)) {
+			@Override
+			protected CodeFormatter makeFormatter() {
+				nbCreated.incrementAndGet();
+				return super.makeFormatter();
+			}
+		};
+	}
+
+	@Test
+	public void testReuseFormatter_sameSettings() throws IOException {
+		String code = "public class  SomeClass { int  i ; }";
+
+		var formatted = makeFormatter(settings).doFormat(code);
+		// Another instance with equal settings shares the formatter
+		var formattedAgain = makeFormatter(Map.copyOf(settings)).doFormat(code);
+
+		Assertions.assertThat(formatted).isEqualTo(formattedAgain).isNotEqualTo(code);
+		Assertions.assertThat(nbCreated).hasValueLessThanOrEqualTo(1);
+	}
+
+	@Test
+	public void testReuseFormatter_otherSettings() throws IOException {
+		String code = "public class  SomeClass { int  i ; }";
+
+		makeFormatter(Map.of(JavaCore.COMPILER_SOURCE, "1.6", JavaCore.COMPILER_COMPLIANCE, "1.6")).doFormat(code);
+		makeFormatter(Map.of(JavaCore.COMPILER_SOURCE, "1.7", JavaCore.COMPILER_COMPLIANCE, "1.7")).doFormat(code);
+
+		Assertions.assertThat(nbCreated).hasValue(2);
+	}
+
+	@Test
+	public void testFormatLines() throws IOException {
+		String code = "public class  SomeClass {\n" + "int  i ;\n" + "int  j ;\n" + "}\n";
+
+		var formatted = makeFormatter(settings).doFormat(code, ImmutableRangeSet.of(Range.closed(2, 2)));
+
+		// Only the third line is formatted
+		Assertions.assertThat(formatted)
+				.startsWith("public class  SomeClass {\n" + "int  i ;\n")
+				.doesNotContain("int  j ;")
+				.contains("int j;");
+	}
+
+	@Test
+	public void testFormatLines_noLines() throws IOException {
+		String code = "public class  SomeClass { int  i ; }";
+
+		Assertions.assertThat(makeFormatter(settings).doFormat(code, ImmutableRangeSet.of())).isEqualTo(code);
+	}
+}
@@ -17,6 +17,8 @@ package eu.solven.cleanthat.engine.java.eclipse;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import org.assertj.core.api.Assertions;
@@ -78,4 +80,62 @@ public class TestEclipseJavaFormatterConfiguration {
 				// .containsEntry(JavaCore.COMPILER_COMPLIANCE, IJdkVersionConstants.JDK_8)
 				.containsEntry(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, "1.8");
 	}
+
+	@Test
+	public void testLoadResource_cached() {
+		var resource = new ClassPathResource("config/eclipse_java_code_formatter.xml");
+
+		var hitCount = EclipseJavaFormatterConfiguration.getCacheStats().hitCount();
+		EclipseJavaFormatterConfiguration config = EclipseJavaFormatterConfiguration.loadResource(resource);
+		EclipseJavaFormatterConfiguration configAgain = EclipseJavaFormatterConfiguration.loadResource(resource);
+
+		Assertions.assertThat(configAgain).isEqualTo(config);
+		Assertions.assertThat(EclipseJavaFormatterConfiguration.getCacheStats().hitCount()).isGreaterThan(hitCount);
+	}
+
+	@Test
+	public void testLoadResource_classpath_notReadAgain() throws IOException {
+		var resource = Mockito.spy(new ClassPathResource("config/eclipse_java_code_formatter.xml"));
+
+		var hitCount = EclipseJavaFormatterConfiguration.getLocationCacheStats().hitCount();
+		EclipseJavaFormatterConfiguration config = EclipseJavaFormatterConfiguration.loadResource(resource);
+		EclipseJavaFormatterConfiguration configAgain = EclipseJavaFormatterConfiguration.loadResource(resource);
+
+		Assertions.assertThat(configAgain).isEqualTo(config);
+		Assertions.assertThat(EclipseJavaFormatterConfiguration.getLocationCacheStats().hitCount())
+				.isGreaterThan(hitCount);
+		// The content is read at most once (it may have been read by a previous test)
+		Mockito.verify(resource, Mockito.atMost(1)).getInputStream();
+	}
+
+	@Test
+	public void testLoadConfig_fromRepository_loadedEachTime() throws IOException {
+		var path = "config/eclipse_java_code_formatter.xml";
+		processorConfig.setUrl("repository:" + path);
+
+		var content = new String(new ClassPathResource(path).getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+		Mockito.when(codeProvider.loadContentForPath(path)).thenReturn(Optional.of(content));
+
+		EclipseJavaFormatterConfiguration.load(codeProvider, engineProperties, processorConfig);
+		EclipseJavaFormatterConfiguration.load(codeProvider, engineProperties, processorConfig);
+
+		// The content of the repository may change between refs
+		Mockito.verify(codeProvider, Mockito.times(2)).loadContentForPath(path);
+	}
+
+	@Test
+	public void testSettingsHash() {
+		Map<String, String> settings = new LinkedHashMap<>();
+		settings.put(JavaCore.COMPILER_SOURCE, "11");
+		settings.put(JavaCore.COMPILER_COMPLIANCE, "11");
+		Map<String, String> reversed = new LinkedHashMap<>();
+		reversed.put(JavaCore.COMPILER_COMPLIANCE, "11");
+		reversed.put(JavaCore.COMPILER_SOURCE, "11");
+
+		// The hash does not depend on the ordering of the settings
+		Assertions.assertThat(new EclipseJavaFormatterConfiguration(settings).getSettingsHash())
+				.isEqualTo(new EclipseJavaFormatterConfiguration(reversed).getSettingsHash())
+				.isNotEqualTo(new EclipseJavaFormatterConfiguration(Map.of(JavaCore.COMPILER_SOURCE, "11"))
+						.getSettingsHash());
+	}
 }
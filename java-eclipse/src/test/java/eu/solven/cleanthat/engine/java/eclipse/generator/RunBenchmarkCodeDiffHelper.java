@@ -0,0 +1,109 @@
+/*
+ * Copyright 2024 Benoit Lacelle - SOLVEN
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.solven.cleanthat.engine.java.eclipse.generator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongBiFunction;
+
+import org.eclipse.jdt.internal.formatter.DefaultCodeFormatterOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+
+import com.google.common.base.Stopwatch;
+
+import eu.solven.cleanthat.engine.java.eclipse.EclipseJavaFormatter;
+import eu.solven.cleanthat.engine.java.eclipse.EclipseJavaFormatterConfiguration;
+
+/**
+ * Compares the time to compute the diff score between the exhaustive implementation and the trimmed and bounded
+ * implementation, over files formatted with different configurations.
+ *
+ * @author Benoit Lacelle
+ */
+public class RunBenchmarkCodeDiffHelper {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RunBenchmarkCodeDiffHelper.class);
+
+	private static final int NB_ROUNDS = 5;
+	private static final int NB_ITERATIONS = 3;
+
+	protected RunBenchmarkCodeDiffHelper() {
+		// hidden
+	}
+
+	public static void main(String[] args) throws IOException {
+		List<String[]> originalAndFormatted = loadOriginalAndFormatted();
+
+		CodeDiffHelper helper = new CodeDiffHelper();
+
+		originalAndFormatted.forEach(pair -> {
+			var exhaustive = helper.deltaDiffExhaustive(pair[0], pair[1]);
+			var fast = helper.deltaDiff(pair[0], pair[1]);
+			if (exhaustive != fast) {
+				LOGGER.info("Different scores: exhaustive={} fast={}", exhaustive, fast);
+			}
+		});
+
+		for (var round = 0; round < NB_ROUNDS; round++) {
+			var exhaustiveMs = scoreAll(originalAndFormatted, helper::deltaDiffExhaustive);
+			var fastMs = scoreAll(originalAndFormatted, helper::deltaDiff);
+			// A bound typical of a search where a good candidate is already known
+			var boundedMs =
+					scoreAll(originalAndFormatted, (original, formatted) -> helper.deltaDiff(original, formatted, 10));
+
+			LOGGER.info("Round #{} over {} files: exhaustive: {}ms, fast: {}ms, fast and bounded: {}ms",
+					round,
+					originalAndFormatted.size(),
+					exhaustiveMs,
+					fastMs,
+					boundedMs);
+		}
+	}
+
+	private static List<String[]> loadOriginalAndFormatted() throws IOException {
+		List<Map<String, String>> configurations = List.of(DefaultCodeFormatterOptions.getDefaultSettings().getMap(),
+				DefaultCodeFormatterOptions.getJavaConventionsSettings().getMap(),
+				EclipseJavaFormatterConfiguration
+						.loadResource(new ClassPathResource("/eclipse/eclipse-java-google-style.xml"))
+						.getSettings());
+
+		List<String[]> originalAndFormatted = new ArrayList<>();
+		for (String path : List.of("/source/do_not_format_me/MiTrust/LocaleHelper.java",
+				"/source/do_not_format_me/MiTrust/TestNodeResourceImpl.java",
+				"/source/do_not_format_me/RoaringBitmap/RoaringBitmap.java")) {
+			var original =
+					new String(new ClassPathResource(path).getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+			for (Map<String, String> configuration : configurations) {
+				var formatter = new EclipseJavaFormatter(new EclipseJavaFormatterConfiguration(configuration));
+				originalAndFormatted.add(new String[] { original, formatter.doFormat(original) });
+			}
+		}
+		return originalAndFormatted;
+	}
+
+	private static long scoreAll(List<String[]> originalAndFormatted, ToLongBiFunction<String, String> scorer) {
+		var stopwatch = Stopwatch.createStarted();
+		for (var i = 0; i < NB_ITERATIONS; i++) {
+			originalAndFormatted.forEach(pair -> scorer.applyAsLong(pair[0], pair[1]));
+		}
+		return stopwatch.elapsed(TimeUnit.MILLISECONDS);
+	}
+}
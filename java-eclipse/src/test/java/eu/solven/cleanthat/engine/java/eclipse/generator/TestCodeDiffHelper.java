@@ -15,9 +15,16 @@
  */
 package eu.solven.cleanthat.engine.java.eclipse.generator;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
+import eu.solven.cleanthat.formatter.ILintFixer;
+
 public class TestCodeDiffHelper {
 
 	@Test
@@ -30,4 +37,82 @@ public class TestCodeDiffHelper {
 
 		Assertions.assertThat(helper.deltaDiff("aaa12bbb23ccc", "aaa  bbb  ccc")).isEqualTo(4);
 	}
+
+	@Test
+	public void testComputeDiffScore_earlyAbort() throws IOException {
+		CodeDiffHelper helper = new CodeDiffHelper();
+
+		AtomicInteger nbFormatted = new AtomicInteger();
+		ILintFixer formatter = content -> {
+			nbFormatted.incrementAndGet();
+			return content + "_";
+		};
+
+		List<String> contents = Collections.nCopies(1000, "abcd");
+
+		// Each content has a score of 1
+		Assertions.assertThat(helper.computeDiffScore(formatter, contents)).isEqualTo(1000);
+		Assertions.assertThat(nbFormatted).hasValue(1000);
+
+		nbFormatted.set(0);
+		Assertions.assertThat(helper.computeDiffScore(formatter, contents, 10)).isGreaterThan(10);
+		Assertions.assertThat(nbFormatted).hasValueLessThan(1000);
+		Assertions.assertThat(helper.nbSkipped.get()).isGreaterThan(0);
+	}
+
+	@Test
+	public void testComputeDiffScore_failureDoesNotOverflow() {
+		CodeDiffHelper helper = new CodeDiffHelper();
+
+		ILintFixer failingFormatter = content -> null;
+
+		Assertions.assertThat(helper.computeDiffScore(failingFormatter, List.of("a", "b"))).isEqualTo(Long.MAX_VALUE);
+	}
+
+	@Test
+	public void testCache_hashKeys() throws IOException {
+		CodeDiffHelper helper = new CodeDiffHelper();
+
+		ILintFixer formatter = content -> content + "_";
+
+		Assertions.assertThat(helper.computeDiffScore(formatter, "abcd")).isEqualTo(1);
+		Assertions.assertThat(helper.computeDiffScore(formatter, "abcd")).isEqualTo(1);
+		Assertions.assertThat(helper.computeDiffScore(formatter, "abc")).isEqualTo(1);
+
+		Assertions.assertThat(helper.getCacheStats().hitCount()).isEqualTo(1);
+		Assertions.assertThat(helper.getCacheStats().missCount()).isEqualTo(2);
+
+		// The frontier between the original and the formatted content is part of the key
+		Assertions.assertThat(helper.hash("ab", "c")).isNotEqualTo(helper.hash("a", "bc"));
+	}
+
+	@Test
+	public void testDeltaDiff_sameAsExhaustive() {
+		CodeDiffHelper helper = new CodeDiffHelper();
+
+		List<String[]> originalAndFormatted = List.of(new String[] { "a\nb\nc", "a\nB\nc" },
+				new String[] { "a\nb\nc", "a\nb\nc\nd" },
+				new String[] { "a\nb\nc", "z\na\nb\nc" },
+				new String[] { "a\n\n\nb", "a\nb" },
+				new String[] { "a\r\nb\r\n", "a\nb\n" },
+				new String[] { "\n  a  \n", "\n a \n" },
+				new String[] { "class A {\n\tint i;\n}\n", "class A {\n    int i;\n}\n" },
+				new String[] { "abcd", "" });
+
+		originalAndFormatted.forEach(pair -> Assertions.assertThat(helper.deltaDiff(pair[0], pair[1]))
+				.as("%s -> %s", pair[0], pair[1])
+				.isEqualTo(helper.deltaDiffExhaustive(pair[0], pair[1])));
+	}
+
+	@Test
+	public void testDeltaDiff_bounded() {
+		CodeDiffHelper helper = new CodeDiffHelper();
+
+		Assertions.assertThat(helper.deltaDiff("abcdefgh", "efghabcd")).isEqualTo(8);
+		Assertions.assertThat(helper.deltaDiff("abcdefgh", "efghabcd", 8)).isEqualTo(8);
+		Assertions.assertThat(helper.deltaDiff("abcdefgh", "efghabcd", 3)).isGreaterThan(3);
+
+		// The difference of length is a lower-bound
+		Assertions.assertThat(helper.deltaDiff("a", "a\nbcdefgh", 3)).isGreaterThan(3);
+	}
 }
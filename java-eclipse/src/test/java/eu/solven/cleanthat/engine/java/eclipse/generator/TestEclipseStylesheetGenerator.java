@@ -21,13 +21,21 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.OffsetDateTime;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.SetMultimap;
 import com.google.common.io.ByteStreams;
 
 public class TestEclipseStylesheetGenerator {
@@ -35,7 +43,8 @@ public class TestEclipseStylesheetGenerator {
 		// In this class, we do not want to rely on Eclipse actual formatting
 		@Override
 		protected ScoredOption<Map<String, String>> computeScore(Collection<String> contents,
-				Map<String, String> tweakedConfiguration) {
+				Map<String, String> tweakedConfiguration,
+				long maxScore) {
 
 			// Do not keep the worstScore here, so that some configuration can be preferred over the initial
 			// configuration
@@ -77,4 +86,290 @@ public class TestEclipseStylesheetGenerator {
 				.hasSize(1)
 				.containsKey("org.eclipse.jdt.core.formatter.align_assignment_statements_on_columns");
 	}
+
+	@Test
+	public void testSuccessiveHalving() {
+		var lineSplit = "org.eclipse.jdt.core.formatter.lineSplit";
+		List<Integer> nbScoredContents = new CopyOnWriteArrayList<>();
+
+		EclipseStylesheetGenerator halvingGenerator = new EclipseStylesheetGenerator() {
+			@Override
+			protected ScoredOption<Map<String, String>> computeScore(Collection<String> contents,
+					Map<String, String> tweakedConfiguration,
+					long maxScore) {
+				nbScoredContents.add(contents.size());
+
+				// The optimal lineSplit is 120
+				long score = Math.abs(Integer.parseInt(tweakedConfiguration.get(lineSplit)) - 120) * contents.size();
+				return new ScoredOption<Map<String, String>>(tweakedConfiguration, score);
+			};
+		};
+
+		List<String> contents = IntStream.range(0, 100).mapToObj(i -> "content_" + i).collect(Collectors.toList());
+		ScoredOption<Map<String, String>> optimal = halvingGenerator.pickOptimalOption(contents,
+				new ScoredOption<>(Map.of(lineSplit, "80"), 40 * contents.size()),
+				lineSplit);
+
+		Assertions.assertThat(optimal.getOption()).containsEntry(lineSplit, "120");
+		// Only the finalists are scored over the whole contents
+		Assertions.assertThat(nbScoredContents).filteredOn(size -> size == contents.size()).hasSize(2);
+		Assertions.assertThat(nbScoredContents).contains(16, 32, 64);
+	}
+
+	@Test
+	public void testSampleContents_reproducible() {
+		List<String> contents = IntStream.range(0, 100).mapToObj(i -> "content_" + i).collect(Collectors.toList());
+
+		List<String> sample = generator.sampleContents(contents, 10);
+		Assertions.assertThat(sample)
+				.hasSize(10)
+				.doesNotHaveDuplicates()
+				.isEqualTo(generator.sampleContents(contents, 10));
+
+		generator.setSampleSeed(123);
+		Assertions.assertThat(generator.sampleContents(contents, 10)).hasSize(10).isNotEqualTo(sample);
+	}
+
+	@Test
+	public void testProbeSensitivity() {
+		var commaInParameters =
+				"org.eclipse.jdt.core.formatter.insert_space_after_comma_in_method_declaration_parameters";
+		var commaInEnumArguments = "org.eclipse.jdt.core.formatter.insert_space_after_comma_in_enum_constant_arguments";
+
+		var withParameters = "public class SomeClass {\n\tvoid someMethod(int a, int b) {\n\t}\n}\n";
+		var withoutParameters = "public class SomeClass {\n\tvoid someMethod() {\n\t}\n}\n";
+
+		Map<String, String> baseSettings = Map.of(commaInParameters, "insert", commaInEnumArguments, "insert");
+		SetMultimap<String, String> settingToContents =
+				new EclipseStylesheetGenerator().probeSensitivity(OffsetDateTime.now().plusHours(1),
+						baseSettings,
+						List.of(withParameters, withoutParameters),
+						Set.of(commaInParameters, commaInEnumArguments));
+
+		// There is no enum: the setting can not impact the contents
+		Assertions.assertThat(settingToContents.keySet()).containsExactly(commaInParameters);
+		Assertions.assertThat(settingToContents.get(commaInParameters)).containsExactly(withParameters);
+	}
+
+	@Test
+	public void testProbeSensitivity_sample() {
+		var commaInParameters =
+				"org.eclipse.jdt.core.formatter.insert_space_after_comma_in_method_declaration_parameters";
+		var commaInEnumArguments = "org.eclipse.jdt.core.formatter.insert_space_after_comma_in_enum_constant_arguments";
+
+		List<String> withParameters = IntStream.range(0, 4)
+				.mapToObj(i -> "public class SomeClass" + i + " {\n\tvoid someMethod(int a, int b) {\n\t}\n}\n")
+				.collect(Collectors.toList());
+
+		Map<String, String> baseSettings = Map.of(commaInParameters, "insert", commaInEnumArguments, "insert");
+		generator.setProbeSampleSize(2);
+		SetMultimap<String, String> settingToContents = generator.probeSensitivity(OffsetDateTime.now().plusHours(1),
+				baseSettings,
+				withParameters,
+				Set.of(commaInParameters, commaInEnumArguments));
+
+		// The setting impacting the sample is considered impacting the contents out of the sample
+		Assertions.assertThat(settingToContents.keySet()).containsExactly(commaInParameters);
+		Assertions.assertThat(settingToContents.get(commaInParameters))
+				.containsExactlyInAnyOrderElementsOf(withParameters);
+	}
+
+	@Test
+	public void testProbedValues() {
+		// The extremes of a numeric setting
+		Assertions.assertThat(generator.probedValues("org.eclipse.jdt.core.formatter.lineSplit"))
+				.containsExactly("80", "240");
+		Assertions
+				.assertThat(generator.probedValues(
+						"org.eclipse.jdt.core.formatter.number_of_blank_lines_at_beginning_of_method_body"))
+				.containsExactly("-4", "4");
+		// All values of an enum setting
+		Assertions
+				.assertThat(
+						generator.probedValues("org.eclipse.jdt.core.formatter.brace_position_for_method_declaration"))
+				.containsExactly("end_of_line", "next_line", "next_line_on_wrap", "next_line_shifted");
+		Assertions.assertThat(generator.probedValues("org.eclipse.jdt.core.formatter.enabling_tag")).isEmpty();
+	}
+
+	@Test
+	public void testLoadDefaultConfigurations_memoized() {
+		Assertions.assertThat(generator.loadDefaultConfigurations())
+				.isSameAs(generator.loadDefaultConfigurations())
+				.containsKeys("default", "eclipse", "java-convention", "google", "spring");
+	}
+
+	@Test
+	public void testWarmStart_probeOnlyChangedPaths() {
+		var commaInParameters =
+				"org.eclipse.jdt.core.formatter.insert_space_after_comma_in_method_declaration_parameters";
+		var commaInEnumArguments = "org.eclipse.jdt.core.formatter.insert_space_after_comma_in_enum_constant_arguments";
+
+		List<Collection<String>> probedContents = new CopyOnWriteArrayList<>();
+		List<Set<String>> optimizedSettings = new CopyOnWriteArrayList<>();
+		EclipseStylesheetGenerator warmGenerator = new EclipseStylesheetGenerator() {
+			@Override
+			protected Set<String> getAllSetttings() {
+				return Set.of(commaInParameters, commaInEnumArguments);
+			}
+
+			@Override
+			protected SetMultimap<String, String> probeSensitivity(OffsetDateTime timeout,
+					Map<String, String> baseSettings,
+					Collection<String> contents,
+					Set<String> settings) {
+				probedContents.add(List.copyOf(contents));
+				return super.probeSensitivity(timeout, baseSettings, contents, settings);
+			}
+
+			@Override
+			protected ScoredOption<Map<String, String>> optimizeSetOfSettings(OffsetDateTime timeout,
+					Map<Path, String> pathToFile,
+					ScoredOption<Map<String, String>> bestSettings,
+					Set<String> settingsToSwitch,
+					SetMultimap<String, String> settingToImpactedContents) {
+				optimizedSettings.add(Set.copyOf(settingsToSwitch));
+				return bestSettings;
+			}
+		};
+
+		var withParameters = "public class SomeClass {\n\tvoid someMethod(int a, int b) {\n\t}\n}\n";
+		var withoutParameters = "public class SomeClass {\n\tvoid someMethod() {\n\t}\n}\n";
+		Map<String, String> initialSettings = Map.of(commaInParameters, "insert", commaInEnumArguments, "insert");
+
+		var timeout = OffsetDateTime.now().plusHours(1);
+		EclipseStylesheetSearchSummary firstSummary = warmGenerator.generateSettings(timeout,
+				Paths.get("/"),
+				Map.of(Paths.get("/A.java"), withoutParameters, Paths.get("/B.java"), withoutParameters),
+				initialSettings,
+				Optional.empty());
+		Assertions.assertThat(firstSummary.getSettings()).isEqualTo(initialSettings);
+		Assertions.assertThat(firstSummary.getPathToHash()).containsOnlyKeys("A.java", "B.java");
+		Assertions.assertThat(firstSummary.getSettingToImpactedPaths()).isEmpty();
+
+		probedContents.clear();
+		optimizedSettings.clear();
+
+		// Only B has changed: only B is probed, and the setting impacting B is optimized first
+		EclipseStylesheetSearchSummary secondSummary = warmGenerator.generateSettings(timeout,
+				Paths.get("/"),
+				Map.of(Paths.get("/A.java"), withoutParameters, Paths.get("/B.java"), withParameters),
+				initialSettings,
+				Optional.of(firstSummary));
+		Assertions.assertThat(probedContents).containsExactly(List.of(withParameters));
+		Assertions.assertThat(optimizedSettings).containsExactly(Set.of(commaInParameters), Set.of());
+		Assertions.assertThat(secondSummary.getSettingToImpactedPaths())
+				.containsOnlyKeys(commaInParameters)
+				.containsEntry(commaInParameters, Set.of("B.java"));
+		Assertions.assertThat(secondSummary.getSettingToScore()).containsEntry(commaInParameters, 0L);
+		Assertions.assertThat(secondSummary.getPathToHash().get("A.java"))
+				.isEqualTo(firstSummary.getPathToHash().get("A.java"));
+		Assertions.assertThat(secondSummary.getPathToHash().get("B.java"))
+				.isNotEqualTo(firstSummary.getPathToHash().get("B.java"));
+	}
+
+	@Test
+	public void testColdStart_summary() {
+		var commaInParameters =
+				"org.eclipse.jdt.core.formatter.insert_space_after_comma_in_method_declaration_parameters";
+		var commaInEnumArguments = "org.eclipse.jdt.core.formatter.insert_space_after_comma_in_enum_constant_arguments";
+		Map<String, String> searchedSettings = Map.of(commaInParameters, "insert", commaInEnumArguments, "insert");
+
+		EclipseStylesheetGenerator coldGenerator = new EclipseStylesheetGenerator() {
+			@Override
+			protected Set<String> getAllSetttings() {
+				return Set.of(commaInParameters, commaInEnumArguments);
+			}
+
+			@Override
+			protected Map<String, String> doGenerateSettings(OffsetDateTime timeout, Map<Path, String> pathToFile) {
+				return searchedSettings;
+			}
+		};
+
+		var withParameters = "public class SomeClass {\n\tvoid someMethod(int a, int b) {\n\t}\n}\n";
+		var withoutParameters = "public class SomeClass {\n\tvoid someMethod() {\n\t}\n}\n";
+
+		// Even past the timeout, the summary holds the impact of the settings
+		EclipseStylesheetSearchSummary summary = coldGenerator.generateSettings(OffsetDateTime.now().minusHours(1),
+				Paths.get("/"),
+				Map.of(Paths.get("/A.java"), withParameters, Paths.get("/B.java"), withoutParameters));
+
+		Assertions.assertThat(summary.getSettings()).isEqualTo(searchedSettings);
+		Assertions.assertThat(summary.getPathToHash()).containsOnlyKeys("A.java", "B.java");
+		Assertions.assertThat(summary.getSettingToImpactedPaths())
+				.containsOnlyKeys(commaInParameters)
+				.containsEntry(commaInParameters, Set.of("A.java"));
+	}
+
+	@Test
+	public void testWarmStart_otherRoot() throws IOException {
+		var commaInParameters =
+				"org.eclipse.jdt.core.formatter.insert_space_after_comma_in_method_declaration_parameters";
+
+		List<Collection<String>> probedContents = new CopyOnWriteArrayList<>();
+		EclipseStylesheetGenerator warmGenerator = new EclipseStylesheetGenerator() {
+			@Override
+			protected Set<String> getAllSetttings() {
+				return Set.of(commaInParameters);
+			}
+
+			@Override
+			protected SetMultimap<String, String> probeSensitivity(OffsetDateTime timeout,
+					Map<String, String> baseSettings,
+					Collection<String> contents,
+					Set<String> settings) {
+				probedContents.add(List.copyOf(contents));
+				return super.probeSensitivity(timeout, baseSettings, contents, settings);
+			}
+		};
+
+		var withParameters = "public class SomeClass {\n\tvoid someMethod(int a, int b) {\n\t}\n}\n";
+		Map<String, String> initialSettings = Map.of(commaInParameters, "insert");
+		var timeout = OffsetDateTime.now().plusHours(1);
+
+		// The first search is done from a clone of the repository
+		Path firstRoot = Paths.get("/home/someUser/repository");
+		EclipseStylesheetSearchSummary firstSummary = warmGenerator.generateSettings(timeout,
+				firstRoot,
+				Map.of(firstRoot.resolve("src").resolve("A.java"), withParameters),
+				initialSettings,
+				Optional.empty());
+		Assertions.assertThat(firstSummary.getPathToHash()).containsOnlyKeys("src/A.java");
+		Assertions.assertThat(firstSummary.getSettingToImpactedPaths())
+				.containsEntry(commaInParameters, Set.of("src/A.java"));
+
+		// The summary is persisted, and loaded from another clone
+		var objectMapper = new ObjectMapper();
+		EclipseStylesheetSearchSummary reloadedSummary = objectMapper
+				.readValue(objectMapper.writeValueAsString(firstSummary), EclipseStylesheetSearchSummary.class);
+		Assertions.assertThat(reloadedSummary).isEqualTo(firstSummary);
+
+		probedContents.clear();
+		Path secondRoot = Paths.get("/ci/workspace");
+		EclipseStylesheetSearchSummary secondSummary = warmGenerator.generateSettings(timeout,
+				secondRoot,
+				Map.of(secondRoot.resolve("src").resolve("A.java"), withParameters),
+				initialSettings,
+				Optional.of(reloadedSummary));
+
+		// No file changed: nothing is probed, and the impacts are restored from the previous summary
+		Assertions.assertThat(probedContents).isEmpty();
+		Assertions.assertThat(secondSummary.getPathToHash()).isEqualTo(firstSummary.getPathToHash());
+		Assertions.assertThat(secondSummary.getSettingToImpactedPaths())
+				.isEqualTo(firstSummary.getSettingToImpactedPaths());
+	}
+
+	@Test
+	public void testRunInSearchPool() {
+		generator.setParallelism(2);
+
+		// Nested parallel streams are executed by the dedicated pool, not by the common pool
+		Set<String> threadNames = generator.runInSearchPool(() -> IntStream.range(0, 100)
+				.parallel()
+				.mapToObj(i -> Thread.currentThread().getName())
+				.collect(Collectors.toSet()));
+		Assertions.assertThat(threadNames)
+				.isNotEmpty()
+				.allMatch(name -> name.startsWith("Cleanthat-EclipseStylesheet-"));
+	}
 }
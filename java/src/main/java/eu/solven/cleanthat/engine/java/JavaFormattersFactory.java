@@ -53,6 +53,12 @@ public class JavaFormattersFactory extends ASourceCodeFormatterFactory {
 		return "javaparser";
 	}
 
+	// The refactorer depends only on its properties
+	@Override
+	public boolean isCacheable(CleanthatStepProperties stepProperties) {
+		return true;
+	}
+
 	@SuppressWarnings("PMD.TooFewBranchesForASwitchStatement")
 	@Override
 	public ILintFixer makeLintFixer(CleanthatSession cleanthatSession,
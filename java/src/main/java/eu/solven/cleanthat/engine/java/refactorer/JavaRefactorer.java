@@ -94,9 +94,9 @@ public class JavaRefactorer extends AAstRefactorer<Node, JavaParser, Node, IJava
 	}
 
 	@Override
-	public String doFormat(PathAndContent pathAndContent) throws IOException {
+	protected String doFormat(JavaParser parser, PathAndContent pathAndContent) throws IOException {
 		LOGGER.debug("Refactoring conf={}", this.refactorerProperties);
-		var cleanCode = applyTransformers(pathAndContent);
+		var cleanCode = applyTransformers(parser, pathAndContent);
 		return fixJavaparserUnexpectedChanges(pathAndContent.getContent(), cleanCode);
 	}
 
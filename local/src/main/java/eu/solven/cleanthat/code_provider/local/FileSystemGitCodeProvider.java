@@ -29,6 +29,7 @@ import eu.solven.cleanthat.code_provider.CleanthatPathHelpers;
 import eu.solven.cleanthat.code_provider.inmemory.FileSystemCodeProvider;
 import eu.solven.cleanthat.codeprovider.ICodeProvider;
 import eu.solven.cleanthat.codeprovider.ICodeProviderFile;
+import eu.solven.cleanthat.config.IncludeExcludeHelpers;
 import eu.solven.cleanthat.git.GitIgnoreParser;
 
 /**
@@ -49,8 +50,17 @@ public class FileSystemGitCodeProvider extends FileSystemCodeProvider {
 	@Override
 	public void listFilesForContent(Set<String> includePatterns, Consumer<ICodeProviderFile> consumer)
 			throws IOException {
+		listFilesForContent(includePatterns, Set.of(), consumer);
+	}
+
+	@Override
+	public void listFilesForContent(Set<String> includePatterns,
+			Set<String> excludePatterns,
+			Consumer<ICodeProviderFile> consumer) throws IOException {
 		var gitIgnorePredicate = makeGitIgnorePredicate();
-		listFilesForContent(gitIgnorePredicate, consumer);
+		var skipDirectory = IncludeExcludeHelpers
+				.prepareDirectoryPruner(getRepositoryRoot().getFileSystem(), includePatterns, excludePatterns);
+		listFilesForContent(gitIgnorePredicate, skipDirectory, consumer);
 	}
 
 	protected Predicate<Path> makeGitIgnorePredicate() throws IOException {
@@ -67,8 +67,10 @@ import eu.solven.cleanthat.codeprovider.resource.CleanthatUrlLoader;
 import eu.solven.cleanthat.config.ConfigHelpers;
 import eu.solven.cleanthat.config.pojo.CleanthatEngineProperties;
 import eu.solven.cleanthat.config.pojo.CleanthatRepositoryProperties;
+import eu.solven.cleanthat.engine.java.eclipse.EclipseJavaFormatterConfiguration;
 import eu.solven.cleanthat.engine.java.eclipse.checkstyle.XmlProfileWriter;
 import eu.solven.cleanthat.engine.java.eclipse.generator.EclipseStylesheetGenerator;
+import eu.solven.cleanthat.engine.java.eclipse.generator.EclipseStylesheetSearchSummary;
 import eu.solven.cleanthat.engine.java.eclipse.generator.IEclipseStylesheetGenerator;
 import eu.solven.cleanthat.git.GitIgnoreParser;
 import eu.solven.cleanthat.language.spotless.CleanthatSpotlessStepParametersProperties;
@@ -103,6 +105,9 @@ public class CleanThatGenerateEclipseStylesheetMojo extends ACleanThatSpringMojo
 
 	public static final String GOAL_ECLIPSE = "eclipse_formatter-stylesheet";
 
+	// The summary of the search is persisted next to the stylesheet, to enable a warm-start of the next search
+	public static final String SUFFIX_SEARCH_SUMMARY = ".search.json";
+
 	// https://stackoverflow.com/questions/3084629/finding-the-root-directory-of-a-multi-module-maven-reactor-project
 	@Parameter(property = "eclipse_formatter.url",
 			// defaultValue = "${maven.multiModuleProjectDirectory}/.cleanthat/eclipse_formatter-stylesheet.xml"
@@ -120,6 +125,19 @@ public class CleanThatGenerateEclipseStylesheetMojo extends ACleanThatSpringMojo
 	@Parameter(property = "duration.limit", defaultValue = "PT1M")
 	private String rawDurationLimit;
 
+	// Files are sampled to evaluate many candidates quickly: the seed makes the generation reproducible
+	@Parameter(property = "sample.seed", defaultValue = "0")
+	private long sampleSeed;
+
+	// The number of threads dedicated to the search. Defaults to the number of available processors
+	@Parameter(property = "search.parallelism")
+	private Integer searchParallelism;
+
+	// If a stylesheet already exists, the search starts from it (and from the summary of the search which produced it)
+	// instead of the standard configurations
+	@Parameter(property = "warm.start", defaultValue = "true")
+	private boolean warmStart;
+
 	@VisibleForTesting
 	protected void setConfigPath(String eclipseConfigPath) {
 		this.eclipseConfigPath = eclipseConfigPath;
@@ -140,6 +158,12 @@ public class CleanThatGenerateEclipseStylesheetMojo extends ACleanThatSpringMojo
 	@Override
 	public void doClean(ApplicationContext appContext) throws IOException, MojoFailureException {
 		IEclipseStylesheetGenerator generator = appContext.getBean(IEclipseStylesheetGenerator.class);
+		if (generator instanceof EclipseStylesheetGenerator) {
+			((EclipseStylesheetGenerator) generator).setSampleSeed(sampleSeed);
+			if (searchParallelism != null) {
+				((EclipseStylesheetGenerator) generator).setParallelism(searchParallelism);
+			}
+		}
 
 		Map<Path, String> pathToContent = loadAnyJavaFile(generator);
 
@@ -150,7 +174,25 @@ public class CleanThatGenerateEclipseStylesheetMojo extends ACleanThatSpringMojo
 				rawDurationLimit,
 				timeLimit);
 
-		Map<String, String> settings = generator.generateSettings(timeLimit, pathToContent);
+		Map<String, String> settings;
+		var existingConfigPath = getEclipseConfigPath();
+		var objectMapper = appContext.getBean(ConfigHelpers.class).getObjectMapper();
+		if (warmStart && generator instanceof EclipseStylesheetGenerator && Files.isRegularFile(existingConfigPath)) {
+			settings = generateSettingsFromExisting((EclipseStylesheetGenerator) generator,
+					objectMapper,
+					existingConfigPath,
+					timeLimit,
+					pathToContent);
+		} else if (generator instanceof EclipseStylesheetGenerator) {
+			// The paths are recorded relatively to the execution root, for the summary not to depend on the local
+			// folder
+			var summary = ((EclipseStylesheetGenerator) generator)
+					.generateSettings(timeLimit, getBaseDir().toPath(), pathToContent);
+			writeSummary(objectMapper, existingConfigPath, summary);
+			settings = summary.getSettings();
+		} else {
+			settings = generator.generateSettings(timeLimit, pathToContent);
+		}
 		var eclipseConfigPath = writeSettings(settings);
 
 		// TODO In fact, we go through Spotless to do so
@@ -448,11 +490,76 @@ public class CleanThatGenerateEclipseStylesheetMojo extends ACleanThatSpringMojo
 		return pathToContent;
 	}
 
-	protected Path writeSettings(Map<String, String> settings) throws IOException {
+	/**
+	 * Generate the settings given an existing stylesheet, and the summary of the search which produced it (if any). The
+	 * summary of this new search is persisted next to the stylesheet.
+	 * 
+	 * @return the optimal settings
+	 */
+	protected Map<String, String> generateSettingsFromExisting(EclipseStylesheetGenerator generator,
+			ObjectMapper objectMapper,
+			Path existingConfigPath,
+			OffsetDateTime timeLimit,
+			Map<Path, String> pathToContent) throws IOException {
+		LOGGER.info("The search starts from the existing stylesheet '{}' (can be disabled with '-Dwarm.start=false')",
+				existingConfigPath);
+		Map<String, String> initialSettings =
+				EclipseJavaFormatterConfiguration.loadResource(new FileSystemResource(existingConfigPath))
+						.getSettings();
+
+		var summaryPath = getSummaryPath(existingConfigPath);
+		Optional<EclipseStylesheetSearchSummary> optPreviousSummary;
+		if (Files.isRegularFile(summaryPath)) {
+			EclipseStylesheetSearchSummary previousSummary;
+			try {
+				previousSummary = objectMapper.readValue(summaryPath.toFile(), EclipseStylesheetSearchSummary.class);
+			} catch (JsonProcessingException e) {
+				LOGGER.warn("Issue parsing '{}'. It is ignored", summaryPath, e);
+				previousSummary = null;
+			}
+			optPreviousSummary = Optional.ofNullable(previousSummary);
+		} else {
+			LOGGER.info("There is no search summary at '{}': all files are considered as changed", summaryPath);
+			optPreviousSummary = Optional.empty();
+		}
+
+		// The paths are recorded relatively to the execution root, for the summary not to depend on the local folder
+		var summary = generator
+				.generateSettings(timeLimit, getBaseDir().toPath(), pathToContent, initialSettings, optPreviousSummary);
+		writeSummary(objectMapper, existingConfigPath, summary);
+
+		return summary.getSettings();
+	}
+
+	/**
+	 * The summary is persisted next to the stylesheet, for a later search to start from the stylesheet.
+	 */
+	protected void writeSummary(ObjectMapper objectMapper,
+			Path eclipseConfigPath,
+			EclipseStylesheetSearchSummary summary) throws IOException {
+		var summaryPath = getSummaryPath(eclipseConfigPath);
+		LOGGER.info("About to write the search summary at: {}", summaryPath);
+
+		var summaryFolder = summaryPath.toAbsolutePath().getParent();
+		if (summaryFolder != null) {
+			Files.createDirectories(summaryFolder);
+		}
+		objectMapper.writerWithDefaultPrettyPrinter().writeValue(summaryPath.toFile(), summary);
+	}
+
+	protected Path getSummaryPath(Path eclipseConfigPath) {
+		return eclipseConfigPath.resolveSibling(eclipseConfigPath.getFileName() + SUFFIX_SEARCH_SUMMARY);
+	}
+
+	protected Path getEclipseConfigPath() {
 		if (eclipseConfigPath.startsWith("${")) {
 			throw new IllegalArgumentException("Issue with mvn placeholders: " + eclipseConfigPath);
 		}
-		var whereToWrite = Paths.get(eclipseConfigPath);
+		return Paths.get(eclipseConfigPath);
+	}
+
+	protected Path writeSettings(Map<String, String> settings) throws IOException {
+		var whereToWrite = getEclipseConfigPath();
 
 		var whereToWriteAsFile = whereToWrite.toFile().getAbsoluteFile();
 		if (whereToWriteAsFile.exists()) {
@@ -59,9 +59,15 @@ public class OverlayCodeProviderWrite implements ICodeProviderWriter {
 
 	@Override
 	public void listFilesForContent(Set<String> includes, Consumer<ICodeProviderFile> consumer) throws IOException {
+		listFilesForContent(includes, Set.of(), consumer);
+	}
+
+	@Override
+	public void listFilesForContent(Set<String> includes, Set<String> excludes, Consumer<ICodeProviderFile> consumer)
+			throws IOException {
 		pathToOverlay.forEach((path, content) -> consumer.accept(new DummyCodeProviderFile(path, content)));
 
-		underlying.listFilesForContent(includes, file -> {
+		underlying.listFilesForContent(includes, excludes, file -> {
 			var path = file.getPath();
 			if (pathToOverlay.containsKey(path)) {
 				LOGGER.debug("Skip an overlayed path: {}", path);
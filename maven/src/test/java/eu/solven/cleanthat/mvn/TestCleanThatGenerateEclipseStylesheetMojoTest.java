@@ -41,5 +41,12 @@ public class TestCleanThatGenerateEclipseStylesheetMojoTest extends ACleanThatMo
 		myMojo.execute();
 
 		Assertions.assertThat(eclipseStylesheet).isFile();
+		// The summary enables a later search to start from the stylesheet
+		Assertions
+				.assertThat(
+						new File(readWriteFolder,
+								".cleanthat/eclipse_java-stylesheet.xml"
+										+ CleanThatGenerateEclipseStylesheetMojo.SUFFIX_SEARCH_SUMMARY))
+				.isFile();
 	}
 }
\ No newline at end of file
@@ -16,10 +16,12 @@
 package eu.solven.cleanthat.engine.java.refactorer;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import org.openrewrite.ExecutionContext;
 import org.openrewrite.InMemoryExecutionContext;
@@ -28,6 +30,7 @@ import org.openrewrite.RecipeRun;
 import org.openrewrite.Result;
 import org.openrewrite.SourceFile;
 import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.table.SourcesFileErrors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,27 +61,65 @@ public class OpenrewriteMutator implements IWalkingMutator<SourceFile, Result> {
 
 	@Override
 	public Optional<Result> walkAst(SourceFile pre) {
-		AtomicReference<Throwable> refFirstError = new AtomicReference<>();
+		List<Result> results = walkAsts(Arrays.asList(pre));
+
+		if (results.isEmpty()) {
+			return Optional.empty();
+		} else {
+			Result result = Iterables.getOnlyElement(results);
+			return Optional.of(result);
+		}
+	}
+
+	/**
+	 * Run the {@link Recipe} once over all given {@link SourceFile}. This is much faster than running the
+	 * {@link Recipe} over each {@link SourceFile} individually, as the {@link Recipe} setup is done only once.
+	 * 
+	 * An error is attributed to the {@link SourceFile} it occurred on: only the {@link Result} of this
+	 * {@link SourceFile} is discarded. An error which can not be attributed discards all {@link Result}s.
+	 * 
+	 * @param pres
+	 *            the {@link SourceFile} to process, typically all files of a module.
+	 * @return the {@link Result}s, only for the {@link SourceFile} which has been changed by the {@link Recipe}.
+	 */
+	public List<Result> walkAsts(List<SourceFile> pres) {
+		AtomicInteger nbErrors = new AtomicInteger();
 
 		ExecutionContext ctx = new InMemoryExecutionContext(t -> {
-			if (refFirstError.compareAndSet(null, t)) {
+			if (nbErrors.incrementAndGet() == 1) {
 				LOGGER.debug("We register the first exception", t);
 			} else {
-				LOGGER.warn("Multiple exception are being thrown. This one is being discarded", t);
+				LOGGER.debug("Another exception is being thrown", t);
 			}
 		});
 
-		RecipeRun run = recipe.run(new InMemoryLargeSourceSet(Arrays.asList(pre)), ctx);
+		RecipeRun run = recipe.run(new InMemoryLargeSourceSet(pres), ctx);
 		List<Result> results = run.getChangeset().getAllResults();
-		if (results.isEmpty()) {
-			return Optional.empty();
-		} else if (refFirstError.get() != null) {
-			LOGGER.warn("OpenRewrite encountered an error with given AST", refFirstError.get());
-			return Optional.empty();
-		} else {
-			Result result = Iterables.getOnlyElement(results);
-			return Optional.of(result);
+		if (results.isEmpty() || nbErrors.get() == 0) {
+			return results;
+		}
+
+		// Each error over a SourceFile is reported in a DataTable, given the path of the SourceFile
+		List<SourcesFileErrors.Row> errorRows = run.getDataTableRows(SourcesFileErrors.class.getName());
+		if (errorRows.size() < nbErrors.get()) {
+			LOGGER.warn("OpenRewrite encountered {} errors, {} of them being not attributed to a file",
+					nbErrors.get(),
+					nbErrors.get() - errorRows.size());
+			return Collections.emptyList();
 		}
+
+		Set<String> failingPaths =
+				errorRows.stream().map(SourcesFileErrors.Row::getSourcePath).collect(Collectors.toSet());
+		errorRows.forEach(row -> LOGGER
+				.warn("OpenRewrite encountered an error over {}: {}", row.getSourcePath(), row.getStackTrace()));
+
+		return results.stream()
+				.filter(result -> !isOver(result.getBefore(), failingPaths) && !isOver(result.getAfter(), failingPaths))
+				.collect(Collectors.toList());
+	}
+
+	private static boolean isOver(SourceFile sourceFile, Set<String> paths) {
+		return sourceFile != null && paths.contains(sourceFile.getSourcePath().toString());
 	}
 
 }
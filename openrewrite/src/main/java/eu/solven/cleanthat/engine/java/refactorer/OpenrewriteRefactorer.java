@@ -15,25 +15,34 @@
  */
 package eu.solven.cleanthat.engine.java.refactorer;
 
-import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.openrewrite.ExecutionContext;
 import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.LargeSourceSet;
 import org.openrewrite.Parser.Input;
+import org.openrewrite.PrintOutputCapture;
+import org.openrewrite.PrintOutputCapture.MarkerPrinter;
 import org.openrewrite.Recipe;
 import org.openrewrite.Result;
 import org.openrewrite.SourceFile;
 import org.openrewrite.java.JavaParser;
+import org.openrewrite.tree.ParseError;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 
 import eu.solven.cleanthat.engine.java.refactorer.meta.IMutator;
@@ -48,16 +57,30 @@ import eu.solven.cleanthat.formatter.PathAndContent;
 public class OpenrewriteRefactorer extends AAstRefactorer<SourceFile, JavaParser, Result, OpenrewriteMutator> {
 	private static final Logger LOGGER = LoggerFactory.getLogger(OpenrewriteRefactorer.class);
 
-	// Is this threadsafe/stateless?
-	final ExecutionContext ctx = new InMemoryExecutionContext(Throwable::printStackTrace);
+	// Re-parsing each result is expensive: this is useful only for debugging purposes
+	private static final boolean VALIDATE_BY_REPARSE = Boolean.getBoolean("cleanthat.openrewrite.validate_by_reparse");
+
+	// Prints no marker
+	private static final MarkerPrinter NO_MARKER_PRINTER = new MarkerPrinter() {
+	};
+
+	// paths to jars that represent the project's classpath
+	final List<Path> classpath;
 
 	public OpenrewriteRefactorer(List<OpenrewriteMutator> mutators) {
-		super(mutators);
+		this(mutators, Collections.emptyList());
 	}
 
-	@Override
-	public String doFormat(PathAndContent pathAndContent) throws IOException {
-		return applyTransformers(pathAndContent);
+	/**
+	 * 
+	 * @param mutators
+	 * @param classpath
+	 *            the classpath of the module holding the files to refactor. It enables a better type attribution.
+	 */
+	public OpenrewriteRefactorer(List<OpenrewriteMutator> mutators, List<Path> classpath) {
+		super(mutators);
+
+		this.classpath = ImmutableList.copyOf(classpath);
 	}
 
 	@Override
@@ -67,15 +90,94 @@ public class OpenrewriteRefactorer extends AAstRefactorer<SourceFile, JavaParser
 
 	@Override
 	protected JavaParser makeAstParser() {
-		// determine your project directory and provide a list of
-		// paths to jars that represent the project's classpath
-		// Path projectDir = Paths.get(".");
-		List<Path> classpath = Collections.emptyList();
-
 		// create a JavaParser instance with your classpath
 		return JavaParser.fromJavaVersion().classpath(classpath).build();
 	}
 
+	/**
+	 * Parse all files with a single {@link JavaParser}, then run each {@link OpenrewriteMutator} once over the whole
+	 * {@link LargeSourceSet}. This is how OpenRewrite is designed to be fast: the type attribution is shared between
+	 * files, and each {@link Recipe} is set-up only once.
+	 */
+	@Override
+	public Stream<PathAndContent> doFormat(Stream<PathAndContent> pathAndContents) {
+		List<PathAndContent> inputs = pathAndContents.collect(Collectors.toList());
+
+		var parser = makeAstParser();
+		Map<Path, SourceFile> pathToSourceFile = parseSourceCodes(parser, inputs);
+
+		getRawMutators().forEach(mutator -> {
+			List<Result> results;
+			try {
+				results = mutator.walkAsts(new ArrayList<>(pathToSourceFile.values()));
+			} catch (RuntimeException | StackOverflowError e) {
+				throw new IllegalArgumentException("Issue with mutator: " + mutator, e);
+			}
+
+			results.forEach(result -> {
+				if (result.getBefore() == null || result.getAfter() == null) {
+					// We do not create nor delete files
+					LOGGER.warn("{} generated or deleted a file. This is not supported", mutator);
+					return;
+				}
+
+				var path = result.getBefore().getSourcePath();
+				if (isValidResult(parser, result, toString(result))) {
+					pathToSourceFile.put(path, result.getAfter());
+				} else {
+					LOGGER.warn("{} generated invalid code over {}", mutator, path);
+				}
+			});
+		});
+
+		return inputs.stream().map(input -> {
+			var sourceFile = pathToSourceFile.get(toSourcePath(input));
+			if (sourceFile == null) {
+				// The input is not parseable
+				return input;
+			}
+
+			var output = sourceFile.printAll();
+			if (output.equals(input.getContent())) {
+				// Return the original reference whenever possible
+				return input;
+			} else {
+				return input.withContent(output);
+			}
+		});
+	}
+
+	/**
+	 * 
+	 * @param javaParser
+	 * @param inputs
+	 * @return a {@link Map} from the OpenRewrite sourcePath to the parsed {@link SourceFile}. Files which could not be
+	 *         parsed are not present.
+	 */
+	protected Map<Path, SourceFile> parseSourceCodes(JavaParser javaParser, List<PathAndContent> inputs) {
+		List<Input> parserInputs = inputs.stream()
+				.map(input -> Input.fromString(toSourcePath(input), input.getContent(), StandardCharsets.UTF_8))
+				.collect(Collectors.toList());
+
+		ExecutionContext ctx = new InMemoryExecutionContext(t -> LOGGER.debug("Issue while parsing", t));
+
+		Path relativeTo = null;
+		Map<Path, SourceFile> pathToSourceFile = new LinkedHashMap<>();
+		javaParser.parseInputs(parserInputs, relativeTo, ctx).forEach(sourceFile -> {
+			if (sourceFile instanceof ParseError) {
+				LOGGER.warn("Not able to parse path='{}' with {}", sourceFile.getSourcePath(), javaParser);
+			} else {
+				pathToSourceFile.put(sourceFile.getSourcePath(), sourceFile);
+			}
+		});
+		return pathToSourceFile;
+	}
+
+	// OpenRewrite relies on the default FileSystem, while our paths may be from some custom FileSystem
+	private static Path toSourcePath(PathAndContent input) {
+		return Paths.get(input.getPath().toString());
+	}
+
 	@Override
 	protected Optional<SourceFile> parseSourceCode(JavaParser javaParser, String sourceCode) {
 		Input input = Input.fromString(sourceCode, StandardCharsets.UTF_8);
@@ -113,6 +215,32 @@ public class OpenrewriteRefactorer extends AAstRefactorer<SourceFile, JavaParser
 		return result.getAfter().printAll();
 	}
 
+	/**
+	 * Building a LST is the most expensive step of OpenRewrite. Hence, we validate the result from its after
+	 * {@link SourceFile}, which is already a LST, instead of re-parsing its {@link String} representation.
+	 */
+	@Override
+	protected boolean isValidResult(JavaParser parser, Result result, String resultAsString) {
+		var after = result.getAfter();
+		if (after == null || after instanceof ParseError) {
+			return false;
+		}
+
+		// Markers (e.g. errors, search results) are printed as comments like `/*~~(...)~~>*/`. The result is valid only
+		// if it does not hold such markers.
+		var withoutMarkers = after.printAll(new PrintOutputCapture<>(0, NO_MARKER_PRINTER));
+		if (!withoutMarkers.equals(resultAsString)) {
+			LOGGER.debug("The result holds some markers");
+			return false;
+		}
+
+		if (VALIDATE_BY_REPARSE) {
+			return isValidResultString(parser, resultAsString);
+		}
+
+		return true;
+	}
+
 	@Override
 	protected boolean isValidResultString(JavaParser parser, String resultAsString) {
 		return parseSourceCode(parser, resultAsString).isPresent();
@@ -15,12 +15,15 @@
  */
 package eu.solven.cleanthat.language.openrewrite;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.openrewrite.Recipe;
 import org.openrewrite.config.Environment;
@@ -62,6 +65,12 @@ public class OpenrewriteFormattersFactory extends ASourceCodeFormatterFactory {
 		return Arrays.asList(new OpenrewriteEngineStep());
 	}
 
+	// The recipes depend only on the properties, while scanning the classpath for recipes is costly
+	@Override
+	public boolean isCacheable(CleanthatStepProperties stepProperties) {
+		return true;
+	}
+
 	@SuppressWarnings("PMD.TooFewBranchesForASwitchStatement")
 	@Override
 	public ILintFixer makeLintFixer(CleanthatSession cleanthatSession,
@@ -89,7 +98,16 @@ public class OpenrewriteFormattersFactory extends ASourceCodeFormatterFactory {
 			Environment environment = Environment.builder().scanRuntimeClasspath("org.openrewrite").build();
 			Recipe recipe = environment.activateRecipes(rawRecipes);
 
-			lintFixer = new OpenrewriteLintFixer(recipe);
+			// paths to jars that represent the project's classpath, enabling a better type attribution
+			Collection<String> rawClasspath = (Collection<String>) parameters.getCustomProperty("classpath");
+			List<Path> classpath;
+			if (rawClasspath == null) {
+				classpath = Collections.emptyList();
+			} else {
+				classpath = rawClasspath.stream().map(Paths::get).collect(Collectors.toList());
+			}
+
+			lintFixer = new OpenrewriteLintFixer(recipe, classpath);
 			break;
 		}
 
@@ -19,83 +19,66 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import org.openrewrite.ExecutionContext;
-import org.openrewrite.InMemoryExecutionContext;
-import org.openrewrite.LargeSourceSet;
-import org.openrewrite.Parser.Input;
 import org.openrewrite.Recipe;
-import org.openrewrite.Result;
-import org.openrewrite.SourceFile;
 import org.openrewrite.config.CompositeRecipe;
-import org.openrewrite.internal.InMemoryLargeSourceSet;
-import org.openrewrite.java.JavaParser;
 
+import eu.solven.cleanthat.engine.java.refactorer.OpenrewriteMutator;
+import eu.solven.cleanthat.engine.java.refactorer.OpenrewriteRefactorer;
+import eu.solven.cleanthat.formatter.IBatchLintFixer;
 import eu.solven.cleanthat.formatter.ILintFixer;
 import eu.solven.cleanthat.formatter.ILintFixerWithId;
-import eu.solven.cleanthat.formatter.ILintFixerWithPath;
 import eu.solven.cleanthat.formatter.PathAndContent;
 
 /**
  * {@link ILintFixer} for OpenRewrite engine. See https://docs.openrewrite.org/
  * 
+ * It relies on {@link OpenrewriteRefactorer}, which runs the {@link Recipe} once over a batch of files.
+ * 
  * @author Benoit Lacelle
  *
  */
 // https://docs.openrewrite.org/running-recipes/running-rewrite-without-build-tool-plugins
-public class OpenrewriteLintFixer implements ILintFixerWithId, ILintFixerWithPath {
-
+public class OpenrewriteLintFixer implements ILintFixerWithId, IBatchLintFixer {
 	final Recipe recipe;
 
+	final OpenrewriteRefactorer refactorer;
+
 	/**
 	 * 
 	 * @param recipe
 	 *            the recipe to apply. May be a {@link CompositeRecipe}
 	 */
 	public OpenrewriteLintFixer(Recipe recipe) {
+		this(recipe, Collections.emptyList());
+	}
+
+	/**
+	 * 
+	 * @param recipe
+	 *            the recipe to apply. May be a {@link CompositeRecipe}
+	 * @param classpath
+	 *            the classpath of the module holding the files to format. It enables a better type attribution.
+	 */
+	public OpenrewriteLintFixer(Recipe recipe, List<Path> classpath) {
 		this.recipe = recipe;
+		this.refactorer = new OpenrewriteRefactorer(List.of(new OpenrewriteMutator(recipe)), classpath);
 	}
 
 	@Override
 	public String doFormat(PathAndContent pathAndContent) throws IOException {
-		Input input = Input.fromString(pathAndContent.getPath(), pathAndContent.getContent());
-		return formatInput(input);
+		return refactorer.doFormat(pathAndContent);
 	}
 
 	@Override
-	public String doFormat(String content) throws IOException {
-		Input input = Input.fromString(content);
-		return formatInput(input);
+	public Stream<PathAndContent> doFormat(Stream<PathAndContent> pathAndContents) {
+		return refactorer.doFormat(pathAndContents);
 	}
 
-	protected String formatInput(Input input) {
-		// paths to jars that represent the project's classpath
-		// Path projectDir = Paths.get(".");
-		List<Path> classpath = Collections.emptyList();
-
-		// create a JavaParser instance with your classpath
-		JavaParser javaParser = JavaParser.fromJavaVersion().classpath(classpath).build();
-
-		ExecutionContext ctx = new InMemoryExecutionContext(Throwable::printStackTrace);
-
-		// parser the source files into LSTs
-		Stream<SourceFile> cus = javaParser.parseInputs(Collections.singleton(input), null, ctx);
-
-		LargeSourceSet sourceSet = new InMemoryLargeSourceSet(cus.collect(Collectors.toList()));
-
-		// collect results
-		List<Result> results = recipe.run(sourceSet, ctx).getChangeset().getAllResults();
-
-		if (results.isEmpty()) {
-			// no change
-			return input.getSource(ctx).readFully();
-		} else if (results.size() != 1) {
-			throw new IllegalStateException("We expected a single result in return. Got: " + results.size());
-		}
-
-		return results.get(0).getAfter().printAll();
+	@Override
+	public boolean isThreadSafe() {
+		return refactorer.isThreadSafe();
 	}
 
 	@Override
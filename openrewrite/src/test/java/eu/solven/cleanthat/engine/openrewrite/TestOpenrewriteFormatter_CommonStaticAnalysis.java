@@ -19,9 +19,11 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -42,6 +44,8 @@ import org.springframework.util.FileCopyUtils;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.common.jimfs.Jimfs;
 
 import eu.solven.cleanthat.code_provider.CleanthatPathHelpers;
@@ -50,10 +54,14 @@ import eu.solven.cleanthat.codeprovider.ICodeProviderFile;
 import eu.solven.cleanthat.config.ConfigHelpers;
 import eu.solven.cleanthat.config.pojo.CleanthatEngineProperties;
 import eu.solven.cleanthat.config.pojo.CleanthatRepositoryProperties;
+import eu.solven.cleanthat.config.pojo.CleanthatStepParametersProperties;
+import eu.solven.cleanthat.config.pojo.CleanthatStepProperties;
 import eu.solven.cleanthat.engine.EngineAndLinters;
 import eu.solven.cleanthat.engine.ICodeFormatterApplier;
 import eu.solven.cleanthat.formatter.CleanthatSession;
 import eu.solven.cleanthat.formatter.CodeFormatterApplier;
+import eu.solven.cleanthat.formatter.IBatchLintFixer;
+import eu.solven.cleanthat.formatter.ILintFixerListener;
 import eu.solven.cleanthat.formatter.PathAndContent;
 import eu.solven.cleanthat.formatter.SourceCodeFormatterHelper;
 import eu.solven.cleanthat.language.IEngineProperties;
@@ -160,4 +168,94 @@ public class TestOpenrewriteFormatter_CommonStaticAnalysis {
 		var cleaned = applier.applyProcessors(compile, new PathAndContent(contentPath, sourceCode));
 		Assert.assertEquals(expectedCleaned, cleaned);
 	}
+
+	@Test
+	public void testFormat_EmptyBlock_batch() throws IOException {
+		var dirtyCode = Stream.of("package eu.solven.cleanthat.do_not_format_me;",
+				"public class CleanClass {",
+				"	public CleanClass() {",
+				"		{}",
+				"	}",
+				"}").collect(Collectors.joining(System.lineSeparator()));
+		var cleanCode = Stream.of("package eu.solven.cleanthat.do_not_format_me;",
+				"public class OtherClass {",
+				"	public OtherClass() {",
+				"	}",
+				"}").collect(Collectors.joining(System.lineSeparator()));
+
+		var languageP = getEngineProperties();
+
+		EngineAndLinters compile = helper.compile(languageP, cleanthatSession, formatter);
+		var batchLintFixer = (IBatchLintFixer) Iterables.getOnlyElement(compile.getLinters());
+
+		var root = cleanthatSession.getRepositoryRoot();
+		var dirtyPath =
+				CleanthatPathHelpers.makeContentPath(root, "someModule/src/main/java/some_package/CleanClass.java");
+		var cleanPath =
+				CleanthatPathHelpers.makeContentPath(root, "someModule/src/main/java/some_package/OtherClass.java");
+
+		List<PathAndContent> outputs = batchLintFixer
+				.doFormat(Stream.of(new PathAndContent(dirtyPath, dirtyCode), new PathAndContent(cleanPath, cleanCode)))
+				.collect(Collectors.toList());
+
+		Assertions.assertThat(outputs).extracting(PathAndContent::getPath).containsExactly(dirtyPath, cleanPath);
+		Assertions.assertThat(outputs.get(0).getContent())
+				.isEqualTo(Stream.of("package eu.solven.cleanthat.do_not_format_me;",
+						"public class CleanClass {",
+						"	public CleanClass() {",
+						"	}",
+						"}").collect(Collectors.joining(System.lineSeparator())));
+		Assertions.assertThat(outputs.get(1).getContent()).isEqualTo(cleanCode);
+	}
+
+	@Test
+	public void testFormat_classpath_batch() throws IOException, URISyntaxException {
+		// The classpath holds the jar of some type referenced by the code
+		var guavaJar = Paths.get(ImmutableList.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+		var parameters = new CleanthatStepParametersProperties();
+		parameters.add("recipes", List.of("org.openrewrite.staticanalysis.CommonStaticAnalysis"));
+		parameters.add("classpath", List.of(guavaJar.toString()));
+		var stepProperties = CleanthatStepProperties.builder().id("openrewrite").parameters(parameters).build();
+
+		var languageP = getEngineProperties();
+		var lintFixer = formatter.makeLintFixer(cleanthatSession, languageP, stepProperties);
+		Assertions.assertThat(lintFixer).isInstanceOf(IBatchLintFixer.class);
+
+		var dirtyCode = Stream.of("package eu.solven.cleanthat.do_not_format_me;",
+				"import com.google.common.collect.ImmutableList;",
+				"public class CleanClass {",
+				"	public CleanClass() {",
+				"		{}",
+				"		ImmutableList.of();",
+				"	}",
+				"}").collect(Collectors.joining(System.lineSeparator()));
+		var cleanCode = Stream.of("package eu.solven.cleanthat.do_not_format_me;",
+				"public class OtherClass {",
+				"	public OtherClass() {",
+				"	}",
+				"}").collect(Collectors.joining(System.lineSeparator()));
+
+		var root = cleanthatSession.getRepositoryRoot();
+		var dirtyPath =
+				CleanthatPathHelpers.makeContentPath(root, "someModule/src/main/java/some_package/CleanClass.java");
+		var cleanPath =
+				CleanthatPathHelpers.makeContentPath(root, "someModule/src/main/java/some_package/OtherClass.java");
+
+		// The files are given together to the lintFixer
+		List<PathAndContent> outputs =
+				applier.applyProcessorsToContents(new EngineAndLinters(languageP, List.of(lintFixer)),
+						List.of(new PathAndContent(dirtyPath, dirtyCode), new PathAndContent(cleanPath, cleanCode)),
+						List.of(ILintFixerListener.NOOP, ILintFixerListener.NOOP));
+
+		Assertions.assertThat(outputs.get(0).getContent())
+				.isEqualTo(Stream.of("package eu.solven.cleanthat.do_not_format_me;",
+						"import com.google.common.collect.ImmutableList;",
+						"public class CleanClass {",
+						"	public CleanClass() {",
+						"		ImmutableList.of();",
+						"	}",
+						"}").collect(Collectors.joining(System.lineSeparator())));
+		Assertions.assertThat(outputs.get(1).getContent()).isEqualTo(cleanCode);
+	}
 }
@@ -15,8 +15,18 @@
  */
 package eu.solven.cleanthat.engine.openrewrite;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
@@ -28,10 +38,17 @@ import org.openrewrite.Recipe;
 import org.openrewrite.RecipeRun;
 import org.openrewrite.Result;
 import org.openrewrite.SourceFile;
+import org.openrewrite.Tree;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.config.Environment;
+import org.openrewrite.java.JavaParser;
+import org.openrewrite.marker.SearchResult;
+import org.openrewrite.table.SourcesFileErrors;
 
 import eu.solven.cleanthat.engine.java.refactorer.AAstRefactorer;
 import eu.solven.cleanthat.engine.java.refactorer.OpenrewriteMutator;
 import eu.solven.cleanthat.engine.java.refactorer.OpenrewriteRefactorer;
+import eu.solven.cleanthat.formatter.PathAndContent;
 
 public class TestOpenrewriteMutator {
 	final String someClassContent = "package eu.solven.cleanthat.do_not_format_me;" + "public class SomeClass {"
@@ -101,4 +118,172 @@ public class TestOpenrewriteMutator {
 
 		Assertions.assertThat(output).isEmpty();
 	}
+
+	@Test
+	public void testBatch_discardOnlyFailingFile() {
+		OpenrewriteMutator mutator = new OpenrewriteMutator(recipe);
+
+		final OpenrewriteRefactorer refactorer = new OpenrewriteRefactorer(Arrays.asList());
+		// Each file is parsed independently, for each to have its own id
+		SourceFile okFile = AAstRefactorer.parse(refactorer, someClassContent)
+				.get()
+				.withSourcePath(Paths.get("some_package/OkClass.java"));
+		SourceFile failingFile = AAstRefactorer.parse(refactorer, someClassContent)
+				.get()
+				.withSourcePath(Paths.get("some_package/FailingClass.java"));
+
+		Result okResult = new Result(okFile, SearchResult.found(okFile), Collections.emptyList());
+		Result failingResult = new Result(failingFile, SearchResult.found(failingFile), Collections.emptyList());
+		Mockito.when(changeSet.getAllResults()).thenReturn(List.of(okResult, failingResult));
+
+		// The recipe fails over a single file
+		Mockito.when(recipeRun.getDataTableRows(SourcesFileErrors.class.getName()))
+				.thenReturn(
+						List.of(new SourcesFileErrors.Row(failingFile.getSourcePath().toString(), "someRecipe", "")));
+		Mockito.doAnswer(i -> {
+			ExecutionContext ec = i.getArgument(1, ExecutionContext.class);
+			ec.getOnError().accept(new RuntimeException("Something went bad over FailingClass"));
+
+			return recipeRun;
+		}).when(recipe).run(Mockito.any(LargeSourceSet.class), Mockito.any(ExecutionContext.class));
+
+		Assertions.assertThat(mutator.walkAsts(List.of(okFile, failingFile))).containsExactly(okResult);
+	}
+
+	@Test
+	public void testBatch_realRecipeFailingOverOneFile() {
+		// Marks each file, but fails over the FailingClass
+		Recipe failingOverOneFile = new Recipe() {
+			@Override
+			public String getDisplayName() {
+				return "Fails over FailingClass";
+			}
+
+			@Override
+			public String getDescription() {
+				return "Marks each file, but fails over FailingClass.";
+			}
+
+			@Override
+			public TreeVisitor<?, ExecutionContext> getVisitor() {
+				return new TreeVisitor<>() {
+					@Override
+					public Tree visit(Tree tree, ExecutionContext ctx) {
+						if (tree instanceof SourceFile
+								&& ((SourceFile) tree).getSourcePath().toString().contains("Failing")) {
+							throw new IllegalStateException("Something went bad over FailingClass");
+						}
+						return SearchResult.found(tree);
+					}
+				};
+			}
+		};
+		OpenrewriteMutator mutator = new OpenrewriteMutator(failingOverOneFile);
+
+		final OpenrewriteRefactorer refactorer = new OpenrewriteRefactorer(Arrays.asList());
+		// Each file is parsed independently, for each to have its own id
+		SourceFile okFile = AAstRefactorer.parse(refactorer, someClassContent)
+				.get()
+				.withSourcePath(Paths.get("some_package/OkClass.java"));
+		SourceFile failingFile = AAstRefactorer.parse(refactorer, someClassContent)
+				.get()
+				.withSourcePath(Paths.get("some_package/FailingClass.java"));
+
+		Assertions.assertThat(mutator.walkAsts(List.of(okFile, failingFile)))
+				.singleElement()
+				.satisfies(result -> Assertions.assertThat(result.getBefore()).isSameAs(okFile));
+	}
+
+	@Test
+	public void testBatch_unattributedError() {
+		OpenrewriteMutator mutator = new OpenrewriteMutator(recipe);
+
+		final OpenrewriteRefactorer refactorer = new OpenrewriteRefactorer(Arrays.asList());
+		SourceFile pre = AAstRefactorer.parse(refactorer, someClassContent).get();
+
+		Mockito.when(changeSet.getAllResults())
+				.thenReturn(List.of(new Result(pre, SearchResult.found(pre), Collections.emptyList())));
+
+		// The error is not reported over a specific file
+		Mockito.doAnswer(i -> {
+			ExecutionContext ec = i.getArgument(1, ExecutionContext.class);
+			ec.getOnError().accept(new RuntimeException("Something went bad during the process"));
+
+			return recipeRun;
+		}).when(recipe).run(Mockito.any(LargeSourceSet.class), Mockito.any(ExecutionContext.class));
+
+		Assertions.assertThat(mutator.walkAsts(List.of(pre))).isEmpty();
+	}
+
+	@Test
+	public void testBatch() {
+		Environment environment = Environment.builder().scanRuntimeClasspath("org.openrewrite").build();
+		Recipe recipe = environment.activateRecipes("org.openrewrite.java.RemoveUnusedImports");
+
+		OpenrewriteRefactorer refactorer = new OpenrewriteRefactorer(Arrays.asList(new OpenrewriteMutator(recipe)));
+
+		String withUnusedImport = "package some_package;" + "import java.util.List;" + "public class SomeClass {}";
+		String withoutUnusedImport = "package some_package;" + "public class OtherClass {}";
+
+		Path somePath = Paths.get("some_package/SomeClass.java");
+		Path otherPath = Paths.get("some_package/OtherClass.java");
+		List<PathAndContent> outputs = refactorer.doFormat(Stream.of(new PathAndContent(somePath, withUnusedImport),
+				new PathAndContent(otherPath, withoutUnusedImport))).collect(Collectors.toList());
+
+		Assertions.assertThat(outputs).extracting(PathAndContent::getPath).containsExactly(somePath, otherPath);
+		Assertions.assertThat(outputs.get(0).getContent()).doesNotContain("import");
+		Assertions.assertThat(outputs.get(1).getContent()).isEqualTo(withoutUnusedImport);
+	}
+
+	@Test
+	public void testThreadSafe_concurrentCalls() {
+		Environment environment = Environment.builder().scanRuntimeClasspath("org.openrewrite").build();
+		Recipe recipe = environment.activateRecipes("org.openrewrite.java.RemoveUnusedImports");
+
+		OpenrewriteRefactorer refactorer = new OpenrewriteRefactorer(Arrays.asList(new OpenrewriteMutator(recipe)));
+		Assertions.assertThat(refactorer.isThreadSafe()).isTrue();
+
+		// A same instance is used concurrently: each call has its own parser and ExecutionContext
+		List<String> outputs = IntStream.range(0, 16).parallel().mapToObj(i -> {
+			String withUnusedImport =
+					"package some_package;" + "import java.util.List;" + "public class SomeClass" + i + " {}";
+			try {
+				return refactorer.doFormat(
+						new PathAndContent(Paths.get("some_package/SomeClass" + i + ".java"), withUnusedImport));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}).collect(Collectors.toList());
+
+		Assertions.assertThat(outputs)
+				.hasSize(16)
+				.allSatisfy(output -> Assertions.assertThat(output).doesNotContain("import"));
+	}
+
+	@Test
+	public void testValidResult_noReparse() {
+		AtomicInteger nbReparse = new AtomicInteger();
+		var refactorer = new OpenrewriteRefactorer(Arrays.asList()) {
+			@Override
+			protected boolean isValidResultString(JavaParser parser, String resultAsString) {
+				nbReparse.incrementAndGet();
+				return super.isValidResultString(parser, resultAsString);
+			}
+
+			@Override
+			protected boolean isValidResult(JavaParser parser, Result result, String resultAsString) {
+				return super.isValidResult(parser, result, resultAsString);
+			}
+		};
+		SourceFile pre = AAstRefactorer.parse(refactorer, someClassContent).get();
+
+		Result valid = new Result(pre, pre, Collections.emptyList());
+		Assertions.assertThat(refactorer.isValidResult(null, valid, valid.getAfter().printAll())).isTrue();
+
+		// A SearchResult marker would be printed as a comment
+		Result withMarker = new Result(pre, SearchResult.found(pre), Collections.emptyList());
+		Assertions.assertThat(refactorer.isValidResult(null, withMarker, withMarker.getAfter().printAll())).isFalse();
+
+		Assertions.assertThat(nbReparse).hasValue(0);
+	}
 }
@@ -16,6 +16,7 @@
 package eu.solven.cleanthat.engine.java.refactorer;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 import java.util.Optional;
@@ -40,8 +41,8 @@ import eu.solven.cleanthat.engine.java.refactorer.meta.IWalkingMutator;
 import eu.solven.cleanthat.engine.java.refactorer.mutators.composite.AllIncludingDraftCompositeMutators;
 import eu.solven.cleanthat.engine.java.refactorer.mutators.composite.AllIncludingDraftSingleMutators;
 import eu.solven.cleanthat.engine.java.refactorer.mutators.composite.CompositeMutator;
+import eu.solven.cleanthat.formatter.IBatchLintFixer;
 import eu.solven.cleanthat.formatter.ILintFixerWithId;
-import eu.solven.cleanthat.formatter.ILintFixerWithPath;
 import eu.solven.cleanthat.formatter.PathAndContent;
 import eu.solven.cleanthat.language.IEngineProperties;
 
@@ -54,7 +55,7 @@ import eu.solven.cleanthat.language.IEngineProperties;
 // https://github.com/revelc/formatter-maven-plugin/blob/master/src/main/java/net/revelc/code/formatter/java/JavaFormatter.java
 @SuppressWarnings("PMD.GenericsNaming")
 public abstract class AAstRefactorer<AST, P, R, M extends IWalkingMutator<AST, R>>
-		implements ILintFixerWithId, ILintFixerWithPath {
+		implements ILintFixerWithId, IBatchLintFixer {
 	private static final Logger LOGGER = LoggerFactory.getLogger(AAstRefactorer.class);
 
 	private static final int MAX_REAPPLY = 10;
@@ -87,17 +88,58 @@ public abstract class AAstRefactorer<AST, P, R, M extends IWalkingMutator<AST, R
 
 	@Override
 	public String doFormat(PathAndContent pathAndContent) throws IOException {
-		return doFormat(pathAndContent.getContent());
+		return doFormat(makeAstParser(), pathAndContent);
+	}
+
+	/**
+	 * The files are processed sequentially, by the calling thread, with a single parser: its caches (e.g. a symbol
+	 * solver) are shared by the files of the batch. Parallelism is left to the caller, which may process multiple
+	 * batches concurrently.
+	 */
+	@Override
+	public Stream<PathAndContent> doFormat(Stream<PathAndContent> pathAndContents) {
+		var parser = makeAstParser();
+
+		return pathAndContents.sequential().map(pathAndContent -> {
+			try {
+				return pathAndContent.withContent(doFormat(parser, pathAndContent));
+			} catch (IOException e) {
+				throw new UncheckedIOException("Issue with " + pathAndContent.getPath(), e);
+			}
+		});
+	}
+
+	/**
+	 * A parser is made for each file, or for each batch, and the mutators are stateless: this can be shared by multiple
+	 * threads.
+	 */
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	/**
+	 *
+	 * @param parser
+	 *            a parser, which may have been used for previous files of the same batch.
+	 * @param pathAndContent
+	 * @return the refactored content
+	 * @throws IOException
+	 */
+	protected String doFormat(P parser, PathAndContent pathAndContent) throws IOException {
+		return applyTransformers(parser, pathAndContent);
 	}
 
 	protected String applyTransformers(PathAndContent pathAndContent) {
+		return applyTransformers(makeAstParser(), pathAndContent);
+	}
+
+	protected String applyTransformers(P parser, PathAndContent pathAndContent) {
 		AtomicReference<String> refCleanCode = new AtomicReference<>(pathAndContent.getContent());
 
 		// Ensure we compute the compilation-unit only once per String
 		AtomicReference<AST> refCompilationUnit = new AtomicReference<>();
 
-		var parser = makeAstParser();
-
 		var firstMutator = new AtomicBoolean(true);
 		var inputIsBroken = new AtomicBoolean(false);
 
@@ -134,6 +176,20 @@ public abstract class AAstRefactorer<AST, P, R, M extends IWalkingMutator<AST, R
 		return refCleanCode.get();
 	}
 
+	/**
+	 * Check the output of a mutator is valid. By default, this re-parses the output, which may be expensive.
+	 * 
+	 * @param parser
+	 * @param walkResult
+	 *            the result of the mutator, which may enable a cheaper validation than re-parsing its {@link String}
+	 *            representation.
+	 * @param resultAsString
+	 * @return true if the result is valid, and can be accepted as new content.
+	 */
+	protected boolean isValidResult(P parser, R walkResult, String resultAsString) {
+		return isValidResultString(parser, resultAsString);
+	}
+
 	protected abstract boolean isValidResultString(P parser, String resultAsString);
 
 	public static List<IMutator> filterRules(IEngineProperties engineProperties, JavaRefactorerProperties properties) {
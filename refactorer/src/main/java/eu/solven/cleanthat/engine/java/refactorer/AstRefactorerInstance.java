@@ -102,7 +102,7 @@ class AstRefactorerInstance<AST, P, R> {
 
 			// One relevant change: building source-code from the AST
 			var resultAsString = astRefactorer.toString(walkNodeResult.get());
-			if (astRefactorer.isValidResultString(parser, resultAsString)) {
+			if (astRefactorer.isValidResult(parser, walkNodeResult.get(), resultAsString)) {
 				if (refCleanCode.get().equals(resultAsString)) {
 
 					appliedWithChange = false;
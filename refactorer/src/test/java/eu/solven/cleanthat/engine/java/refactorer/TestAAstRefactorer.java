@@ -22,8 +22,11 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.assertj.core.api.Assertions;
+import org.assertj.core.groups.Tuple;
 import org.junit.Test;
 import org.mockito.Mockito;
 
@@ -47,6 +50,7 @@ public class TestAAstRefactorer {
 	final IWalkingMutator<String, String> otherValidMutator = Mockito.mock(IWalkingMutator.class);
 
 	final AtomicInteger nbFailedParsing = new AtomicInteger();
+	final AtomicInteger nbParsers = new AtomicInteger();
 
 	@Test
 	public void testRejectInvalidTransformedCode_validValid() throws IOException {
@@ -107,6 +111,29 @@ public class TestAAstRefactorer {
 		Assertions.assertThat(nbFailedParsing).hasValue(1);
 	}
 
+	@Test
+	public void testBatch_singleParser() {
+		List<IWalkingMutator<String, String>> mutators = Arrays.asList(someValidMutator, otherValidMutator);
+		AAstRefactorer<String, String, String, IWalkingMutator<String, String>> refactorer = makeRefactorer(mutators);
+
+		Mockito.when(someValidMutator.walkAst(inputJavaCode)).thenReturn(Optional.of(someResultAsString));
+		Mockito.when(otherValidMutator.walkAst(someResultAsString)).thenReturn(Optional.of(otherResultAsString));
+
+		var outputs = refactorer.doFormat(Stream.of(new PathAndContent(Paths.get("a"), inputJavaCode),
+				new PathAndContent(Paths.get("b"), someInvalidResultAsString),
+				new PathAndContent(Paths.get("c"), inputJavaCode))).collect(Collectors.toList());
+
+		// The order is preserved, and the invalid input is left unchanged
+		Assertions.assertThat(outputs)
+				.extracting(PathAndContent::getPath, PathAndContent::getContent)
+				.containsExactly(Tuple.tuple(Paths.get("a"), otherResultAsString),
+						Tuple.tuple(Paths.get("b"), someInvalidResultAsString),
+						Tuple.tuple(Paths.get("c"), otherResultAsString));
+
+		// A single parser is made for the whole batch
+		Assertions.assertThat(nbParsers).hasValue(1);
+	}
+
 	private AAstRefactorer<String, String, String, IWalkingMutator<String, String>> makeRefactorer(
 			List<IWalkingMutator<String, String>> mutators) {
 		AAstRefactorer<String, String, String, IWalkingMutator<String, String>> refactorer =
@@ -124,6 +151,7 @@ public class TestAAstRefactorer {
 
 					@Override
 					protected String makeAstParser() {
+						nbParsers.incrementAndGet();
 						return someParser;
 					}
 
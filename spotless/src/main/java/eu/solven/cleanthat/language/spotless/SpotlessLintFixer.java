@@ -19,9 +19,9 @@ import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
+import eu.solven.cleanthat.formatter.IBytesLintFixer;
 import eu.solven.cleanthat.formatter.ILintFixer;
 import eu.solven.cleanthat.formatter.ILintFixerWithId;
-import eu.solven.cleanthat.formatter.ILintFixerWithPath;
 import eu.solven.cleanthat.formatter.PathAndContent;
 import eu.solven.cleanthat.spotless.EnrichedFormatter;
 import eu.solven.cleanthat.spotless.SpotlessSession;
@@ -32,7 +32,7 @@ import eu.solven.cleanthat.spotless.SpotlessSession;
  * @author Benoit Lacelle
  *
  */
-public class SpotlessLintFixer implements ILintFixerWithId, ILintFixerWithPath, AutoCloseable {
+public class SpotlessLintFixer implements ILintFixerWithId, IBytesLintFixer, AutoCloseable {
 
 	final SpotlessSession spotlessSession;
 	final List<EnrichedFormatter> formatters;
@@ -43,24 +43,24 @@ public class SpotlessLintFixer implements ILintFixerWithId, ILintFixerWithPath,
 	}
 
 	@Override
-	public String doFormat(PathAndContent pathAndContent) throws IOException {
+	public PathAndContent doFormatBytes(PathAndContent pathAndContent) throws IOException {
 		AtomicReference<PathAndContent> output = new AtomicReference<>(pathAndContent);
 
 		formatters.stream().forEach(f -> {
 
 			var path = pathAndContent.getPath();
 			if (spotlessSession.acceptPath(f, path)) {
-				String spotlessContent;
+				PathAndContent spotlessContent;
 				try {
 					spotlessContent = spotlessSession.doStuff(f, output.get());
 				} catch (RuntimeException e) {
 					throw new RuntimeException("Issue processing " + path + " with format=" + f.getId(), e);
 				}
-				output.set(pathAndContent.withContent(spotlessContent));
+				output.set(spotlessContent);
 			}
 		});
 
-		return output.get().getContent();
+		return output.get();
 	}
 
 	@Override
@@ -19,7 +19,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.util.HashSet;
@@ -32,6 +31,7 @@ import org.codehaus.plexus.util.MatchPatterns;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.diffplug.spotless.Formatter;
 import com.diffplug.spotless.PaddedCell;
 
 import eu.solven.cleanthat.code_provider.CleanthatPathHelpers;
@@ -78,11 +78,11 @@ public class SpotlessSession {
 	 * @param pathAndContent
 	 *            the relativePath of current file, relative to the root (which is typically a Git repository root,
 	 *            which may or may not reside on the FileSystem).
-	 * @return
+	 * @return the input if it is clean, else the formatted bytes, encoded with the encoding of the {@link Formatter}
 	 */
 	// com.diffplug.gradle.spotless.IdeHook#performHook
 	// com.diffplug.spotless.maven.SpotlessApplyMojo#process
-	public String doStuff(EnrichedFormatter formatter, PathAndContent pathAndContent) {
+	public PathAndContent doStuff(EnrichedFormatter formatter, PathAndContent pathAndContent) {
 		var path = pathAndContent.getPath();
 
 		var rawPath = path.toString();
@@ -92,11 +92,10 @@ public class SpotlessSession {
 		MatchPatterns excludePatterns =
 				MatchPatterns.from(withNormalizedFileSeparators(getExcludes(formatter.formatterStepFactory)));
 
-		var rawBytes = pathAndContent.getContent();
 		if (!includePatterns.matches(rawPath, true)) {
-			return rawBytes;
+			return pathAndContent;
 		} else if (excludePatterns.matches(rawPath, true)) {
-			return rawBytes;
+			return pathAndContent;
 		}
 
 		File fakePathForSpotlessApi = getFakeFile(formatter.getFormatter().getRootDir(), path);
@@ -105,26 +104,34 @@ public class SpotlessSession {
 					"Spotless expects an absolute file, while it received: " + fakePathForSpotlessApi);
 		}
 
+		// Spotless decodes the bytes with its own encoding: the loaded bytes are used as-is if they match it
+		var encoding = formatter.getFormatter().getEncoding();
+		byte[] rawBytes;
+		if (encoding.equals(pathAndContent.getCharset())) {
+			rawBytes = pathAndContent.getBytes();
+		} else {
+			rawBytes = pathAndContent.getContent().getBytes(encoding);
+		}
+
 		try {
-			PaddedCell.DirtyState dirty = PaddedCell.calculateDirtyState(formatter.formatter,
-					fakePathForSpotlessApi,
-					rawBytes.getBytes(StandardCharsets.UTF_8));
+			PaddedCell.DirtyState dirty =
+					PaddedCell.calculateDirtyState(formatter.formatter, fakePathForSpotlessApi, rawBytes);
 			if (dirty.isClean()) {
 				LOGGER.debug("This is already clean: {}", fakePathForSpotlessApi);
 				filesTracker.checkedButAlreadyClean();
-				return rawBytes;
+				return pathAndContent;
 			} else if (dirty.didNotConverge()) {
 				LOGGER.info("Spotless did not converge. {}",
 						"Run 'spotlessDiagnose' for details https://github.com/diffplug/spotless/blob/main/PADDEDCELL.md");
 				filesTracker.checkedButAlreadyClean();
-				return rawBytes;
+				return pathAndContent;
 			} else {
 				var baos = new ByteArrayOutputStream();
 
 				dirty.writeCanonicalTo(baos);
 
 				filesTracker.cleaned();
-				return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+				return pathAndContent.withBytes(baos.toByteArray(), encoding);
 			}
 		} catch (IOException e) {
 			throw new UncheckedIOException("Unable to format path=" + path + " with " + formatter, e);